@@ -0,0 +1,50 @@
+package com.yen.playCS;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// The parallel think phase on its own, with the pool size as a parameter, so the scores show
+// how it scales with threads. Think only reads the world, so it can be rerun on the same bots.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AIThinkBenchmark {
+    @Param({"dust2", "sprawl"})
+    public String map;
+
+    @Param({"200", "1000"})
+    public int bots;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private GameEngine engine;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = BenchmarkScenarios.engine(map, bots);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public List<AIEnemy> think() throws InterruptedException, ExecutionException {
+        List<AIEnemy> enemies = engine.getAIEnemies();
+        Player player = engine.getPlayer();
+        GameWorld world = engine.getGameWorld();
+        pool.submit(() -> enemies.parallelStream().forEach(enemy -> enemy.think(player, world))).get();
+        return enemies;
+    }
+}
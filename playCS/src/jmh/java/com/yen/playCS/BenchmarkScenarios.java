@@ -0,0 +1,58 @@
+package com.yen.playCS;
+
+import java.util.Random;
+
+// Builds reproducible engine states for the JMH benchmarks
+final class BenchmarkScenarios {
+    static final int WIDTH = 1024;
+    static final int HEIGHT = 768;
+    private static final long SEED = 42;
+
+    private BenchmarkScenarios() {
+    }
+
+    // An engine on the given map with extra bots placed on free floor
+    static GameEngine engine(String map, int bots) {
+        GameEngine engine = new GameEngine(WIDTH, HEIGHT);
+        engine.switchMap(map);
+        engine.update(); // Let the engine pick up the new layout before bots are placed
+
+        GameWorld world = engine.getGameWorld();
+        Random random = new Random(SEED);
+        AIEnemy.AIBehavior[] behaviors = AIEnemy.AIBehavior.values();
+        for (int i = 0; i < bots; i++) {
+            double[] spot = freeSpot(world, random);
+            engine.addEnemy(spot[0], spot[1], behaviors[i % behaviors.length]);
+        }
+        return engine;
+    }
+
+    // Tops the projectile pool back up to the target, since projectiles die on walls every tick
+    static void fillProjectiles(GameEngine engine, int target, Random random) {
+        ProjectileSystem projectiles = engine.getProjectiles();
+        GameWorld world = engine.getGameWorld();
+        while (projectiles.size() < target) {
+            double[] spot = freeSpot(world, random);
+            projectiles.spawn(spot[0], spot[1], random.nextDouble() * Math.PI * 2, ProjectileSystem.OWNER_AI);
+        }
+    }
+
+    static double[] freeSpot(GameWorld world, Random random) {
+        while (true) {
+            double x = 20 + random.nextDouble() * (world.getWidth() - 40);
+            double y = 20 + random.nextDouble() * (world.getHeight() - 40);
+            if (!world.checkCollision(x, y)) return new double[]{x, y};
+        }
+    }
+
+    // Uniform points over the whole map, walls included
+    static double[] points(GameWorld world, int count) {
+        Random random = new Random(SEED);
+        double[] points = new double[count * 2];
+        for (int i = 0; i < count; i++) {
+            points[i * 2] = random.nextDouble() * world.getWidth();
+            points[i * 2 + 1] = random.nextDouble() * world.getHeight();
+        }
+        return points;
+    }
+}
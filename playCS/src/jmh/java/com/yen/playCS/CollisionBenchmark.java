@@ -0,0 +1,40 @@
+package com.yen.playCS;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+    private static final int POINTS = 4096; // Power of two so the cursor wraps with a mask
+
+    @Param({"dust2", "office", "mirage", "sprawl"})
+    public String map;
+
+    private GameWorld world;
+    private double[] points;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        world = new GameWorld(BenchmarkScenarios.WIDTH, BenchmarkScenarios.HEIGHT, map);
+        points = BenchmarkScenarios.points(world, POINTS);
+    }
+
+    @Benchmark
+    public boolean checkCollision() {
+        int i = (cursor++ & (POINTS - 1)) * 2;
+        return world.checkCollision(points[i], points[i + 1]);
+    }
+
+    @Benchmark
+    public boolean checkProjectileCollision() {
+        int i = (cursor++ & (POINTS - 1)) * 2;
+        return world.checkProjectileCollision(points[i], points[i + 1]);
+    }
+}
@@ -0,0 +1,40 @@
+package com.yen.playCS;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineUpdateBenchmark {
+    @Param({"dust2", "sprawl"})
+    public String map;
+
+    @Param({"5", "50", "200"})
+    public int bots;
+
+    @Param({"0", "100", "1000"})
+    public int projectiles;
+
+    private GameEngine engine;
+    private Random random;
+
+    // Rebuilt per iteration so bots killed or scattered in one iteration don't skew the next
+    @Setup(Level.Iteration)
+    public void setUp() {
+        engine = BenchmarkScenarios.engine(map, bots);
+        random = new Random(7);
+    }
+
+    @Benchmark
+    public GameEngine update() {
+        BenchmarkScenarios.fillProjectiles(engine, projectiles, random);
+        engine.update();
+        return engine;
+    }
+}
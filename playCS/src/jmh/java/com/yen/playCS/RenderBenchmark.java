@@ -0,0 +1,49 @@
+package com.yen.playCS;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Off-screen software rendering; run with -Djava.awt.headless=true on machines without a display
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+    @Param({"dust2", "sprawl"})
+    public String map;
+
+    @Param({"5", "100"})
+    public int bots;
+
+    @Param({"0", "500"})
+    public int projectiles;
+
+    private GameEngine engine;
+    private BufferedImage frame;
+    private Graphics2D g2d;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = BenchmarkScenarios.engine(map, bots);
+        BenchmarkScenarios.fillProjectiles(engine, projectiles, new Random(7));
+        frame = new BufferedImage(BenchmarkScenarios.WIDTH, BenchmarkScenarios.HEIGHT, BufferedImage.TYPE_INT_RGB);
+        g2d = frame.createGraphics();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        g2d.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage render() {
+        engine.render(g2d, 0.5);
+        return frame;
+    }
+}
@@ -0,0 +1,44 @@
+package com.yen.playCS;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VisualEffectsBenchmark {
+    @Param({"256", "1024", "4096"})
+    public int particles;
+
+    private VisualEffects effects;
+    private GameClock clock;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        effects = new VisualEffects(particles);
+        clock = new GameClock(GameClock.REFERENCE_TICK_RATE);
+        refill();
+    }
+
+    // Impacts spawn six sparks each; keep the pool saturated as particles expire
+    private void refill() {
+        ParticleSystem pool = effects.getParticles();
+        int i = 0;
+        while (pool.size() < particles) {
+            effects.addBulletImpact(100 + (i * 37) % 800, 100 + (i * 53) % 500, clock);
+            i++;
+        }
+    }
+
+    @Benchmark
+    public VisualEffects update() {
+        clock.advance();
+        effects.update(clock);
+        refill();
+        return effects;
+    }
+}
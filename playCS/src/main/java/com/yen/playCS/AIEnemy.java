@@ -1,10 +1,11 @@
 package com.yen.playCS;
 
 import java.awt.*;
-import java.util.Random;
+import java.nio.ByteBuffer;
 
 public class AIEnemy {
     private double x, y;
+    private double prevX, prevY; // Position at the end of the previous tick, for interpolation
     private double targetX, targetY;
     private int health;
     private int maxHealth;
@@ -16,7 +17,15 @@ public class AIEnemy {
     private double detectionRange;
     private double shootingRange;
     private double moveSpeed;
-    private Random random;
+    private FireMode fireMode;
+    private GameRandom random; // This bot's own stream, so parallel thinking stays reproducible
+    private NavPath path;
+    private int pathGoalCell; // Path is only replanned when the goal moves to another cell
+    private NavigationGrid pathGrid; // Grid the cached path was planned on
+    private boolean chasingPlayer; // Chasers follow the shared flow field instead of their own path
+    private boolean targetInSight; // Player is visible and within shooting range
+    private int id; // Entity id, shared with players, that snapshots identify this enemy by
+    private final PositionHistory history = new PositionHistory();
     
     // AI behavior types
     public enum AIBehavior {
@@ -42,11 +51,21 @@ public class AIEnemy {
         public long getShootCooldown() { return shootCooldown; }
     }
     
-    private static final double ENEMY_SIZE = 18;
+    static final double ENEMY_SIZE = 18;
+    // Patrol targets stay this far inside the world's edge: past the 20 px boundary wall,
+    // with room for the bot's body and a step to turn in
+    private static final double PATROL_EDGE_MARGIN = 50;
     
+    // Standalone bots, e.g. in tests, aren't part of a seeded match
     public AIEnemy(double x, double y, SpawnPoint.Team team, AIBehavior behavior) {
+        this(x, y, team, behavior, new GameRandom(System.nanoTime()));
+    }
+    
+    public AIEnemy(double x, double y, SpawnPoint.Team team, AIBehavior behavior, GameRandom random) {
         this.x = x;
         this.y = y;
+        this.prevX = x;
+        this.prevY = y;
         this.targetX = x;
         this.targetY = y;
         this.team = team;
@@ -54,9 +73,12 @@ public class AIEnemy {
         this.maxHealth = 100;
         this.health = maxHealth;
         this.isAlive = true;
-        this.lastShotTime = 0;
+        this.lastShotTime = -behavior.getShootCooldown(); // Ready to fire straight away
         this.angle = 0;
-        this.random = new Random();
+        this.random = random;
+        this.fireMode = FireMode.PROJECTILE;
+        this.path = new NavPath();
+        this.pathGoalCell = -1;
         
         // Set behavior-specific properties
         this.detectionRange = behavior.getDetectionRange();
@@ -64,30 +86,51 @@ public class AIEnemy {
         this.moveSpeed = behavior.getMoveSpeed();
     }
     
-    public void update(Player player, GameWorld world) {
+    // Called at the start of every tick, before anything moves
+    public void storePreviousPosition() {
+        prevX = x;
+        prevY = y;
+    }
+    
+    public void update(Player player, GameWorld world, GameClock clock) {
+        think(player, world);
+        apply(world, clock);
+    }
+    
+    // Decision phase: reads the player and the static world, writes only this enemy's own state,
+    // so different enemies can think in parallel
+    public void think(Player player, GameWorld world) {
         if (!isAlive) return;
         
         double distanceToPlayer = getDistanceTo(player.getX(), player.getY());
+        chasingPlayer = false;
+        targetInSight = false;
         
-        // AI decision making
-        if (distanceToPlayer <= detectionRange) {
+        // AI decision making, walls block detection
+        if (distanceToPlayer <= detectionRange && world.hasLineOfSight(x, y, player.getX(), player.getY())) {
             // Player detected - aim at player
             angle = Math.atan2(player.getY() - y, player.getX() - x);
             
             if (distanceToPlayer <= shootingRange) {
                 // In shooting range - shoot and adjust position
+                targetInSight = true;
                 handleCombat(player, world);
             } else {
                 // Player detected but out of range - move closer
-                moveTowardsTarget(player.getX(), player.getY(), world);
+                chasePlayer(player, world);
             }
         } else {
             // No player detected - patrol behavior
             handlePatrol(world);
         }
+    }
+    
+    // Apply phase: movement shares the path planner, so it runs on one thread in a fixed order
+    public void apply(GameWorld world, GameClock clock) {
+        if (!isAlive) return;
         
         // Update position based on movement
-        moveTowardsCurrentTarget(world);
+        moveTowardsCurrentTarget(world, clock);
     }
     
     private void handleCombat(Player player, GameWorld world) {
@@ -95,7 +138,7 @@ public class AIEnemy {
             case AGGRESSIVE:
                 // Move closer and shoot frequently
                 if (getDistanceTo(player.getX(), player.getY()) > 60) {
-                    moveTowardsTarget(player.getX(), player.getY(), world);
+                    chasePlayer(player, world);
                 }
                 break;
                 
@@ -112,7 +155,7 @@ public class AIEnemy {
             case PATROL:
                 // Moderate approach
                 if (getDistanceTo(player.getX(), player.getY()) > 80) {
-                    moveTowardsTarget(player.getX(), player.getY(), world);
+                    chasePlayer(player, world);
                 }
                 break;
         }
@@ -126,8 +169,15 @@ public class AIEnemy {
             targetY = y + (random.nextDouble() - 0.5) * 200;
             
             // Keep within reasonable bounds
-            targetX = Math.max(50, Math.min(targetX, 950));
-            targetY = Math.max(50, Math.min(targetY, 700));
+            targetX = Math.max(PATROL_EDGE_MARGIN, Math.min(targetX, world.getWidth() - PATROL_EDGE_MARGIN));
+            targetY = Math.max(PATROL_EDGE_MARGIN, Math.min(targetY, world.getHeight() - PATROL_EDGE_MARGIN));
+            
+            // Don't patrol into walls, try again next tick instead
+            NavigationGrid nav = world.getNavigationGrid();
+            if (!nav.isWalkable(nav.cellAt(targetX, targetY))) {
+                targetX = x;
+                targetY = y;
+            }
         }
     }
     
@@ -136,14 +186,38 @@ public class AIEnemy {
         this.targetY = ty;
     }
     
-    private void moveTowardsCurrentTarget(GameWorld world) {
+    private void chasePlayer(Player player, GameWorld world) {
+        moveTowardsTarget(player.getX(), player.getY(), world);
+        // The shared flow field leads to one player only, chasing anyone else plans a path
+        FlowField field = world.getPlayerFlowField();
+        chasingPlayer = field.leadsTo(player.getX(), player.getY());
+    }
+    
+    private void moveTowardsCurrentTarget(GameWorld world, GameClock clock) {
         double dx = targetX - x;
         double dy = targetY - y;
         double distance = Math.sqrt(dx * dx + dy * dy);
         
         if (distance > 5) {
-            double moveX = (dx / distance) * moveSpeed;
-            double moveY = (dy / distance) * moveSpeed;
+            // Steer along the flow field or cached path, straight at the target once in its cell
+            NavigationGrid nav = world.getNavigationGrid();
+            int waypoint = chasingPlayer ? flowFieldStep(world) : -1;
+            if (waypoint == -1 && !chasingPlayer) {
+                updatePath(world);
+                if (path.hasNext() && !path.isLast()) {
+                    waypoint = path.current();
+                }
+            }
+            if (waypoint != -1) {
+                dx = nav.centerX(waypoint) - x;
+                dy = nav.centerY(waypoint) - y;
+                distance = Math.sqrt(dx * dx + dy * dy);
+                if (distance == 0) return;
+            }
+            
+            double step = moveSpeed * clock.getStepScale();
+            double moveX = (dx / distance) * step;
+            double moveY = (dy / distance) * step;
             
             double newX = x + moveX;
             double newY = y + moveY;
@@ -167,10 +241,35 @@ public class AIEnemy {
         }
     }
     
-    public Projectile tryShoot() {
-        if (!isAlive) return null;
+    private int flowFieldStep(GameWorld world) {
+        // O(1) lookup, -1 once in the player's cell or when the player is unreachable
+        return world.getPlayerFlowField().nextStep(x, y);
+    }
+    
+    private void updatePath(GameWorld world) {
+        NavigationGrid nav = world.getNavigationGrid();
+        int goalCell = nav.cellAt(targetX, targetY);
+        if (goalCell != pathGoalCell || nav != pathGrid) {
+            // Unreachable goals leave the path empty and fall back to straight-line steering
+            pathGoalCell = goalCell;
+            pathGrid = nav;
+            world.getPathPlanner().findPath(nav.cellAt(x, y), goalCell, path);
+        }
+        
+        // Drop waypoints that have already been reached
+        double reached = nav.getCellSize() / 2;
+        while (path.hasNext() && !path.isLast()) {
+            double dx = nav.centerX(path.current()) - x;
+            double dy = nav.centerY(path.current()) - y;
+            if (dx * dx + dy * dy > reached * reached) break;
+            path.advance();
+        }
+    }
+    
+    public boolean tryShoot(GameClock clock, ProjectileSystem projectiles, HitscanResolver hitscan) {
+        if (!isAlive || !targetInSight) return false; // Never fire blind into walls
         
-        long currentTime = System.currentTimeMillis();
+        long currentTime = clock.getTimeMillis();
         if (currentTime - lastShotTime >= behavior.getShootCooldown()) {
             lastShotTime = currentTime;
             
@@ -182,9 +281,14 @@ public class AIEnemy {
             double bulletStartX = x + Math.cos(shootAngle) * (ENEMY_SIZE / 2 + 5);
             double bulletStartY = y + Math.sin(shootAngle) * (ENEMY_SIZE / 2 + 5);
             
-            return new Projectile(bulletStartX, bulletStartY, shootAngle);
+            if (fireMode == FireMode.HITSCAN) {
+                hitscan.fireHitscan(bulletStartX, bulletStartY, shootAngle, ProjectileSystem.OWNER_AI);
+            } else {
+                projectiles.spawn(bulletStartX, bulletStartY, shootAngle, ProjectileSystem.OWNER_AI);
+            }
+            return true;
         }
-        return null;
+        return false;
     }
     
     public void takeDamage(int damage) {
@@ -199,26 +303,114 @@ public class AIEnemy {
     
     public void respawn(SpawnPoint spawnPoint) {
         if (spawnPoint != null && spawnPoint.getTeam() == team) {
-            x = spawnPoint.getCenterX();
-            y = spawnPoint.getCenterY();
+            relocate(spawnPoint.getCenterX(), spawnPoint.getCenterY());
             health = maxHealth;
             isAlive = true;
-            targetX = x;
-            targetY = y;
         }
     }
     
+    // Moves without drawing the way there, and forgets where it was heading
+    public void relocate(double x, double y) {
+        this.x = x;
+        this.y = y;
+        prevX = x;
+        prevY = y;
+        targetX = x;
+        targetY = y;
+        pathGoalCell = -1;
+        path.clear();
+    }
+    
+    // Overwrites the simulated state with an authoritative one, e.g. from a server snapshot
+    public void setState(double x, double y, double angle, int health) {
+        this.x = x;
+        this.y = y;
+        this.angle = angle;
+        this.health = health;
+        this.isAlive = health > 0;
+    }
+    
+    // Copies what render() draws, into the render thread's copy of the frame
+    void copyRenderState(AIEnemy from) {
+        x = from.x;
+        y = from.y;
+        prevX = from.prevX;
+        prevY = from.prevY;
+        angle = from.angle;
+        health = from.health;
+        maxHealth = from.maxHealth;
+        isAlive = from.isAlive;
+        behavior = from.behavior;
+        id = from.id;
+    }
+    
+    // Everything the simulation reads except the behavior, which the caller constructs with
+    void writeState(ByteBuffer out, GameWorld world) {
+        out.putDouble(x).putDouble(y).putDouble(prevX).putDouble(prevY);
+        out.putDouble(targetX).putDouble(targetY).putDouble(angle);
+        out.putInt(health).putInt(maxHealth).put((byte) (isAlive ? 1 : 0));
+        out.putLong(lastShotTime).putInt(fireMode.ordinal()).putLong(random.getState());
+        path.writeState(out);
+        out.putInt(pathGoalCell).put((byte) (pathGrid != null && pathGrid == world.getNavigationGrid() ? 1 : 0));
+        out.put((byte) (chasingPlayer ? 1 : 0)).put((byte) (targetInSight ? 1 : 0));
+        out.putInt(id);
+        history.writeState(out);
+    }
+    
+    void readState(ByteBuffer in, GameWorld world) {
+        x = in.getDouble();
+        y = in.getDouble();
+        prevX = in.getDouble();
+        prevY = in.getDouble();
+        targetX = in.getDouble();
+        targetY = in.getDouble();
+        angle = in.getDouble();
+        health = in.getInt();
+        maxHealth = in.getInt();
+        isAlive = in.get() != 0;
+        lastShotTime = in.getLong();
+        fireMode = FireMode.values()[in.getInt()];
+        random.setState(in.getLong());
+        path.readState(in);
+        pathGoalCell = in.getInt();
+        pathGrid = in.get() != 0 ? world.getNavigationGrid() : null; // A path planned on an older map is replanned
+        chasingPlayer = in.get() != 0;
+        targetInSight = in.get() != 0;
+        id = in.getInt();
+        history.readState(in);
+    }
+    
     private double getDistanceTo(double tx, double ty) {
         double dx = tx - x;
         double dy = ty - y;
         return Math.sqrt(dx * dx + dy * dy);
     }
     
-    public void render(Graphics2D g2d) {
+    public void render(Graphics2D g2d, double alpha, SpriteAtlas sprites) {
         if (!isAlive) return;
         
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        // Draw between the last two simulation ticks
+        int rx = (int) (prevX + (x - prevX) * alpha);
+        int ry = (int) (prevY + (y - prevY) * alpha);
+        
+        sprites.drawEnemy(g2d, rx, ry, angle, behavior);
+        
+        // Draw enhanced health bar when damaged
+        if (health < maxHealth) {
+            sprites.drawEnemyHealthBar(g2d, rx, ry, health * 100 / maxHealth);
+        }
+        
+        // Behavior indicator with modern styling
+        sprites.drawBehaviorBadge(g2d, rx, ry, behavior);
         
+        // Detection range indicator (when aggressive and close to player)
+        if (behavior == AIBehavior.AGGRESSIVE) {
+            sprites.drawDetectionRange(g2d, rx, ry, behavior);
+        }
+    }
+    
+    // Vector drawing below is only run by SpriteAtlas, which rasterizes it once per behavior and rotation
+    static void paintBody(Graphics2D g2d, double rx, double ry, double angle, AIBehavior behavior) {
         // Enemy body with behavior-specific colors
         Color bodyColor, highlightColor;
         switch (behavior) {
@@ -241,64 +433,51 @@ public class AIEnemy {
         
         // Create gradient for enemy body
         GradientPaint bodyGradient = new GradientPaint(
-            (float)(x - ENEMY_SIZE/2), (float)(y - ENEMY_SIZE/2), highlightColor,
-            (float)(x + ENEMY_SIZE/2), (float)(y + ENEMY_SIZE/2), bodyColor
+            (float)(rx - ENEMY_SIZE/2), (float)(ry - ENEMY_SIZE/2), highlightColor,
+            (float)(rx + ENEMY_SIZE/2), (float)(ry + ENEMY_SIZE/2), bodyColor
         );
         g2d.setPaint(bodyGradient);
-        g2d.fillOval((int)(x - ENEMY_SIZE/2), (int)(y - ENEMY_SIZE/2), (int)ENEMY_SIZE, (int)ENEMY_SIZE);
+        g2d.fillOval((int)(rx - ENEMY_SIZE/2), (int)(ry - ENEMY_SIZE/2), (int)ENEMY_SIZE, (int)ENEMY_SIZE);
         
         // Body border
         g2d.setColor(bodyColor.darker());
-        g2d.setStroke(new BasicStroke(2));
-        g2d.drawOval((int)(x - ENEMY_SIZE/2), (int)(y - ENEMY_SIZE/2), (int)ENEMY_SIZE, (int)ENEMY_SIZE);
+        g2d.setStroke(RenderResources.STROKE_2);
+        g2d.drawOval((int)(rx - ENEMY_SIZE/2), (int)(ry - ENEMY_SIZE/2), (int)ENEMY_SIZE, (int)ENEMY_SIZE);
         
         // Weapon (AK-47 style for terrorists)
-        g2d.setColor(new Color(40, 40, 40)); // Dark gun metal
-        g2d.setStroke(new BasicStroke(3));
+        g2d.setColor(RenderResources.GRAY_40); // Dark gun metal
+        g2d.setStroke(RenderResources.STROKE_3);
         double gunLength = 22;
-        double gunEndX = x + Math.cos(angle) * gunLength;
-        double gunEndY = y + Math.sin(angle) * gunLength;
-        g2d.drawLine((int)x, (int)y, (int)gunEndX, (int)gunEndY);
+        double gunEndX = rx + Math.cos(angle) * gunLength;
+        double gunEndY = ry + Math.sin(angle) * gunLength;
+        g2d.drawLine((int)rx, (int)ry, (int)gunEndX, (int)gunEndY);
         
         // Gun details
-        g2d.setColor(new Color(60, 60, 60));
-        g2d.setStroke(new BasicStroke(1));
-        double gunDetailX = x + Math.cos(angle) * 15;
-        double gunDetailY = y + Math.sin(angle) * 15;
+        g2d.setColor(RenderResources.GRAY_60);
+        g2d.setStroke(RenderResources.STROKE_1);
+        double gunDetailX = rx + Math.cos(angle) * 15;
+        double gunDetailY = ry + Math.sin(angle) * 15;
         g2d.drawLine((int)gunDetailX, (int)gunDetailY, (int)gunEndX, (int)gunEndY);
         
         // Enemy sight indicator
         g2d.setColor(Color.YELLOW);
-        double sightX = x + Math.cos(angle) * 8;
-        double sightY = y + Math.sin(angle) * 8;
+        double sightX = rx + Math.cos(angle) * 8;
+        double sightY = ry + Math.sin(angle) * 8;
         g2d.fillOval((int)(sightX - 1), (int)(sightY - 1), 2, 2);
-        
-        // Draw enhanced health bar when damaged
-        if (health < maxHealth) {
-            drawEnemyHealthBar(g2d);
-        }
-        
-        // Behavior indicator with modern styling
-        drawBehaviorIndicator(g2d);
-        
-        // Detection range indicator (when aggressive and close to player)
-        if (behavior == AIBehavior.AGGRESSIVE) {
-            drawDetectionRange(g2d);
-        }
     }
     
-    private void drawEnemyHealthBar(Graphics2D g2d) {
+    static void paintHealthBar(Graphics2D g2d, double rx, double ry, int healthPercentage) {
         int barWidth = (int)ENEMY_SIZE + 4;
         int barHeight = 5;
-        int barX = (int)(x - barWidth/2);
-        int barY = (int)(y - ENEMY_SIZE/2 - 12);
+        int barX = (int)(rx - barWidth/2);
+        int barY = (int)(ry - ENEMY_SIZE/2 - 12);
         
         // Background
-        g2d.setColor(new Color(60, 60, 60));
+        g2d.setColor(RenderResources.GRAY_60);
         g2d.fillRoundRect(barX, barY, barWidth, barHeight, 3, 3);
         
         // Health fill with gradient
-        double healthPercent = (double)health / maxHealth;
+        double healthPercent = healthPercentage / 100.0;
         Color healthColor = healthPercent > 0.6 ? new Color(0, 200, 0) : 
                            healthPercent > 0.3 ? new Color(255, 165, 0) : new Color(220, 50, 50);
         
@@ -310,15 +489,15 @@ public class AIEnemy {
         
         // Border
         g2d.setColor(Color.WHITE);
-        g2d.setStroke(new BasicStroke(1));
+        g2d.setStroke(RenderResources.STROKE_1);
         g2d.drawRoundRect(barX, barY, barWidth, barHeight, 3, 3);
     }
     
-    private void drawBehaviorIndicator(Graphics2D g2d) {
+    static void paintBehaviorIndicator(Graphics2D g2d, double rx, double ry, AIBehavior behavior) {
         // Background circle for behavior indicator
         int indicatorSize = 16;
-        int indicatorX = (int)(x - indicatorSize/2);
-        int indicatorY = (int)(y + ENEMY_SIZE/2 + 8);
+        int indicatorX = (int)(rx - indicatorSize/2);
+        int indicatorY = (int)(ry + ENEMY_SIZE/2 + 8);
         
         // Behavior-specific background color
         Color bgColor;
@@ -333,12 +512,12 @@ public class AIEnemy {
         g2d.fillOval(indicatorX, indicatorY, indicatorSize, indicatorSize);
         
         g2d.setColor(Color.WHITE);
-        g2d.setStroke(new BasicStroke(1));
+        g2d.setStroke(RenderResources.STROKE_1);
         g2d.drawOval(indicatorX, indicatorY, indicatorSize, indicatorSize);
         
         // Behavior letter
         g2d.setColor(Color.WHITE);
-        g2d.setFont(new Font("Arial", Font.BOLD, 10));
+        g2d.setFont(RenderResources.BOLD_10);
         String behaviorText = behavior.name().substring(0, 1);
         FontMetrics fm = g2d.getFontMetrics();
         int textX = indicatorX + (indicatorSize - fm.stringWidth(behaviorText)) / 2;
@@ -346,10 +525,11 @@ public class AIEnemy {
         g2d.drawString(behaviorText, textX, textY);
     }
     
-    private void drawDetectionRange(Graphics2D g2d) {
+    static void paintDetectionRange(Graphics2D g2d, double rx, double ry, AIBehavior behavior) {
         // Only show when aggressive and actively hunting
+        double detectionRange = behavior.getDetectionRange();
         g2d.setColor(new Color(255, 0, 0, 30));
-        g2d.fillOval((int)(x - detectionRange/4), (int)(y - detectionRange/4), 
+        g2d.fillOval((int)(rx - detectionRange/4), (int)(ry - detectionRange/4), 
                      (int)(detectionRange/2), (int)(detectionRange/2));
     }
     
@@ -361,6 +541,12 @@ public class AIEnemy {
     public SpawnPoint.Team getTeam() { return team; }
     public AIBehavior getBehavior() { return behavior; }
     public double getSize() { return ENEMY_SIZE; }
+    public double getAngle() { return angle; }
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+    public PositionHistory getHistory() { return history; }
+    public FireMode getFireMode() { return fireMode; }
+    public void setFireMode(FireMode fireMode) { this.fireMode = fireMode; }
     
     // Check if point is within enemy bounds
     public boolean contains(double px, double py) {
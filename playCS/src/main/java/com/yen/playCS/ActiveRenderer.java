@@ -0,0 +1,135 @@
+package com.yen.playCS;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+
+public class ActiveRenderer extends Canvas implements Runnable {
+    private static final int DEFAULT_REFRESH_RATE = 60;
+
+    private final GameEngine engine;
+    private final HeadlessGameRunner simulation;
+    private final boolean vsync;
+    private volatile boolean running;
+    private Thread thread;
+    private BufferStrategy strategy;
+    private volatile int framesPerSecond;
+
+    public ActiveRenderer(GameEngine engine, HeadlessGameRunner simulation, int width, int height, boolean vsync) {
+        this.engine = engine;
+        this.simulation = simulation;
+        this.vsync = vsync;
+        setPreferredSize(new Dimension(width, height));
+        setBackground(Color.DARK_GRAY);
+        setFocusable(true);
+        setIgnoreRepaint(true); // We paint ourselves, RepaintManager stays out of it
+    }
+
+    // Must be called once the canvas is displayable, i.e. after the frame is shown
+    public synchronized void start() {
+        if (running) return;
+        createStrategy();
+        running = true;
+        thread = new Thread(this, "game-render");
+        thread.start();
+    }
+
+    public void stop() {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            current = thread;
+            thread = null;
+        }
+        if (current != null && current != Thread.currentThread()) {
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void createStrategy() {
+        // Prefer page flipping, fall back to whatever the pipeline offers (usually blitting)
+        try {
+            createBufferStrategy(2, new BufferCapabilities(
+                new ImageCapabilities(true), new ImageCapabilities(true),
+                BufferCapabilities.FlipContents.UNDEFINED));
+        } catch (AWTException e) {
+            createBufferStrategy(2);
+        }
+        strategy = getBufferStrategy();
+    }
+
+    @Override
+    public void run() {
+        long frameNanos = vsync ? 1_000_000_000L / refreshRate() : 0;
+        long nextFrame = System.nanoTime();
+        long fpsWindowStart = nextFrame;
+        int frames = 0;
+
+        while (running) {
+            renderFrame();
+            frames++;
+
+            long now = System.nanoTime();
+            if (now - fpsWindowStart >= 1_000_000_000L) {
+                framesPerSecond = frames;
+                frames = 0;
+                fpsWindowStart = now;
+            }
+
+            if (vsync) {
+                // Windowed Java2D can't wait for the vertical blank, so pace to the display's refresh rate
+                nextFrame += frameNanos;
+                long sleepNanos = nextFrame - System.nanoTime();
+                if (sleepNanos > 0) {
+                    sleep(sleepNanos);
+                } else {
+                    nextFrame = System.nanoTime(); // Fell behind, don't try to catch up
+                }
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    private void renderFrame() {
+        do {
+            do {
+                Graphics2D g2d = (Graphics2D) strategy.getDrawGraphics();
+                try {
+                    g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                    engine.render(g2d, simulation.getAlpha());
+                } finally {
+                    g2d.dispose();
+                }
+            } while (strategy.contentsRestored());
+            strategy.show();
+        } while (strategy.contentsLost());
+
+        // Flush the window system's queue so the frame is shown now, not batched
+        Toolkit.getDefaultToolkit().sync();
+    }
+
+    private int refreshRate() {
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        if (config != null) {
+            int rate = config.getDevice().getDisplayMode().getRefreshRate();
+            if (rate != DisplayMode.REFRESH_RATE_UNKNOWN && rate > 0) return rate;
+        }
+        return DEFAULT_REFRESH_RATE;
+    }
+
+    private void sleep(long nanos) {
+        try {
+            Thread.sleep(nanos / 1_000_000L, (int) (nanos % 1_000_000L));
+        } catch (InterruptedException e) {
+            running = false;
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getFramesPerSecond() { return framesPerSecond; }
+    public boolean isVsync() { return vsync; }
+}
@@ -0,0 +1,91 @@
+package com.yen.playCS;
+
+import java.util.Arrays;
+
+public class ActorGrid {
+    private final double cellSize;
+    private final int cols, rows;
+
+    // Bucketed by counting sort, cell c holds ids[cellStart[c] .. cellStart[c + 1])
+    private final int[] cellStart;
+    private final int[] cellFill;
+    private int[] pendingIds = new int[32];
+    private int[] pendingCells = new int[32];
+    private int[] ids = new int[32];
+    private int[] results = new int[32];
+    private int count;
+    private int resultCount;
+
+    public ActorGrid(double worldWidth, double worldHeight, double cellSize) {
+        this.cellSize = cellSize;
+        this.cols = (int) Math.floor(worldWidth / cellSize) + 1;
+        this.rows = (int) Math.floor(worldHeight / cellSize) + 1;
+        this.cellStart = new int[cols * rows + 1];
+        this.cellFill = new int[cols * rows];
+    }
+
+    public void clear() {
+        count = 0;
+    }
+
+    public void insert(int id, double x, double y) {
+        if (count == pendingIds.length) {
+            pendingIds = Arrays.copyOf(pendingIds, count * 2);
+            pendingCells = Arrays.copyOf(pendingCells, count * 2);
+        }
+        pendingIds[count] = id;
+        pendingCells[count] = cellY(y) * cols + cellX(x);
+        count++;
+    }
+
+    // Call once after all inserts, before querying
+    public void commit() {
+        if (ids.length < count) {
+            ids = new int[pendingIds.length];
+        }
+        Arrays.fill(cellStart, 0);
+        for (int i = 0; i < count; i++) {
+            cellStart[pendingCells[i] + 1]++;
+        }
+        for (int c = 0; c < cols * rows; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        System.arraycopy(cellStart, 0, cellFill, 0, cellFill.length);
+        for (int i = 0; i < count; i++) {
+            ids[cellFill[pendingCells[i]]++] = pendingIds[i];
+        }
+    }
+
+    // Collects ids whose cell overlaps the box; read them back with getResult
+    public int query(double minX, double minY, double maxX, double maxY) {
+        resultCount = 0;
+        int minCol = cellX(minX);
+        int maxCol = cellX(maxX);
+        int minRow = cellY(minY);
+        int maxRow = cellY(maxY);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                int cell = row * cols + col;
+                for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                    if (resultCount == results.length) {
+                        results = Arrays.copyOf(results, resultCount * 2);
+                    }
+                    results[resultCount++] = ids[i];
+                }
+            }
+        }
+        return resultCount;
+    }
+
+    public int getResult(int i) {
+        return results[i];
+    }
+
+    private int cellX(double x) {
+        return Math.max(0, Math.min(cols - 1, (int) Math.floor(x / cellSize)));
+    }
+
+    private int cellY(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / cellSize)));
+    }
+}
@@ -23,12 +23,12 @@ public class BombSite extends MapElement {
         // Border
         Color borderColor = hasBomb ? Color.RED : Color.ORANGE;
         g2d.setColor(borderColor);
-        g2d.setStroke(new BasicStroke(3, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 1.0f, new float[]{10, 5}, 0));
+        g2d.setStroke(RenderResources.DASHED_3);
         g2d.drawRect((int)x, (int)y, (int)width, (int)height);
         
         // Site label
         g2d.setColor(Color.WHITE);
-        g2d.setFont(new Font("Arial", Font.BOLD, 24));
+        g2d.setFont(RenderResources.BOLD_24);
         FontMetrics fm = g2d.getFontMetrics();
         int textX = (int)(x + width/2 - fm.stringWidth(siteName) / 2);
         int textY = (int)(y + height/2 + fm.getAscent() / 2);
@@ -37,7 +37,7 @@ public class BombSite extends MapElement {
         // Bomb indicator
         if (hasBomb) {
             g2d.setColor(Color.RED);
-            g2d.setFont(new Font("Arial", Font.BOLD, 12));
+            g2d.setFont(RenderResources.BOLD_12);
             String status = isArmed ? "ARMED" : "PLANTED";
             fm = g2d.getFontMetrics();
             textX = (int)(x + width/2 - fm.stringWidth(status) / 2);
@@ -7,23 +7,39 @@ import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
 
 public class CSGame extends JPanel {
     
     private static final int WINDOW_WIDTH = 1024;
     private static final int WINDOW_HEIGHT = 768;
+    private static final String WINDOW_TITLE = "Counter Strike - Simple Game";
     
     private GameEngine gameEngine;
     private Timer gameTimer;
-
-    public CSGame() {
+    
+    public CSGame(int particleBudget) {
         setPreferredSize(new Dimension(WINDOW_WIDTH, WINDOW_HEIGHT));
         setBackground(Color.DARK_GRAY);
         setFocusable(true);
         
-        gameEngine = new GameEngine(WINDOW_WIDTH, WINDOW_HEIGHT);
+        gameEngine = newEngine(particleBudget);
+        attachInput(this, gameEngine);
         
-        addKeyListener(new KeyAdapter() {
+        gameTimer = new Timer(1000 / gameEngine.getTickRate(), e -> {
+            gameEngine.update();
+            repaint();
+        });
+        gameTimer.start();
+    }
+    
+    static void attachInput(Component component, GameEngine gameEngine) {
+        component.addKeyListener(new KeyAdapter() {
             @Override
             public void keyPressed(KeyEvent e) {
                 gameEngine.handleKeyPress(e);
@@ -35,25 +51,19 @@ public class CSGame extends JPanel {
             }
         });
         
-        addMouseMotionListener(new MouseMotionAdapter() {
+        component.addMouseMotionListener(new MouseMotionAdapter() {
             @Override
             public void mouseMoved(MouseEvent e) {
                 gameEngine.handleMouseMove(e);
             }
         });
         
-        addMouseListener(new MouseAdapter() {
+        component.addMouseListener(new MouseAdapter() {
             @Override
             public void mousePressed(MouseEvent e) {
                 gameEngine.handleMousePress(e);
             }
         });
-        
-        gameTimer = new Timer(16, e -> {
-            gameEngine.update();
-            repaint();
-        });
-        gameTimer.start();
     }
     
     @Override
@@ -63,10 +73,112 @@ public class CSGame extends JPanel {
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         gameEngine.render(g2d);
     }
-
+    
+    private static GameEngine newEngine(int particleBudget) {
+        return new GameEngine(WINDOW_WIDTH, WINDOW_HEIGHT, GameEngine.DEFAULT_TICK_RATE, System.nanoTime(), particleBudget);
+    }
+    
+    // Simulation and rendering each get their own thread, nothing runs on the EDT per frame
+    private static void launchActive(boolean vsync, String recordTo, int particleBudget) {
+        GameEngine engine = newEngine(particleBudget);
+        ReplayRecorder recorder = null;
+        if (recordTo != null) {
+            try {
+                recorder = ReplayRecorder.open(engine, Paths.get(recordTo));
+            } catch (IOException e) {
+                System.err.println("Could not record to " + recordTo + ": " + e.getMessage());
+                System.exit(1);
+                return;
+            }
+        }
+        launchActive(vsync, engine, new HeadlessGameRunner(engine), recorder);
+    }
+    
+    // Thin client: the engine only mirrors the server, the client's tick replaces the simulation
+    private static void launchClient(boolean vsync, String server, int particleBudget) {
+        GameEngine engine = newEngine(particleBudget);
+        GameClient client;
+        try {
+            client = new GameClient(engine, parseAddress(server));
+        } catch (IOException e) {
+            System.err.println("Could not connect to " + server + ": " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        launchActive(vsync, engine, new HeadlessGameRunner(engine, client::tick), client::close);
+    }
+    
+    static InetSocketAddress parseAddress(String hostAndPort) {
+        int colon = hostAndPort.lastIndexOf(':');
+        if (colon == -1) return new InetSocketAddress(hostAndPort, GameServer.DEFAULT_PORT);
+        return new InetSocketAddress(hostAndPort.substring(0, colon), Integer.parseInt(hostAndPort.substring(colon + 1)));
+    }
+    
+    // onExit closes whatever the session holds open: the server connection or the replay being recorded
+    private static void launchActive(boolean vsync, GameEngine engine, HeadlessGameRunner simulation, Closeable onExit) {
+        ActiveRenderer renderer = new ActiveRenderer(engine, simulation, WINDOW_WIDTH, WINDOW_HEIGHT, vsync);
+        attachInput(renderer, engine);
+        
+        Frame frame = new Frame(WINDOW_TITLE);
+        frame.setIgnoreRepaint(true);
+        frame.add(renderer);
+        frame.setResizable(false);
+        frame.pack();
+        frame.setLocationRelativeTo(null);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                renderer.stop();
+                simulation.stop();
+                if (onExit != null) {
+                    try {
+                        onExit.close();
+                    } catch (IOException ex) {
+                        // Exiting anyway; a lost connection is timed out by the server
+                        System.err.println("Error while closing: " + ex.getMessage());
+                    }
+                }
+                System.exit(0);
+            }
+        });
+        frame.setVisible(true);
+        
+        renderer.start();
+        simulation.start();
+        renderer.requestFocus();
+    }
+    
     public static void main(String[] args) {
-        JFrame frame = new JFrame("Counter Strike - Simple Game");
-        CSGame game = new CSGame();
+        boolean active = false;
+        boolean vsync = true;
+        String server = null;
+        String recordTo = null;
+        int particleBudget = VisualEffects.DEFAULT_PARTICLE_BUDGET;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--active")) active = true;
+            if (args[i].equals("--uncapped")) vsync = false;
+            if (args[i].equals("--connect") && i + 1 < args.length) server = args[++i];
+            if (args[i].equals("--record") && i + 1 < args.length) recordTo = args[++i];
+            if (args[i].equals("--particles") && i + 1 < args.length) particleBudget = Integer.parseInt(args[++i]);
+        }
+        int budget = particleBudget;
+        
+        if (server != null) {
+            boolean capToDisplay = vsync;
+            String address = server;
+            EventQueue.invokeLater(() -> launchClient(capToDisplay, address, budget));
+            return;
+        }
+        
+        if (active || recordTo != null) {
+            boolean capToDisplay = vsync;
+            String replayFile = recordTo;
+            EventQueue.invokeLater(() -> launchActive(capToDisplay, replayFile, budget));
+            return;
+        }
+        
+        JFrame frame = new JFrame(WINDOW_TITLE);
+        CSGame game = new CSGame(budget);
         
         frame.add(game);
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
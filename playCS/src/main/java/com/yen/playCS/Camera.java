@@ -0,0 +1,41 @@
+package com.yen.playCS;
+
+public class Camera {
+    private final int viewWidth;
+    private final int viewHeight;
+    private int x, y; // World position of the top-left screen pixel
+
+    public Camera(int viewWidth, int viewHeight) {
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+    }
+
+    // Centres on the target, clamped so the view never leaves the world
+    public void follow(double targetX, double targetY, double worldWidth, double worldHeight) {
+        x = clamp((int) Math.floor(targetX - viewWidth / 2.0), (int) worldWidth - viewWidth);
+        y = clamp((int) Math.floor(targetY - viewHeight / 2.0), (int) worldHeight - viewHeight);
+    }
+
+    public void copyFrom(Camera other) {
+        x = other.x;
+        y = other.y;
+    }
+
+    private static int clamp(int value, int max) {
+        return Math.max(0, Math.min(value, max));
+    }
+
+    // True when a circle of the given radius around the point overlaps the view
+    public boolean isVisible(double worldX, double worldY, double radius) {
+        return worldX + radius >= x && worldX - radius <= x + viewWidth &&
+               worldY + radius >= y && worldY - radius <= y + viewHeight;
+    }
+
+    public double toWorldX(double screenX) { return screenX + x; }
+    public double toWorldY(double screenY) { return screenY + y; }
+
+    public int getX() { return x; }
+    public int getY() { return y; }
+    public int getViewWidth() { return viewWidth; }
+    public int getViewHeight() { return viewHeight; }
+}
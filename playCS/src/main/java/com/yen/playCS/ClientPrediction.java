@@ -0,0 +1,93 @@
+package com.yen.playCS;
+
+// Moves the local player with its own inputs straight away instead of waiting a round trip.
+// Each snapshot says which input the server applied last; if the server ended up where we
+// predicted, the prediction stands, otherwise we rewind to the server's state and replay the
+// inputs it hasn't seen yet.
+public class ClientPrediction {
+    private static final double TOLERANCE = 1.0 / Snapshot.POSITION_SCALE; // Snapshot positions are quantized
+
+    private final int mask;
+    private final PlayerInput[] inputs;
+    private final double[] predictedX; // Where the player was predicted to be after each input
+    private final double[] predictedY;
+    private GameClock clock;
+    private int corrections;
+    private long replayedInputs;
+
+    public ClientPrediction(int capacity, int tickRate) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.inputs = new PlayerInput[capacity];
+        this.predictedX = new double[capacity];
+        this.predictedY = new double[capacity];
+        for (int i = 0; i < capacity; i++) {
+            inputs[i] = new PlayerInput();
+        }
+        setTickRate(tickRate);
+    }
+
+    // Movement per tick depends on the tick rate, so predict with the server's
+    public void setTickRate(int tickRate) {
+        this.clock = new GameClock(tickRate);
+    }
+
+    // The buffer slot for an input, overwritten once the ring wraps
+    public PlayerInput slot(int sequence) {
+        return inputs[sequence & mask];
+    }
+
+    // Applies a freshly sampled input to the local player, exactly as the server will
+    public void predict(GameEngine engine, int sequence) {
+        synchronized (engine) {
+            Player player = engine.getPlayer();
+            player.storePreviousPosition();
+            step(player, engine.getGameWorld(), inputs[sequence & mask]);
+            predictedX[sequence & mask] = player.getX();
+            predictedY[sequence & mask] = player.getY();
+        }
+    }
+
+    // Call right after a snapshot has put the local player at the server's state as of lastProcessed.
+    // nextSequence is the first input that hasn't been predicted yet.
+    public void reconcile(GameEngine engine, int lastProcessed, int nextSequence) {
+        int first = lastProcessed + 1;
+        if (nextSequence - first > mask) return; // Too far behind to replay, take the server's word
+
+        synchronized (engine) {
+            Player player = engine.getPlayer();
+            if (first == nextSequence) return; // Nothing in flight, the server's state is current
+
+            int checked = lastProcessed & mask;
+            if (lastProcessed >= 0 && Math.abs(player.getX() - predictedX[checked]) <= TOLERANCE
+                                   && Math.abs(player.getY() - predictedY[checked]) <= TOLERANCE) {
+                // Prediction held, put the player back where it is predicted to be by now
+                int latest = (nextSequence - 1) & mask;
+                player.setPosition(predictedX[latest], predictedY[latest]);
+            } else {
+                // Rewind happened in the snapshot, replay everything the server hasn't applied yet
+                corrections++;
+                GameWorld world = engine.getGameWorld();
+                for (int s = first; s < nextSequence; s++) {
+                    step(player, world, inputs[s & mask]);
+                    predictedX[s & mask] = player.getX();
+                    predictedY[s & mask] = player.getY();
+                }
+                replayedInputs += nextSequence - first;
+            }
+            player.setAngle(inputs[(nextSequence - 1) & mask].getAngle());
+        }
+    }
+
+    private void step(Player player, GameWorld world, PlayerInput input) {
+        player.setAngle(input.getAngle());
+        if (player.getHealth() <= 0) return; // The server doesn't move dead players either
+        player.move(input.getMoveX(), input.getMoveY(), world, clock);
+    }
+
+    public int capacity() { return mask + 1; }
+    public int getCorrections() { return corrections; }
+    public long getReplayedInputs() { return replayedInputs; }
+}
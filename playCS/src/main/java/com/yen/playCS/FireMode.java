@@ -0,0 +1,6 @@
+package com.yen.playCS;
+
+public enum FireMode {
+    PROJECTILE, // Simulated bullet that travels every tick
+    HITSCAN     // Resolved instantly with a ray cast
+}
@@ -0,0 +1,111 @@
+package com.yen.playCS;
+
+import java.util.Arrays;
+
+public class FlowField {
+    private static final int UNREACHABLE = -1;
+    // Orthogonal neighbours first so ties prefer straight steps
+    private static final int[] NEIGHBOR_DX = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] NEIGHBOR_DY = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    private final NavigationGrid grid;
+    private final int[] distance;
+    private final int[] nextCell;
+    private final int[] queue;
+    private int targetCell = -1; // Cell the goal point is in
+    private int goalCell = -1; // Nearest walkable cell to it, where the field leads
+
+    public FlowField(NavigationGrid grid) {
+        this.grid = grid;
+        this.distance = new int[grid.getCellCount()];
+        this.nextCell = new int[grid.getCellCount()];
+        this.queue = new int[grid.getCellCount()];
+    }
+
+    // Rebuilds only when the goal moves into a different cell. A goal standing next to a wall is
+    // often in a cell the wall overlaps, so the field leads to the nearest walkable one instead.
+    public void update(double goalX, double goalY) {
+        int cell = grid.cellAt(goalX, goalY);
+        if (cell == targetCell) return;
+        targetCell = cell;
+        goalCell = grid.nearestWalkable(goalX, goalY);
+        rebuild();
+    }
+
+    // Whether the field was built for a goal at this position
+    public boolean leadsTo(double x, double y) {
+        int cell = grid.cellAt(x, y);
+        return cell != -1 && cell == targetCell;
+    }
+
+    private void rebuild() {
+        Arrays.fill(distance, UNREACHABLE);
+        Arrays.fill(nextCell, -1);
+        if (!grid.isWalkable(goalCell)) return;
+
+        // Breadth-first distance map outward from the goal
+        int cols = grid.getCols();
+        int head = 0, tail = 0;
+        distance[goalCell] = 0;
+        queue[tail++] = goalCell;
+        while (head < tail) {
+            int current = queue[head++];
+            int col = current % cols;
+            int row = current / cols;
+            for (int n = 0; n < NEIGHBOR_DX.length; n++) {
+                int nc = col + NEIGHBOR_DX[n];
+                int nr = row + NEIGHBOR_DY[n];
+                if (!canStep(col, row, nc, nr, n >= 4)) continue;
+                int neighbor = nr * cols + nc;
+                if (distance[neighbor] != UNREACHABLE) continue;
+                distance[neighbor] = distance[current] + 1;
+                queue[tail++] = neighbor;
+            }
+        }
+
+        // Each reachable cell points at its closest neighbour to the goal
+        for (int i = 0; i < tail; i++) {
+            int cell = queue[i];
+            if (cell == goalCell) continue;
+            int col = cell % cols;
+            int row = cell / cols;
+            int best = -1;
+            for (int n = 0; n < NEIGHBOR_DX.length; n++) {
+                int nc = col + NEIGHBOR_DX[n];
+                int nr = row + NEIGHBOR_DY[n];
+                if (!canStep(col, row, nc, nr, n >= 4)) continue;
+                int neighbor = nr * cols + nc;
+                if (best == -1 || distance[neighbor] < distance[best]) {
+                    best = neighbor;
+                }
+            }
+            nextCell[cell] = best;
+        }
+    }
+
+    private boolean canStep(int col, int row, int nc, int nr, boolean diagonal) {
+        if (!grid.isWalkable(nc, nr)) return false;
+        return !diagonal || (grid.isWalkable(nc, row) && grid.isWalkable(col, nr));
+    }
+
+    // Next cell towards the goal, or -1 if already there or unreachable
+    public int nextCell(int cell) {
+        return cell >= 0 && cell < nextCell.length ? nextCell[cell] : -1;
+    }
+
+    // Cell to steer for from a position, or -1 once in the goal cell or when it is unreachable.
+    // From inside a blocked cell, e.g. brushing a wall, it first steers back onto walkable ground.
+    public int nextStep(double x, double y) {
+        int cell = grid.cellAt(x, y);
+        if (grid.isWalkable(cell)) return nextCell(cell);
+        int open = grid.nearestWalkable(x, y);
+        return open == -1 || distance[open] == UNREACHABLE ? -1 : open;
+    }
+
+    public int distance(int cell) {
+        return cell >= 0 && cell < distance.length ? distance[cell] : UNREACHABLE;
+    }
+
+    public int getGoalCell() { return goalCell; }
+    public NavigationGrid getGrid() { return grid; }
+}
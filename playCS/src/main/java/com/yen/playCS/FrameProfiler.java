@@ -0,0 +1,170 @@
+package com.yen.playCS;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+public class FrameProfiler {
+    private static final int WINDOW = 512; // Samples kept per phase, about 8 seconds of ticks at 64 Hz
+    private static final int OVERLAY_REFRESH_FRAMES = 16; // Percentiles are re-sorted this often for the overlay
+
+    public enum Phase {
+        UPDATE("update"),
+        MOVEMENT("update.movement"),
+        AI("update.ai"),
+        PROJECTILES("update.projectiles"),
+        COLLISIONS("update.collisions"),
+        RESPAWN("update.respawn"),
+        EFFECTS("update.effects"),
+        RENDER("render"),
+        RENDER_BACKGROUND("render.background"),
+        RENDER_ACTORS("render.actors"),
+        RENDER_PROJECTILES("render.projectiles"),
+        RENDER_EFFECTS("render.effects"),
+        RENDER_HUD("render.hud");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() { return label; }
+    }
+
+    // Rolling window of durations in nanoseconds, one ring per phase
+    private final long[][] samples = new long[Phase.values().length][WINDOW];
+    private final int[] next = new int[Phase.values().length];
+    private final long[] recorded = new long[Phase.values().length];
+    private final long[] scratch = new long[WINDOW];
+
+    private volatile boolean overlayVisible;
+    private String[] overlayLines = new String[0];
+    private int framesSinceRefresh = OVERLAY_REFRESH_FRAMES;
+
+    public long start() {
+        return System.nanoTime();
+    }
+
+    // Records the time since start and returns the current time, so consecutive phases can chain
+    public synchronized long end(Phase phase, long start) {
+        long now = System.nanoTime();
+        int p = phase.ordinal();
+        samples[p][next[p]] = now - start;
+        next[p] = (next[p] + 1) % WINDOW;
+        recorded[p]++;
+        return now;
+    }
+
+    public synchronized Summary summarize(Phase phase) {
+        int p = phase.ordinal();
+        int count = (int) Math.min(recorded[p], WINDOW);
+        if (count == 0) return new Summary(phase, 0, 0, 0, 0, 0);
+
+        System.arraycopy(samples[p], 0, scratch, 0, count);
+        Arrays.sort(scratch, 0, count);
+        return new Summary(phase, recorded[p],
+                           percentile(count, 0.50), percentile(count, 0.95), percentile(count, 0.99),
+                           scratch[count - 1]);
+    }
+
+    // Nearest-rank percentile over the sorted scratch buffer
+    private long percentile(int count, double fraction) {
+        int rank = (int) Math.ceil(fraction * count);
+        return scratch[Math.max(0, rank - 1)];
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(next, 0);
+        Arrays.fill(recorded, 0);
+        framesSinceRefresh = OVERLAY_REFRESH_FRAMES;
+    }
+
+    public static final class Summary {
+        private final Phase phase;
+        private final long samples;
+        private final long p50, p95, p99, max;
+
+        Summary(Phase phase, long samples, long p50, long p95, long p99, long max) {
+            this.phase = phase;
+            this.samples = samples;
+            this.p50 = p50;
+            this.p95 = p95;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        public Phase getPhase() { return phase; }
+        public long getSamples() { return samples; }
+        public long getP50Nanos() { return p50; }
+        public long getP95Nanos() { return p95; }
+        public long getP99Nanos() { return p99; }
+        public long getMaxNanos() { return max; }
+    }
+
+    public String toCsv() {
+        StringBuilder out = new StringBuilder("phase,samples,p50_us,p95_us,p99_us,max_us\n");
+        for (Phase phase : Phase.values()) {
+            Summary s = summarize(phase);
+            out.append(String.format(Locale.ROOT, "%s,%d,%.1f,%.1f,%.1f,%.1f%n", phase.getLabel(), s.samples,
+                                     s.p50 / 1000.0, s.p95 / 1000.0, s.p99 / 1000.0, s.max / 1000.0));
+        }
+        return out.toString();
+    }
+
+    public String toJson() {
+        StringBuilder out = new StringBuilder("{\n  \"window\": ").append(WINDOW).append(",\n  \"phases\": [\n");
+        Phase[] phases = Phase.values();
+        for (int i = 0; i < phases.length; i++) {
+            Summary s = summarize(phases[i]);
+            out.append(String.format(Locale.ROOT,
+                    "    {\"phase\": \"%s\", \"samples\": %d, \"p50_us\": %.1f, \"p95_us\": %.1f, \"p99_us\": %.1f, \"max_us\": %.1f}",
+                    phases[i].getLabel(), s.samples, s.p50 / 1000.0, s.p95 / 1000.0, s.p99 / 1000.0, s.max / 1000.0));
+            out.append(i + 1 < phases.length ? ",\n" : "\n");
+        }
+        return out.append("  ]\n}\n").toString();
+    }
+
+    public void exportCsv(Path file) throws IOException {
+        Files.write(file, toCsv().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public void exportJson(Path file) throws IOException {
+        Files.write(file, toJson().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean isOverlayVisible() { return overlayVisible; }
+    public void setOverlayVisible(boolean visible) { this.overlayVisible = visible; }
+    public void toggleOverlay() { overlayVisible = !overlayVisible; }
+
+    public void renderOverlay(Graphics2D g2d, int x, int y) {
+        if (!overlayVisible) return;
+
+        // Sorting every phase each frame would show up in the very numbers being displayed
+        if (++framesSinceRefresh >= OVERLAY_REFRESH_FRAMES) {
+            framesSinceRefresh = 0;
+            Phase[] phases = Phase.values();
+            String[] lines = new String[phases.length + 1];
+            lines[0] = String.format(Locale.ROOT, "%-20s %7s %7s %7s", "phase (us)", "p50", "p95", "p99");
+            for (int i = 0; i < phases.length; i++) {
+                Summary s = summarize(phases[i]);
+                lines[i + 1] = String.format(Locale.ROOT, "%-20s %7.0f %7.0f %7.0f", phases[i].getLabel(),
+                                             s.p50 / 1000.0, s.p95 / 1000.0, s.p99 / 1000.0);
+            }
+            overlayLines = lines;
+        }
+
+        int lineHeight = 13;
+        g2d.setColor(RenderResources.BLACK_150);
+        g2d.fillRect(x, y, 300, overlayLines.length * lineHeight + 10);
+        g2d.setFont(RenderResources.MONO_11);
+        g2d.setColor(RenderResources.GRAY_220);
+        for (int i = 0; i < overlayLines.length; i++) {
+            g2d.drawString(overlayLines[i], x + 6, y + 16 + i * lineHeight);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.yen.playCS;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+// Thin client: sends the local player's input every tick and mirrors the server's snapshots
+// into a render-only engine. Only the local player's own movement is predicted here.
+public class GameClient {
+    static final int INPUTS_PER_PACKET = 3; // Each input is resent this many times to ride out packet loss
+    private static final int INPUT_HISTORY = 128; // Inputs kept for replay, about two seconds at 64 Hz
+    private static final int CONNECT_RETRY_TICKS = 32;
+
+    private final GameEngine engine;
+    private final DatagramChannel channel;
+    private final SnapshotHistory snapshots = new SnapshotHistory(GameServer.HISTORY);
+    private final Snapshot decoded = new Snapshot();
+    private final ClientPrediction prediction;
+    private boolean predicting = true;
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocate(GameServer.MAX_PACKET);
+    private final ByteBuffer sendBuffer = ByteBuffer.allocate(512);
+    private ByteBuffer fragments = ByteBuffer.allocate(GameServer.MAX_PACKET); // Reassembles split snapshots
+    private int fragmentTick = -1;
+    private long missingFragments; // One bit per fragment of fragmentTick not yet received
+    private volatile int playerId = -1;
+    private int serverTickRate;
+    private int sequence;
+    private int latestTick = -1;
+    private int lastProcessedInput = -1; // Newest input sequence the server has applied
+    private long ticksSinceConnect = CONNECT_RETRY_TICKS;
+    private volatile long bytesReceived;
+
+    public GameClient(GameEngine engine, SocketAddress server) throws IOException {
+        this.engine = engine;
+        this.channel = DatagramChannel.open();
+        channel.connect(server);
+        channel.configureBlocking(false);
+        this.prediction = new ClientPrediction(INPUT_HISTORY, engine.getTickRate());
+    }
+
+    public void tick() {
+        receive();
+
+        if (playerId == -1) {
+            // Keep knocking until the server answers
+            if (++ticksSinceConnect >= CONNECT_RETRY_TICKS) {
+                ticksSinceConnect = 0;
+                sendBuffer.clear();
+                sendBuffer.put(GameServer.CONNECT);
+                send();
+            }
+            return;
+        }
+
+        PlayerInput input = prediction.slot(sequence);
+        engine.sampleInput(input, sequence);
+        input.setViewTick(latestTick); // Lets the server judge shots against what was on screen
+        if (predicting) {
+            prediction.predict(engine, sequence);
+        }
+        sendInputs();
+        sequence++;
+    }
+
+    private void sendInputs() {
+        sendBuffer.clear();
+        sendBuffer.put(GameServer.INPUT);
+        WireFormat.writeVarInt(sendBuffer, latestTick + 1);
+        int count = Math.min(INPUTS_PER_PACKET, sequence + 1);
+        sendBuffer.put((byte) count);
+        for (int s = sequence - count + 1; s <= sequence; s++) {
+            PlayerInput input = prediction.slot(s);
+            WireFormat.writeVarInt(sendBuffer, input.getSequence());
+            sendBuffer.put((byte) input.getButtons());
+            sendBuffer.putShort((short) input.getAim());
+            WireFormat.writeVarInt(sendBuffer, input.getViewTick() + 1);
+        }
+        send();
+    }
+
+    private void receive() {
+        int newest = latestTick;
+        while (true) {
+            receiveBuffer.clear();
+            try {
+                if (channel.receive(receiveBuffer) == null) break;
+            } catch (IOException e) {
+                break; // e.g. the server's port is closed, keep retrying quietly
+            }
+            receiveBuffer.flip();
+            bytesReceived += receiveBuffer.remaining();
+            try {
+                handlePacket(receiveBuffer);
+            } catch (BufferUnderflowException | IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                // Truncated or malformed datagram, ignore it like a lost one
+            }
+        }
+
+        // Only the newest state is shown, older ones that arrived in the same tick are just baselines.
+        // Applied and reconciled under one lock, so a frame never shows the server's older position.
+        if (latestTick != newest) {
+            synchronized (engine) {
+                engine.applySnapshot(snapshots.get(latestTick), playerId);
+                if (predicting) {
+                    prediction.reconcile(engine, lastProcessedInput, sequence);
+                }
+            }
+        }
+    }
+
+    private void handlePacket(ByteBuffer packet) {
+        byte type = packet.get();
+        if (type == GameServer.WELCOME) {
+            if (playerId == -1) {
+                playerId = WireFormat.readVarInt(packet);
+                serverTickRate = WireFormat.readVarInt(packet);
+                prediction.setTickRate(serverTickRate);
+                FireMode fireMode = FireMode.values()[WireFormat.readVarInt(packet)];
+                synchronized (engine) {
+                    engine.getPlayer().setFireMode(fireMode); // Only shown on the HUD, shots are the server's
+                }
+            }
+        } else if (type == GameServer.SNAPSHOT && playerId != -1) {
+            int baselineTick = WireFormat.readVarInt(packet) - 1;
+            int processed = WireFormat.readVarInt(packet) - 1;
+            readSnapshot(packet, baselineTick, processed);
+        } else if (type == GameServer.SNAPSHOT_FRAGMENT && playerId != -1) {
+            int baselineTick = WireFormat.readVarInt(packet) - 1;
+            int processed = WireFormat.readVarInt(packet) - 1;
+            int tick = WireFormat.readVarInt(packet);
+            int total = WireFormat.readVarInt(packet);
+            int count = WireFormat.readVarInt(packet);
+            int index = WireFormat.readVarInt(packet);
+            if (count < 1 || count > GameServer.MAX_FRAGMENTS || index >= count || total > count * GameServer.MAX_PACKET) {
+                throw new IllegalArgumentException("Malformed fragment " + index + " of " + count);
+            }
+            if (tick <= latestTick || tick < fragmentTick) return; // Superseded already
+            int chunk = (total + count - 1) / count;
+            int from = index * chunk;
+            if (packet.remaining() != Math.min(total, from + chunk) - from) {
+                throw new IllegalArgumentException("Fragment length mismatch");
+            }
+            if (tick != fragmentTick) {
+                // A newer snapshot started, the rest of the older one is abandoned
+                fragmentTick = tick;
+                missingFragments = count == Long.SIZE ? -1L : (1L << count) - 1;
+                if (fragments.capacity() < total) fragments = ByteBuffer.allocate(total);
+            }
+            packet.get(fragments.array(), from, packet.remaining());
+            missingFragments &= ~(1L << index);
+            if (missingFragments == 0) {
+                fragments.clear().limit(total);
+                readSnapshot(fragments, baselineTick, processed);
+            }
+        }
+    }
+
+    private void readSnapshot(ByteBuffer payload, int baselineTick, int processed) {
+        Snapshot baseline = null;
+        if (baselineTick >= 0) {
+            baseline = snapshots.get(baselineTick);
+            if (baseline == null) return; // Baseline already overwritten, wait for a newer delta
+        }
+        SnapshotCodec.decode(payload, baseline, decoded);
+        if (decoded.getTick() <= latestTick) return; // Reordered, a newer state is already here
+        snapshots.slotFor(decoded.getTick()).copyFrom(decoded);
+        latestTick = decoded.getTick();
+        lastProcessedInput = processed;
+    }
+
+    private void send() {
+        sendBuffer.flip();
+        try {
+            channel.write(sendBuffer);
+        } catch (IOException e) {
+            // Nobody listening yet, the next tick sends again
+        }
+    }
+
+    public void disconnect() {
+        if (playerId == -1) return;
+        sendBuffer.clear();
+        sendBuffer.put(GameServer.DISCONNECT);
+        send();
+    }
+
+    public void close() throws IOException {
+        disconnect();
+        channel.close();
+    }
+
+    public boolean isConnected() { return playerId != -1; }
+    public int getPlayerId() { return playerId; }
+    public int getServerTickRate() { return serverTickRate; }
+    public int getLatestTick() { return latestTick; }
+    public int getLastProcessedInput() { return lastProcessedInput; }
+    public long getBytesReceived() { return bytesReceived; }
+    public ClientPrediction getPrediction() { return prediction; }
+    public boolean isPredicting() { return predicting; }
+    public void setPredicting(boolean predicting) { this.predicting = predicting; }
+    public GameEngine getEngine() { return engine; }
+}
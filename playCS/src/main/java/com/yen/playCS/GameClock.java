@@ -0,0 +1,37 @@
+package com.yen.playCS;
+
+public class GameClock {
+    // Movement speeds are tuned per tick at this rate
+    public static final int REFERENCE_TICK_RATE = 64;
+
+    private final int tickRate;
+    private final double stepScale;
+    private long tick;
+
+    public GameClock(int tickRate) {
+        this.tickRate = tickRate;
+        this.stepScale = (double) REFERENCE_TICK_RATE / tickRate;
+        this.tick = 0;
+    }
+
+    public void advance() {
+        tick++;
+    }
+
+    // Simulation time, independent of wall clock and of how fast ticks are run
+    public long getTimeMillis() {
+        return tick * 1000L / tickRate;
+    }
+
+    // Whole ticks covering a duration, at least one
+    public int ticksFor(long millis) {
+        return (int) Math.max(1, (millis * tickRate + 999) / 1000);
+    }
+
+    public long getTick() { return tick; }
+    void setTick(long tick) { this.tick = tick; }
+    public int getTickRate() { return tickRate; }
+
+    // Multiplier that keeps per-tick speeds constant in simulation time
+    public double getStepScale() { return stepScale; }
+}
@@ -3,130 +3,426 @@ package com.yen.playCS;
 import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.Random;
 
 public class GameEngine {
     private final int width;
     private final int height;
+    private final int tickRate;
     
-    private Player player;
+    private Player player; // The player this engine's keyboard, camera and HUD belong to
+    private List<Player> players; // Every player in the match, the local one first
     private GameWorld gameWorld;
     private Set<Integer> pressedKeys;
-    private List<Projectile> projectiles;
+    private ProjectileSystem projectiles;
     private List<AIEnemy> aiEnemies;
+    private List<AIEnemy> mirroredEnemies; // Second buffer so applying a snapshot doesn't allocate a list
     private VisualEffects visualEffects;
-    private Random random;
+    private StaticLayerCache staticLayer;
+    private Camera camera;
+    private double mouseScreenX, mouseScreenY;
+    private boolean mouseSeen; // Aim only follows the mouse once it has moved over the view
+    private SpriteAtlas sprites;
+    private HudRenderer hud;
+    private final RenderFrame frame; // Guarded by itself, so only one thread draws at a time
+    private final FrameProfiler profiler = new FrameProfiler();
+    private ActorGrid actorGrid;
+    private int actorGridLayout; // Layout version the actor grid was sized for
+    private final HitscanResolver hitscanResolver = this::fireHitscan;
+    private int rewindTick = -1; // View tick of the remote shot being resolved, -1 when not rewinding
+    private ActorGrid rewoundGrid; // Bots where they were at rewoundGridTick, for lag-compensated shots
+    private int rewoundGridTick = -1;
+    private int rewoundGridLayout;
+    private long rewoundGridBuiltAt = -1;
+    private FireMode aiFireMode = FireMode.PROJECTILE;
+    private boolean parallelAI = true;
+    private GameClock clock;
+    private final long seed;
+    private GameRandom aiRandom; // Split once per bot
+    private GameRandom spawnRandom;
+    private int nextEntityId = 1;
+    private boolean replica; // Mirrors server snapshots instead of simulating
+    private boolean fireRequested; // Clicks fire on the next tick, as part of that tick's input
+    private ReplayRecorder recorder; // Receives each tick's inputs and any joins or spawns made from outside
+    private boolean scripted; // Every player's input is set from outside, e.g. by a replay, instead of the keyboard
     private long lastEnemySpawn;
     private static final long ENEMY_RESPAWN_DELAY = 5000; // 5 seconds
+    private static final double ACTOR_GRID_CELL_SIZE = 64;
+    private static final double ACTOR_CULL_RADIUS = 100; // Covers sprites, health bars and detection rings
+    private static final int PARALLEL_AI_THRESHOLD = 32; // Below this, forking costs more than it saves
+    private static final long MAX_LAG_COMPENSATION = 400; // Millis a shot may be rewound, so high pings can't shoot into the past
+    public static final int DEFAULT_TICK_RATE = 64; // Simulation ticks per second
     
     public GameEngine(int width, int height) {
+        this(width, height, DEFAULT_TICK_RATE);
+    }
+    
+    public GameEngine(int width, int height, int tickRate) {
+        this(width, height, tickRate, System.nanoTime());
+    }
+    
+    // Same seed and same inputs give the same match, tick for tick
+    public GameEngine(int width, int height, int tickRate, long seed) {
+        this(width, height, tickRate, seed, VisualEffects.DEFAULT_PARTICLE_BUDGET);
+    }
+    
+    // The particle budget is cosmetic, it caps live particles and never changes the match
+    public GameEngine(int width, int height, int tickRate, long seed, int particleBudget) {
+        if (tickRate <= 0) {
+            throw new IllegalArgumentException("Tick rate must be positive: " + tickRate);
+        }
+        if (particleBudget <= 0) {
+            throw new IllegalArgumentException("Particle budget must be positive: " + particleBudget);
+        }
         this.width = width;
         this.height = height;
+        this.tickRate = tickRate;
         this.pressedKeys = new HashSet<>();
-        this.projectiles = new ArrayList<>();
+        this.projectiles = new ProjectileSystem();
         this.aiEnemies = new ArrayList<>();
-        this.visualEffects = new VisualEffects();
-        this.random = new Random();
-        this.lastEnemySpawn = System.currentTimeMillis();
+        this.mirroredEnemies = new ArrayList<>();
+        this.players = new ArrayList<>();
+        this.seed = seed;
+        GameRandom root = new GameRandom(seed);
+        this.aiRandom = root.split();
+        this.spawnRandom = root.split();
+        this.visualEffects = new VisualEffects(particleBudget, root.split());
+        this.staticLayer = new StaticLayerCache(width, height);
+        this.camera = new Camera(width, height);
+        this.sprites = new SpriteAtlas();
+        this.hud = new HudRenderer(width, height);
+        this.frame = new RenderFrame(width, height, particleBudget); // Same pool size as the live effects
+        this.clock = new GameClock(tickRate);
+        this.lastEnemySpawn = clock.getTimeMillis();
         
         player = new Player(width / 2, height / 2);
+        player.setId(nextEntityId++);
+        players.add(player);
         gameWorld = new GameWorld(width, height);
+        actorGrid = new ActorGrid(gameWorld.getWidth(), gameWorld.getHeight(), ACTOR_GRID_CELL_SIZE);
+        actorGridLayout = gameWorld.getLayoutVersion();
+        camera.follow(player.getX(), player.getY(), gameWorld.getWidth(), gameWorld.getHeight());
         
         // Spawn initial AI enemies
         spawnInitialEnemies();
     }
     
     public void handleKeyPress(KeyEvent event) {
-        pressedKeys.add(event.getKeyCode());
+        pressKey(event.getKeyCode());
     }
     
     public void handleKeyRelease(KeyEvent event) {
-        pressedKeys.remove(event.getKeyCode());
+        releaseKey(event.getKeyCode());
     }
     
-    public void handleMouseMove(MouseEvent event) {
-        player.updateMousePosition(event.getX(), event.getY());
+    // Raw key codes, so headless runs can drive input without AWT events.
+    // Input and update are synchronized so simulation and EDT threads can share an engine; render only
+    // holds the lock while it copies the frame.
+    public synchronized void pressKey(int keyCode) {
+        pressedKeys.add(keyCode);
     }
     
-    public void handleMousePress(MouseEvent event) {
+    public synchronized void releaseKey(int keyCode) {
+        pressedKeys.remove(keyCode);
+    }
+    
+    public synchronized void handleMouseMove(MouseEvent event) {
+        mouseScreenX = event.getX();
+        mouseScreenY = event.getY();
+        mouseSeen = true;
+        aimAtMouse();
+    }
+    
+    // The mouse is tracked in screen space, so aim is refreshed whenever the camera or player moves
+    private void aimAtMouse() {
+        if (mouseSeen) {
+            player.updateMousePosition(camera.toWorldX(mouseScreenX), camera.toWorldY(mouseScreenY));
+        }
+    }
+    
+    public synchronized void handleMousePress(MouseEvent event) {
         if (event.getButton() == MouseEvent.BUTTON1) {
-            shoot();
+            fireRequested = true;
         }
     }
     
-    private void shoot() {
-        Projectile bullet = player.shoot();
-        if (bullet != null) {
-            projectiles.add(bullet);
+    private void shoot(Player shooter) {
+        if (shooter.shoot(projectiles, hitscanResolver)) {
             // Add muzzle flash effect
-            visualEffects.addMuzzleFlash(player.getX(), player.getY(), player.getAngle());
+            visualEffects.addMuzzleFlash(shooter.getX(), shooter.getY(), shooter.getAngle(), clock);
         }
     }
     
-    public void update() {
+    public synchronized void update() {
+        long start = profiler.start();
+        clock.advance();
+        storePreviousPositions();
         handleMovement();
+        long phase = profiler.end(FrameProfiler.Phase.MOVEMENT, start);
         updateAIEnemies();
+        phase = profiler.end(FrameProfiler.Phase.AI, phase);
         updateProjectiles();
+        phase = profiler.end(FrameProfiler.Phase.PROJECTILES, phase);
         checkCollisions();
+        projectiles.compact();
+        phase = profiler.end(FrameProfiler.Phase.COLLISIONS, phase);
         handleEnemyRespawn();
-        visualEffects.update();
+        phase = profiler.end(FrameProfiler.Phase.RESPAWN, phase);
+        visualEffects.update(clock);
+        recordHistory();
+        profiler.end(FrameProfiler.Phase.EFFECTS, phase);
+        profiler.end(FrameProfiler.Phase.UPDATE, start);
+    }
+    
+    private void storePreviousPositions() {
+        for (Player p : players) {
+            p.storePreviousPosition();
+        }
+        for (AIEnemy enemy : aiEnemies) {
+            enemy.storePreviousPosition();
+        }
+    }
+    
+    // End-of-tick positions, the same state the tick's snapshot shows
+    private void recordHistory() {
+        int tick = (int) clock.getTick();
+        for (Player p : players) {
+            p.getHistory().record(tick, p.getX(), p.getY());
+        }
+        for (AIEnemy enemy : aiEnemies) {
+            enemy.getHistory().record(tick, enemy.getX(), enemy.getY());
+        }
     }
     
     private void updateAIEnemies() {
+        gameWorld.updatePlayerFlowField(player.getX(), player.getY());
+        
+        // Think: nothing shared is mutated here, so results don't depend on thread scheduling
+        if (parallelAI && aiEnemies.size() >= PARALLEL_AI_THRESHOLD) {
+            aiEnemies.parallelStream().forEach(enemy -> enemy.think(nearestPlayer(enemy), gameWorld));
+        } else {
+            for (AIEnemy enemy : aiEnemies) {
+                enemy.think(nearestPlayer(enemy), gameWorld);
+            }
+        }
+        
+        // Apply: movement and shots in list order, on this thread
         for (AIEnemy enemy : aiEnemies) {
-            enemy.update(player, gameWorld);
+            enemy.apply(gameWorld, clock);
             
             // AI enemy shooting
-            Projectile enemyBullet = enemy.tryShoot();
-            if (enemyBullet != null) {
-                projectiles.add(enemyBullet);
+            if (enemy.tryShoot(clock, projectiles, hitscanResolver)) {
                 // Add muzzle flash for AI
-                visualEffects.addMuzzleFlash(enemy.getX(), enemy.getY(), 
-                                           Math.atan2(player.getY() - enemy.getY(), 
-                                                    player.getX() - enemy.getX()));
+                visualEffects.addMuzzleFlash(enemy.getX(), enemy.getY(), enemy.getAngle(), clock);
             }
         }
     }
     
+    // Bots go after whichever living player is closest, the local one if everyone is dead
+    private Player nearestPlayer(AIEnemy enemy) {
+        Player nearest = player;
+        double nearestDistance = Double.MAX_VALUE;
+        for (Player p : players) {
+            if (p.getHealth() <= 0) continue;
+            double dx = p.getX() - enemy.getX();
+            double dy = p.getY() - enemy.getY();
+            double distance = dx * dx + dy * dy;
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearest = p;
+            }
+        }
+        return nearest;
+    }
+    
     private void updateProjectiles() {
-        projectiles.removeIf(projectile -> {
-            projectile.update();
-            return projectile.isOutOfBounds(width, height) || 
-                   gameWorld.checkProjectileCollision(projectile.getX(), projectile.getY());
-        });
+        projectiles.update(clock);
     }
     
     private void checkCollisions() {
-        // Check projectile hits on AI enemies
-        for (int i = projectiles.size() - 1; i >= 0; i--) {
-            Projectile projectile = projectiles.get(i);
-            
-            // Check hits on AI enemies
+        // Broadphase for actors, rebuilt once per tick and resized with the map
+        if (actorGridLayout != gameWorld.getLayoutVersion()) {
+            actorGrid = new ActorGrid(gameWorld.getWidth(), gameWorld.getHeight(), ACTOR_GRID_CELL_SIZE);
+            actorGridLayout = gameWorld.getLayoutVersion();
+        }
+        actorGrid.clear();
+        for (int e = 0; e < aiEnemies.size(); e++) {
+            AIEnemy enemy = aiEnemies.get(e);
+            if (enemy.isAlive()) {
+                actorGrid.insert(e, enemy.getX(), enemy.getY());
+            }
+        }
+        actorGrid.commit();
+        
+        // Dead slots are only marked here, compact() removes them once per tick
+        for (int i = 0; i < projectiles.size(); i++) {
+            if (!projectiles.isAlive(i)) continue;
+            sweepProjectile(i);
+        }
+    }
+    
+    // Resolves a shot instantly: nearest wall along the ray, then the nearest actor in front of it
+    private void fireHitscan(double startX, double startY, double angle, int ownerId) {
+        double dirX = Math.cos(angle);
+        double dirY = Math.sin(angle);
+        double hitscanRange = Math.sqrt((double) gameWorld.getWidth() * gameWorld.getWidth() +
+                                        (double) gameWorld.getHeight() * gameWorld.getHeight());
+        double wallDistance = gameWorld.getSpatialGrid().raycastProjectile(startX, startY, dirX, dirY, hitscanRange);
+        double range = wallDistance == Sweep.NO_HIT ? hitscanRange : wallDistance;
+        double endX = startX + dirX * range;
+        double endY = startY + dirY * range;
+        
+        double hitT = 2; // Past the end of the ray
+        AIEnemy hitEnemy = null;
+        double enemyRadius = AIEnemy.ENEMY_SIZE / 2;
+        if (rewindTick >= 0 && ownerId == ProjectileSystem.OWNER_PLAYER) {
+            // Lag compensation: test bots where the remote shooter saw them, through the same broadphase
+            ActorGrid grid = rewoundGrid(rewindTick);
+            int candidates = grid.query(Math.min(startX, endX) - enemyRadius, Math.min(startY, endY) - enemyRadius,
+                                        Math.max(startX, endX) + enemyRadius, Math.max(startY, endY) + enemyRadius);
+            for (int c = 0; c < candidates; c++) {
+                AIEnemy enemy = aiEnemies.get(grid.getResult(c));
+                PositionHistory history = enemy.getHistory();
+                double t = Sweep.segmentCircle(startX, startY, endX, endY,
+                                               history.getX(rewindTick), history.getY(rewindTick), enemyRadius);
+                if (t != Sweep.NO_HIT && t < hitT) {
+                    hitT = t;
+                    hitEnemy = enemy;
+                }
+            }
+        } else {
             for (AIEnemy enemy : aiEnemies) {
-                if (enemy.isAlive() && enemy.contains(projectile.getX(), projectile.getY())) {
-                    enemy.takeDamage(34); // Damage per hit
-                    visualEffects.addBloodEffect(projectile.getX(), projectile.getY());
-                    visualEffects.addBulletImpact(projectile.getX(), projectile.getY());
-                    projectiles.remove(i);
-                    break;
+                if (!enemy.isAlive()) continue;
+                double t = Sweep.segmentCircle(startX, startY, endX, endY, enemy.getX(), enemy.getY(), enemyRadius);
+                if (t != Sweep.NO_HIT && t < hitT) {
+                    hitT = t;
+                    hitEnemy = enemy;
                 }
             }
-            
-            // Check hits on player (from AI projectiles)
-            if (i < projectiles.size() && player.contains(projectile.getX(), projectile.getY())) {
-                player.takeDamage(25);
-                visualEffects.addBloodEffect(projectile.getX(), projectile.getY());
-                projectiles.remove(i);
+        }
+        
+        Player hitPlayer = null;
+        if (ownerId != ProjectileSystem.OWNER_PLAYER) {
+            for (Player p : players) {
+                if (p.getHealth() <= 0) continue;
+                double t = Sweep.segmentCircle(startX, startY, endX, endY, p.getX(), p.getY(), p.getSize() / 2);
+                if (t != Sweep.NO_HIT && t < hitT) {
+                    hitT = t;
+                    hitEnemy = null;
+                    hitPlayer = p;
+                }
+            }
+        }
+        
+        if (hitT > 1) hitT = 1;
+        double hitX = startX + (endX - startX) * hitT;
+        double hitY = startY + (endY - startY) * hitT;
+        visualEffects.addTracer(startX, startY, hitX, hitY, clock);
+        if (hitPlayer != null) {
+            hitPlayer.takeDamage(25);
+            visualEffects.addBloodEffect(hitX, hitY, clock);
+        } else if (hitEnemy != null) {
+            hitEnemy.takeDamage(34);
+            visualEffects.addBloodEffect(hitX, hitY, clock);
+            visualEffects.addBulletImpact(hitX, hitY, clock);
+        }
+    }
+    
+    // Built at most once per view tick per server tick, however many remote players fire
+    private ActorGrid rewoundGrid(int tick) {
+        if (rewoundGrid == null || rewoundGridLayout != gameWorld.getLayoutVersion()) {
+            rewoundGrid = new ActorGrid(gameWorld.getWidth(), gameWorld.getHeight(), ACTOR_GRID_CELL_SIZE);
+            rewoundGridLayout = gameWorld.getLayoutVersion();
+            rewoundGridTick = -1;
+        }
+        if (rewoundGridTick != tick || rewoundGridBuiltAt != clock.getTick()) {
+            rewoundGrid.clear();
+            for (int e = 0; e < aiEnemies.size(); e++) {
+                AIEnemy enemy = aiEnemies.get(e);
+                PositionHistory history = enemy.getHistory();
+                // Bots that died since can't be hit again, ones that weren't there yet can't be hit at all
+                if (enemy.isAlive() && history.has(tick)) {
+                    rewoundGrid.insert(e, history.getX(tick), history.getY(tick));
+                }
+            }
+            rewoundGrid.commit();
+            rewoundGridTick = tick;
+            rewoundGridBuiltAt = clock.getTick();
+        }
+        return rewoundGrid;
+    }
+    
+    // The tick a remote shot is judged at: what the client saw, within the rewind limit and recorded history
+    private int lagCompensatedTick(int viewTick) {
+        if (viewTick < 0) return -1;
+        long latest = clock.getTick() - 1; // This tick's positions are recorded once it ends
+        long window = Math.min(PositionHistory.CAPACITY - 1, clock.ticksFor(MAX_LAG_COMPENSATION));
+        return (int) Math.max(latest - window, Math.min(latest, viewTick));
+    }
+    
+    // Tests the whole path travelled this tick so fast bullets cannot tunnel
+    private void sweepProjectile(int i) {
+        double x0 = projectiles.getPrevX(i);
+        double y0 = projectiles.getPrevY(i);
+        double x1 = projectiles.getX(i);
+        double y1 = projectiles.getY(i);
+        
+        double hitT = gameWorld.getSpatialGrid().sweepProjectile(x0, y0, x1, y1);
+        boolean hitsWall = hitT != Sweep.NO_HIT;
+        if (!hitsWall) hitT = 2; // Past the end of the segment
+        
+        // Check hits on AI enemies
+        AIEnemy hitEnemy = null;
+        double reach = AIEnemy.ENEMY_SIZE / 2;
+        int candidates = actorGrid.query(Math.min(x0, x1) - reach, Math.min(y0, y1) - reach,
+                                         Math.max(x0, x1) + reach, Math.max(y0, y1) + reach);
+        for (int c = 0; c < candidates; c++) {
+            AIEnemy enemy = aiEnemies.get(actorGrid.getResult(c));
+            double t = Sweep.segmentCircle(x0, y0, x1, y1, enemy.getX(), enemy.getY(), reach);
+            if (t != Sweep.NO_HIT && t < hitT) {
+                hitT = t;
+                hitEnemy = enemy;
             }
         }
+        
+        // Check hits on players (from AI projectiles)
+        Player hitPlayer = null;
+        if (projectiles.getOwner(i) != ProjectileSystem.OWNER_PLAYER) {
+            for (Player p : players) {
+                if (p.getHealth() <= 0) continue;
+                double t = Sweep.segmentCircle(x0, y0, x1, y1, p.getX(), p.getY(), p.getSize() / 2);
+                if (t != Sweep.NO_HIT && t < hitT) {
+                    hitT = t;
+                    hitEnemy = null;
+                    hitPlayer = p;
+                }
+            }
+        }
+        
+        double hitX = x0 + (x1 - x0) * hitT;
+        double hitY = y0 + (y1 - y0) * hitT;
+        if (hitPlayer != null) {
+            hitPlayer.takeDamage(25);
+            visualEffects.addBloodEffect(hitX, hitY, clock);
+            projectiles.kill(i);
+        } else if (hitEnemy != null) {
+            hitEnemy.takeDamage(34); // Damage per hit
+            visualEffects.addBloodEffect(hitX, hitY, clock);
+            visualEffects.addBulletImpact(hitX, hitY, clock);
+            projectiles.kill(i);
+        } else if (hitsWall || x1 < 0 || x1 > gameWorld.getWidth() || y1 < 0 || y1 > gameWorld.getHeight()) {
+            projectiles.kill(i);
+        }
     }
     
     private void handleEnemyRespawn() {
-        long currentTime = System.currentTimeMillis();
+        long currentTime = clock.getTimeMillis();
         
         // Remove dead enemies and potentially respawn them
         aiEnemies.removeIf(enemy -> {
@@ -152,80 +448,435 @@ public class GameEngine {
     
     private void spawnRandomEnemy() {
         AIEnemy.AIBehavior[] behaviors = AIEnemy.AIBehavior.values();
-        AIEnemy.AIBehavior randomBehavior = behaviors[random.nextInt(behaviors.length)];
+        AIEnemy.AIBehavior randomBehavior = behaviors[spawnRandom.nextInt(behaviors.length)];
         spawnEnemyAtRandomSpawn(randomBehavior);
     }
     
     private void spawnEnemyAtRandomSpawn(AIEnemy.AIBehavior behavior) {
-        SpawnPoint spawn = gameWorld.getRandomSpawnPoint(SpawnPoint.Team.TERRORIST);
+        SpawnPoint spawn = gameWorld.getRandomSpawnPoint(SpawnPoint.Team.TERRORIST, spawnRandom);
         if (spawn != null) {
-            AIEnemy enemy = new AIEnemy(spawn.getCenterX(), spawn.getCenterY(), 
-                                       SpawnPoint.Team.TERRORIST, behavior);
-            aiEnemies.add(enemy);
+            spawnEnemy(spawn.getCenterX(), spawn.getCenterY(), behavior);
+        }
+    }
+    
+    // Places an extra bot directly, used by stress and training scenarios
+    public synchronized AIEnemy addEnemy(double x, double y, AIEnemy.AIBehavior behavior) {
+        if (recorder != null) {
+            recorder.recordAddEnemy(x, y, behavior);
+        }
+        return spawnEnemy(x, y, behavior);
+    }
+    
+    private AIEnemy spawnEnemy(double x, double y, AIEnemy.AIBehavior behavior) {
+        AIEnemy enemy = new AIEnemy(x, y, SpawnPoint.Team.TERRORIST, behavior, aiRandom.split());
+        enemy.setId(nextEntityId++);
+        enemy.setFireMode(aiFireMode);
+        aiEnemies.add(enemy);
+        return enemy;
+    }
+    
+    // Switches the match to another map. The new layout can be smaller or have walls where actors
+    // stand, so everyone is moved to their team's spawns, in list order so replays place them alike.
+    public synchronized void switchMap(String mapName) {
+        boolean changed = !mapName.equalsIgnoreCase(gameWorld.getMapName());
+        gameWorld.switchMap(mapName);
+        if (!changed) return;
+        
+        List<SpawnPoint> ctSpawns = spawnPoints(SpawnPoint.Team.COUNTER_TERRORIST);
+        for (int i = 0; i < players.size(); i++) {
+            Player p = players.get(i);
+            if (ctSpawns.isEmpty()) {
+                p.relocate(gameWorld.getWidth() / 2, gameWorld.getHeight() / 2);
+            } else {
+                SpawnPoint spawn = ctSpawns.get(i % ctSpawns.size());
+                p.relocate(spawn.getCenterX(), spawn.getCenterY());
+            }
+        }
+        List<SpawnPoint> tSpawns = spawnPoints(SpawnPoint.Team.TERRORIST);
+        for (int i = 0; i < aiEnemies.size(); i++) {
+            AIEnemy enemy = aiEnemies.get(i);
+            if (tSpawns.isEmpty()) {
+                enemy.relocate(gameWorld.getWidth() / 2, gameWorld.getHeight() / 2);
+            } else {
+                SpawnPoint spawn = tSpawns.get(i % tSpawns.size());
+                enemy.relocate(spawn.getCenterX(), spawn.getCenterY());
+            }
+        }
+        camera.follow(player.getX(), player.getY(), gameWorld.getWidth(), gameWorld.getHeight());
+    }
+    
+    private List<SpawnPoint> spawnPoints(SpawnPoint.Team team) {
+        List<SpawnPoint> matching = new ArrayList<>();
+        for (SpawnPoint spawn : gameWorld.getSpawnPoints()) {
+            if (spawn.getTeam() == team && spawn.isActive()) matching.add(spawn);
+        }
+        return matching;
+    }
+    
+    // Joins another player, e.g. a remote client, at a counter-terrorist spawn
+    public synchronized Player addPlayer() {
+        SpawnPoint spawn = gameWorld.getRandomSpawnPoint(SpawnPoint.Team.COUNTER_TERRORIST, spawnRandom);
+        Player joined = spawn != null ? new Player(spawn.getCenterX(), spawn.getCenterY())
+                                      : new Player(width / 2, height / 2);
+        joined.setId(nextEntityId++);
+        players.add(joined);
+        if (recorder != null) {
+            recorder.recordJoin(joined.getId());
+        }
+        return joined;
+    }
+    
+    public synchronized void removePlayer(Player leaving) {
+        if (leaving == player) {
+            throw new IllegalArgumentException("The local player cannot be removed");
+        }
+        if (players.remove(leaving) && recorder != null) {
+            recorder.recordLeave(leaving.getId());
         }
     }
     
     private void handleMovement() {
-        double deltaX = 0;
-        double deltaY = 0;
+        // Profiler overlay and export
+        if (pressedKeys.contains(KeyEvent.VK_F3)) {
+            profiler.toggleOverlay();
+            pressedKeys.remove(KeyEvent.VK_F3);
+        }
+        if (pressedKeys.contains(KeyEvent.VK_F4)) {
+            exportProfile();
+            pressedKeys.remove(KeyEvent.VK_F4);
+        }
+        
+        // Everything that changes the simulation goes through an input, so replaying inputs replays the match
+        if (!player.isNetworked() && !scripted) {
+            player.getInput().set((int) clock.getTick(), localButtons(true), player.getAngle());
+        }
+        if (recorder != null) {
+            recorder.recordTick(this);
+        }
+        
+        PlayerInput commands = player.getInput();
+        int mapSwitch = commands.getMapSwitch();
+        if (mapSwitch >= 0) {
+            switchMap(GameWorld.MAP_NAMES[mapSwitch]);
+        }
+        // Toggle between projectile and hitscan weapons
+        if (commands.isTogglingFireMode()) {
+            player.setFireMode(player.getFireMode() == FireMode.HITSCAN ? FireMode.PROJECTILE : FireMode.HITSCAN);
+        }
+        
+        // Players in join order, the local one first, each with the input queued for this tick
+        for (int i = 0; i < players.size(); i++) {
+            Player p = players.get(i);
+            if (p != player && !p.isNetworked()) continue; // Nobody drives it
+            if (p.isNetworked() && p.getHealth() <= 0) continue;
+            PlayerInput input = p.getInput();
+            p.setAngle(input.getAngle());
+            p.move(input.getMoveX(), input.getMoveY(), gameWorld, clock);
+            if (input.isFiring()) {
+                rewindTick = lagCompensatedTick(input.getViewTick());
+                shoot(p);
+                rewindTick = -1;
+            }
+        }
+    }
+    
+    // Buttons held or pressed since the last tick; match commands only when simulating locally
+    private int localButtons(boolean withCommands) {
+        int buttons = 0;
+        if (pressedKeys.contains(KeyEvent.VK_W)) buttons |= PlayerInput.UP;
+        if (pressedKeys.contains(KeyEvent.VK_S)) buttons |= PlayerInput.DOWN;
+        if (pressedKeys.contains(KeyEvent.VK_A)) buttons |= PlayerInput.LEFT;
+        if (pressedKeys.contains(KeyEvent.VK_D)) buttons |= PlayerInput.RIGHT;
+        if (fireRequested) buttons |= PlayerInput.FIRE;
+        fireRequested = false;
+        aimAtMouse();
+        if (!withCommands) return buttons;
         
-        if (pressedKeys.contains(KeyEvent.VK_W)) deltaY -= 1;
-        if (pressedKeys.contains(KeyEvent.VK_S)) deltaY += 1;
-        if (pressedKeys.contains(KeyEvent.VK_A)) deltaX -= 1;
-        if (pressedKeys.contains(KeyEvent.VK_D)) deltaX += 1;
+        // Map switching keys, consumed so holding one doesn't switch every tick
+        for (int map = 0; map < GameWorld.MAP_NAMES.length; map++) {
+            if (pressedKeys.remove(KeyEvent.VK_1 + map)) {
+                buttons |= PlayerInput.switchMap(map);
+            }
+        }
+        if (pressedKeys.remove(KeyEvent.VK_F)) {
+            buttons |= PlayerInput.TOGGLE_FIRE_MODE;
+        }
+        return buttons;
+    }
+    
+    // Fills the local player's input for this tick from the keyboard, mouse aim and any pending click
+    public synchronized void sampleInput(PlayerInput out, int sequence) {
+        out.set(sequence, localButtons(false), player.getAngle());
+    }
+    
+    public synchronized void captureSnapshot(Snapshot out) {
+        out.clear((int) clock.getTick(), gameWorld.getMapIndex());
         
-        // Map switching keys
-        if (pressedKeys.contains(KeyEvent.VK_1)) {
-            gameWorld.switchMap("dust2");
-            pressedKeys.remove(KeyEvent.VK_1); // Prevent spam
+        // Both lists are in ascending id order, merge them so the snapshot is too
+        int p = 0, e = 0;
+        while (p < players.size() || e < aiEnemies.size()) {
+            boolean takePlayer = e == aiEnemies.size() ||
+                                 (p < players.size() && players.get(p).getId() < aiEnemies.get(e).getId());
+            if (takePlayer) {
+                Player source = players.get(p++);
+                int index = out.addEntity(source.getId());
+                out.setField(index, Snapshot.KIND, Snapshot.KIND_PLAYER);
+                writeCommonFields(out, index, source.getX(), source.getY(), source.getAngle(), source.getHealth());
+                out.setField(index, Snapshot.EXTRA, source.getAmmo());
+            } else {
+                AIEnemy source = aiEnemies.get(e++);
+                int index = out.addEntity(source.getId());
+                out.setField(index, Snapshot.KIND, Snapshot.KIND_ENEMY);
+                writeCommonFields(out, index, source.getX(), source.getY(), source.getAngle(), source.getHealth());
+                out.setField(index, Snapshot.EXTRA, source.getBehavior().ordinal());
+            }
         }
-        if (pressedKeys.contains(KeyEvent.VK_2)) {
-            gameWorld.switchMap("office");
-            pressedKeys.remove(KeyEvent.VK_2);
+        
+        for (int i = 0; i < projectiles.size(); i++) {
+            if (!projectiles.isAlive(i)) continue;
+            out.addProjectile(projectiles.getId(i), Snapshot.quantize(projectiles.getX(i)),
+                              Snapshot.quantize(projectiles.getY(i)), projectiles.getOwner(i));
+        }
+    }
+    
+    private static void writeCommonFields(Snapshot out, int index, double x, double y, double angle, int health) {
+        out.setField(index, Snapshot.X, Snapshot.quantize(x));
+        out.setField(index, Snapshot.Y, Snapshot.quantize(y));
+        out.setField(index, Snapshot.ANGLE, PlayerInput.quantizeAngle(angle));
+        out.setField(index, Snapshot.HEALTH, health);
+    }
+    
+    // Makes this engine a mirror of the snapshot; localPlayerId is the player this engine's camera follows
+    public synchronized void applySnapshot(Snapshot snapshot, int localPlayerId) {
+        replica = true;
+        String mapName = GameWorld.MAP_NAMES[snapshot.getMapIndex()];
+        if (!mapName.equals(gameWorld.getMapName())) {
+            gameWorld.switchMap(mapName);
+        }
+        storePreviousPositions();
+        
+        // Players are few, so they are matched by a scan; enemies are merged in id order
+        int p = 0;
+        int e = 0;
+        mirroredEnemies.clear();
+        player.setId(localPlayerId);
+        for (int i = 0; i < snapshot.getEntityCount(); i++) {
+            int id = snapshot.getId(i);
+            double x = Snapshot.dequantize(snapshot.getField(i, Snapshot.X));
+            double y = Snapshot.dequantize(snapshot.getField(i, Snapshot.Y));
+            double angle = PlayerInput.dequantizeAngle(snapshot.getField(i, Snapshot.ANGLE));
+            int health = snapshot.getField(i, Snapshot.HEALTH);
+            
+            if (snapshot.getField(i, Snapshot.KIND) == Snapshot.KIND_PLAYER) {
+                Player target = findPlayer(id);
+                if (target == null) {
+                    target = new Player(x, y);
+                    target.setId(id);
+                    players.add(target);
+                }
+                target.setState(x, y, angle, health, snapshot.getField(i, Snapshot.EXTRA));
+                // Keep the local player first and the rest in snapshot order
+                if (target != player) {
+                    players.remove(target);
+                    players.add(Math.min(++p, players.size()), target);
+                }
+            } else {
+                while (e < aiEnemies.size() && aiEnemies.get(e).getId() < id) e++;
+                AIEnemy target;
+                if (e < aiEnemies.size() && aiEnemies.get(e).getId() == id) {
+                    target = aiEnemies.get(e++);
+                } else {
+                    AIEnemy.AIBehavior behavior = AIEnemy.AIBehavior.values()[snapshot.getField(i, Snapshot.EXTRA)];
+                    target = new AIEnemy(x, y, SpawnPoint.Team.TERRORIST, behavior, aiRandom.split());
+                    target.setId(id);
+                }
+                target.setState(x, y, angle, health);
+                mirroredEnemies.add(target);
+            }
         }
-        if (pressedKeys.contains(KeyEvent.VK_3)) {
-            gameWorld.switchMap("mirage");
-            pressedKeys.remove(KeyEvent.VK_3);
+        
+        // Players the server no longer sends have left
+        while (players.size() > p + 1) {
+            players.remove(players.size() - 1);
         }
+        List<AIEnemy> previous = aiEnemies;
+        aiEnemies = mirroredEnemies;
+        mirroredEnemies = previous;
         
-        player.move(deltaX, deltaY, gameWorld);
+        projectiles.clear();
+        for (int i = 0; i < snapshot.getProjectileCount(); i++) {
+            projectiles.spawn(Snapshot.dequantize(snapshot.getProjectileField(i, 0)),
+                              Snapshot.dequantize(snapshot.getProjectileField(i, 1)), 0,
+                              snapshot.getProjectileField(i, 2));
+        }
+    }
+    
+    public synchronized Player findPlayer(int id) {
+        for (Player p : players) {
+            if (p.getId() == id) return p;
+        }
+        return null;
+    }
+    
+    private void exportProfile() {
+        try {
+            profiler.exportCsv(Paths.get("profile.csv"));
+            profiler.exportJson(Paths.get("profile.json"));
+        } catch (IOException e) {
+            System.err.println("Could not export profile: " + e.getMessage());
+        }
     }
     
     public void render(Graphics2D g2d) {
-        // Draw modern game background
-        ModernUI.drawGameBackground(g2d, width, height, gameWorld.getMapName());
+        render(g2d, 1.0);
+    }
+    
+    // alpha in [0, 1] is how far the frame lies between the previous and the current tick.
+    // The engine lock is only held to copy the frame; drawing runs alongside the next tick.
+    public void render(Graphics2D g2d, double alpha) {
+        synchronized (frame) {
+            long start = profiler.start();
+            synchronized (this) {
+                // Follow where the player is drawn, not where the last tick left it
+                camera.follow(player.getRenderX(alpha), player.getRenderY(alpha), gameWorld.getWidth(), gameWorld.getHeight());
+                frame.capture(gameWorld, camera, players, aiEnemies, projectiles, visualEffects);
+            }
+            drawFrame(g2d, alpha, start);
+        }
+    }
+    
+    private void drawFrame(Graphics2D g2d, double alpha, long start) {
+        Camera view = frame.camera;
+        
+        // Background and static map elements, pre-rendered in tiles and only for the visible area
+        staticLayer.render(g2d, frame.world, view);
+        long phase = profiler.end(FrameProfiler.Phase.RENDER_BACKGROUND, start);
         
-        // Render game world elements
-        gameWorld.render(g2d);
+        // Everything in the world is drawn in world coordinates, shifted by the camera
+        g2d.translate(-view.getX(), -view.getY());
         
         // Render AI enemies
-        for (AIEnemy enemy : aiEnemies) {
-            enemy.render(g2d);
+        for (int i = 0; i < frame.enemyCount; i++) {
+            AIEnemy enemy = frame.enemies.get(i);
+            if (view.isVisible(enemy.getX(), enemy.getY(), ACTOR_CULL_RADIUS)) {
+                enemy.render(g2d, alpha, sprites);
+            }
         }
         
-        // Render player
-        player.render(g2d);
+        // Render players, the local one on top
+        for (int i = frame.playerCount - 1; i >= 0; i--) {
+            Player p = frame.players.get(i);
+            if (i == 0 || view.isVisible(p.getX(), p.getY(), ACTOR_CULL_RADIUS)) {
+                p.render(g2d, alpha, sprites);
+            }
+        }
+        phase = profiler.end(FrameProfiler.Phase.RENDER_ACTORS, phase);
         
         // Render projectiles
-        for (Projectile projectile : projectiles) {
-            projectile.render(g2d);
-        }
+        frame.projectiles.render(g2d, alpha, view);
+        phase = profiler.end(FrameProfiler.Phase.RENDER_PROJECTILES, phase);
         
         // Render visual effects
-        visualEffects.render(g2d);
+        frame.effects.render(g2d);
+        phase = profiler.end(FrameProfiler.Phase.RENDER_EFFECTS, phase);
+        
+        g2d.translate(view.getX(), view.getY());
         
-        // Render modern UI
-        renderModernUI(g2d);
+        // Panels are cached and only repainted when what they show changes
+        hud.render(g2d, frame.getLocalPlayer(), frame.aliveEnemies, frame.mapName);
+        profiler.end(FrameProfiler.Phase.RENDER_HUD, phase);
+        profiler.end(FrameProfiler.Phase.RENDER, start);
+        
+        // Drawn last and outside the measured phases
+        profiler.renderOverlay(g2d, width - 310, 80);
     }
     
-    private void renderModernUI(Graphics2D g2d) {
-        // Count alive enemies
-        int aliveEnemies = 0;
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getTickRate() { return tickRate; }
+    public long getSeed() { return seed; }
+    public GameClock getClock() { return clock; }
+    public Player getPlayer() { return player; }
+    public List<Player> getPlayers() { return players; }
+    public boolean isReplica() { return replica; }
+    public Camera getCamera() { return camera; }
+    public HudRenderer getHud() { return hud; }
+    public FrameProfiler getProfiler() { return profiler; }
+    public GameWorld getGameWorld() { return gameWorld; }
+    public List<AIEnemy> getAIEnemies() { return aiEnemies; }
+    public VisualEffects getVisualEffects() { return visualEffects; }
+    public ProjectileSystem getProjectiles() { return projectiles; }
+    
+    public boolean isParallelAI() { return parallelAI; }
+    public void setParallelAI(boolean parallelAI) { this.parallelAI = parallelAI; }
+    
+    public FireMode getAIFireMode() { return aiFireMode; }
+    
+    public synchronized void setAIFireMode(FireMode fireMode) {
+        if (recorder != null) {
+            recorder.recordAIFireMode(fireMode);
+        }
+        this.aiFireMode = fireMode;
         for (AIEnemy enemy : aiEnemies) {
-            if (enemy.isAlive()) aliveEnemies++;
+            enemy.setFireMode(fireMode);
+        }
+    }
+    
+    synchronized void setRecorder(ReplayRecorder recorder) { this.recorder = recorder; }
+    synchronized void setScripted(boolean scripted) { this.scripted = scripted; }
+    
+    // The whole simulation state, enough to resume the match from this tick. Rendering caches,
+    // effects and keyboard state are left out; lookups like flow fields rebuild themselves.
+    synchronized void writeState(ByteBuffer out) {
+        out.putLong(clock.getTick()).putLong(lastEnemySpawn).putInt(nextEntityId);
+        out.putInt(gameWorld.getMapIndex()).putInt(aiFireMode.ordinal());
+        out.putLong(aiRandom.getState()).putLong(spawnRandom.getState());
+        out.putInt(players.size());
+        for (Player p : players) {
+            p.writeState(out);
+        }
+        out.putInt(aiEnemies.size());
+        for (AIEnemy enemy : aiEnemies) {
+            out.putInt(enemy.getBehavior().ordinal());
+            enemy.writeState(out, gameWorld);
+        }
+        projectiles.writeState(out);
+    }
+    
+    synchronized void readState(ByteBuffer in) {
+        clock.setTick(in.getLong());
+        lastEnemySpawn = in.getLong();
+        nextEntityId = in.getInt();
+        String mapName = GameWorld.MAP_NAMES[in.getInt()];
+        if (!mapName.equalsIgnoreCase(gameWorld.getMapName())) {
+            gameWorld.switchMap(mapName);
+        }
+        aiFireMode = FireMode.values()[in.getInt()];
+        aiRandom.setState(in.getLong());
+        spawnRandom.setState(in.getLong());
+        
+        // The local player object is kept, so the camera and anyone holding it stay attached
+        int playerCount = in.getInt();
+        players.clear();
+        for (int i = 0; i < playerCount; i++) {
+            Player p = i == 0 ? player : new Player(0, 0);
+            p.readState(in);
+            players.add(p);
+        }
+        aiEnemies.clear();
+        int enemyCount = in.getInt();
+        for (int i = 0; i < enemyCount; i++) {
+            AIEnemy.AIBehavior behavior = AIEnemy.AIBehavior.values()[in.getInt()];
+            AIEnemy enemy = new AIEnemy(0, 0, SpawnPoint.Team.TERRORIST, behavior, new GameRandom(0));
+            enemy.readState(in, gameWorld);
+            aiEnemies.add(enemy);
         }
+        projectiles.readState(in);
         
-        // Use the modern UI system
-        ModernUI.drawModernHUD(g2d, player, aliveEnemies, gameWorld.getMapName(), width, height);
+        rewoundGridBuiltAt = -1;
+        visualEffects.clear();
+        pressedKeys.clear();
+        fireRequested = false;
+        camera.follow(player.getX(), player.getY(), gameWorld.getWidth(), gameWorld.getHeight());
     }
-}
\ No newline at end of file
+}
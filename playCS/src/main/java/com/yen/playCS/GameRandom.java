@@ -0,0 +1,48 @@
+package com.yen.playCS;
+
+// Seeded SplitMix64 generator. The algorithm is fixed here rather than borrowed from the JDK so a
+// seed gives the same match on every Java version. split() hands out an independent stream, so
+// each subsystem and each bot draws from its own sequence regardless of who else drew first.
+public final class GameRandom {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+    private long state;
+
+    public GameRandom(long seed) {
+        this.state = seed;
+    }
+
+    public long nextLong() {
+        state += GOLDEN_GAMMA;
+        return mix64(state);
+    }
+
+    // Uniform in [0, 1)
+    public double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    // Uniform in [0, bound)
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("Bound must be positive: " + bound);
+        }
+        // Multiply-shift over the top 31 bits; the bias is far below anything a game can notice
+        return (int) (((nextLong() >>> 33) * bound) >>> 31);
+    }
+
+    // Raw generator state, so replay keyframes can capture and restore a stream mid-match
+    long getState() { return state; }
+    void setState(long state) { this.state = state; }
+
+    public GameRandom split() {
+        return new GameRandom(mix64(nextLong()));
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
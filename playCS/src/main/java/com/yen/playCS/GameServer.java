@@ -0,0 +1,354 @@
+package com.yen.playCS;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Authoritative match server: clients send inputs over UDP, the server simulates and sends back
+// each tick's snapshot delta-encoded against the last one that client acknowledged
+public class GameServer {
+    public static final int DEFAULT_PORT = 27015;
+
+    // Packet types, the first byte of every datagram
+    static final byte CONNECT = 1;
+    static final byte WELCOME = 2;
+    static final byte INPUT = 3;
+    static final byte SNAPSHOT = 4;
+    static final byte DISCONNECT = 5;
+    static final byte SNAPSHOT_FRAGMENT = 6; // Part of a snapshot too big for one datagram
+
+    static final int MAX_PACKET = 65507; // Largest UDP payload
+    static final int HISTORY = 64; // Ticks of snapshots kept as delta baselines, on both ends
+    static final int MAX_CLIENTS = 16; // Each one costs a player in the match and a snapshot per tick
+    static final int MAX_FRAGMENTS = 64; // Fragments a snapshot may be split into, tracked in a long on the client
+    private static final int FRAGMENT_HEADER = 32; // Type plus six varints, rounded up
+    private static final int MAX_QUEUED_INPUTS = 8; // Inputs a client may run ahead of the server
+    private static final int TIMEOUT_SECONDS = 10;
+
+    private final GameEngine engine;
+    private final int maxClients;
+    private final int maxPacket;
+    private final DatagramChannel channel;
+    private final SnapshotHistory history = new SnapshotHistory(HISTORY);
+    private final Map<SocketAddress, Session> sessions = new LinkedHashMap<>();
+    private final ByteBuffer receiveBuffer = ByteBuffer.allocate(MAX_PACKET);
+    private final ByteBuffer sendBuffer = ByteBuffer.allocate(MAX_PACKET);
+    private ByteBuffer fragmentSource = ByteBuffer.allocate(MAX_PACKET); // Grows for snapshots that need splitting
+    private boolean hostSlotTaken; // The engine's own player goes to the first client
+    private FireMode remoteFireMode = FireMode.HITSCAN; // Only hitscan shots are judged at the shooter's view tick
+    private volatile long bytesSent; // Counters are read by the status thread
+    private volatile long packetsSent;
+    private volatile int clientCount;
+    private volatile long rejectedConnects;
+    private volatile long fragmentedSnapshots;
+    private volatile long oversizedSnapshots;
+
+    public GameServer(GameEngine engine, int port) throws IOException {
+        this(engine, port, MAX_CLIENTS);
+    }
+
+    public GameServer(GameEngine engine, int port, int maxClients) throws IOException {
+        this(engine, port, maxClients, MAX_PACKET);
+    }
+
+    // Package-private so tests can force fragmenting with a small packet size
+    GameServer(GameEngine engine, int port, int maxClients, int maxPacket) throws IOException {
+        if (maxPacket <= FRAGMENT_HEADER || maxPacket > MAX_PACKET) {
+            throw new IllegalArgumentException("Packet size out of range: " + maxPacket);
+        }
+        this.engine = engine;
+        this.maxClients = maxClients;
+        this.maxPacket = maxPacket;
+        this.channel = DatagramChannel.open();
+        channel.bind(new InetSocketAddress(port));
+        channel.configureBlocking(false);
+    }
+
+    private static final class Session {
+        final SocketAddress address;
+        final Player player;
+        final PlayerInput[] queue = new PlayerInput[MAX_QUEUED_INPUTS];
+        int queueHead;
+        int queueSize;
+        int lastQueuedSequence = -1;
+        int lastAppliedSequence = -1;
+        int ackedTick = -1;
+        long lastHeardTick;
+
+        Session(SocketAddress address, Player player, long tick) {
+            this.address = address;
+            this.player = player;
+            this.lastHeardTick = tick;
+            for (int i = 0; i < queue.length; i++) {
+                queue[i] = new PlayerInput();
+            }
+        }
+
+        void enqueue(int sequence, int buttons, int aim, int viewTick) {
+            if (sequence <= lastQueuedSequence) return; // Duplicate from a redundant resend
+            if (queueSize == queue.length) {
+                // Client is running ahead, drop its oldest input
+                queueHead = (queueHead + 1) % queue.length;
+                queueSize--;
+            }
+            queue[(queueHead + queueSize) % queue.length].setRaw(sequence, buttons, aim, viewTick);
+            queueSize++;
+            lastQueuedSequence = sequence;
+        }
+
+        // One input per tick; with none queued the last one repeats, minus the trigger
+        void applyNextInput() {
+            PlayerInput input = player.getInput();
+            if (queueSize > 0) {
+                input.copyFrom(queue[queueHead]);
+                queueHead = (queueHead + 1) % queue.length;
+                queueSize--;
+                lastAppliedSequence = input.getSequence();
+            } else {
+                input.setRaw(input.getSequence(), input.getButtons() & ~PlayerInput.FIRE, input.getAim(),
+                             input.getViewTick());
+            }
+        }
+    }
+
+    public void tick() {
+        receive();
+        for (Session session : sessions.values()) {
+            session.applyNextInput();
+        }
+
+        engine.update();
+
+        Snapshot snapshot = history.slotFor((int) engine.getClock().getTick());
+        engine.captureSnapshot(snapshot);
+        for (Session session : sessions.values()) {
+            sendSnapshot(session, snapshot);
+        }
+        dropIdleSessions();
+    }
+
+    private void receive() {
+        while (true) {
+            receiveBuffer.clear();
+            SocketAddress from;
+            try {
+                from = channel.receive(receiveBuffer);
+            } catch (IOException e) {
+                return;
+            }
+            if (from == null) return;
+            receiveBuffer.flip();
+            try {
+                handlePacket(from, receiveBuffer);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                // Truncated or malformed datagram, ignore it like a lost one
+            }
+        }
+    }
+
+    private void handlePacket(SocketAddress from, ByteBuffer packet) {
+        byte type = packet.get();
+        Session session = sessions.get(from);
+        if (type == CONNECT) {
+            if (session == null) {
+                if (sessions.size() >= maxClients) {
+                    // Full, stay silent and the client keeps retrying until a slot frees up
+                    rejectedConnects++;
+                    return;
+                }
+                session = connect(from);
+            }
+            sendWelcome(session);
+            return;
+        }
+        if (session == null) return;
+        session.lastHeardTick = engine.getClock().getTick();
+
+        if (type == INPUT) {
+            session.ackedTick = Math.max(session.ackedTick, WireFormat.readVarInt(packet) - 1);
+            int count = packet.get();
+            for (int i = 0; i < count; i++) {
+                int sequence = WireFormat.readVarInt(packet);
+                int buttons = packet.get() & PlayerInput.REMOTE_BUTTONS;
+                int aim = packet.getShort();
+                int viewTick = WireFormat.readVarInt(packet) - 1;
+                session.enqueue(sequence, buttons, aim, viewTick);
+            }
+        } else if (type == DISCONNECT) {
+            disconnect(session);
+            sessions.remove(from);
+            clientCount = sessions.size();
+        }
+    }
+
+    private Session connect(SocketAddress from) {
+        Player player;
+        if (!hostSlotTaken) {
+            player = engine.getPlayer();
+            hostSlotTaken = true;
+        } else {
+            player = engine.addPlayer();
+        }
+        player.setNetworked(true);
+        player.setFireMode(remoteFireMode); // Clients can't toggle it, so the server decides
+        Session session = new Session(from, player, engine.getClock().getTick());
+        sessions.put(from, session);
+        clientCount = sessions.size();
+        return session;
+    }
+
+    private void disconnect(Session session) {
+        if (session.player == engine.getPlayer()) {
+            session.player.setNetworked(false);
+            hostSlotTaken = false;
+        } else {
+            engine.removePlayer(session.player);
+        }
+    }
+
+    private void dropIdleSessions() {
+        long now = engine.getClock().getTick();
+        long timeout = (long) TIMEOUT_SECONDS * engine.getTickRate();
+        Iterator<Session> it = sessions.values().iterator();
+        while (it.hasNext()) {
+            Session session = it.next();
+            if (now - session.lastHeardTick > timeout) {
+                disconnect(session);
+                it.remove();
+            }
+        }
+        clientCount = sessions.size();
+    }
+
+    private void sendWelcome(Session session) {
+        sendBuffer.clear();
+        sendBuffer.put(WELCOME);
+        WireFormat.writeVarInt(sendBuffer, session.player.getId());
+        WireFormat.writeVarInt(sendBuffer, engine.getTickRate());
+        WireFormat.writeVarInt(sendBuffer, session.player.getFireMode().ordinal());
+        send(session.address);
+    }
+
+    private void sendSnapshot(Session session, Snapshot snapshot) {
+        // Delta against what the client last confirmed, full state when that has fallen out of the history
+        Snapshot baseline = session.ackedTick < snapshot.getTick() ? history.get(session.ackedTick) : null;
+        int baselineTick = baseline != null ? baseline.getTick() : -1;
+        sendBuffer.clear().limit(maxPacket);
+        sendBuffer.put(SNAPSHOT);
+        WireFormat.writeVarInt(sendBuffer, baselineTick + 1);
+        WireFormat.writeVarInt(sendBuffer, session.lastAppliedSequence + 1);
+        try {
+            SnapshotCodec.encode(snapshot, baseline, sendBuffer);
+            send(session.address);
+            return;
+        } catch (BufferOverflowException e) {
+            // Too big for one datagram, e.g. the full state for a client with no baseline yet
+        }
+
+        // Split it rather than skip it, or a client without a baseline would never get any state.
+        // The client only decodes once every fragment of the tick is in, so the result is exactly
+        // this snapshot and can be acknowledged as a baseline like any other.
+        if (!encodeForFragments(snapshot, baseline)) {
+            oversizedSnapshots++;
+            return;
+        }
+        int total = fragmentSource.position();
+        int count = (total + maxPacket - FRAGMENT_HEADER - 1) / (maxPacket - FRAGMENT_HEADER);
+        int chunk = (total + count - 1) / count; // The client derives the same split from total and count
+        for (int i = 0; i < count; i++) {
+            int from = i * chunk;
+            sendBuffer.clear();
+            sendBuffer.put(SNAPSHOT_FRAGMENT);
+            WireFormat.writeVarInt(sendBuffer, baselineTick + 1);
+            WireFormat.writeVarInt(sendBuffer, session.lastAppliedSequence + 1);
+            WireFormat.writeVarInt(sendBuffer, snapshot.getTick());
+            WireFormat.writeVarInt(sendBuffer, total);
+            WireFormat.writeVarInt(sendBuffer, count);
+            WireFormat.writeVarInt(sendBuffer, i);
+            sendBuffer.put(fragmentSource.array(), from, Math.min(total, from + chunk) - from);
+            send(session.address);
+        }
+        fragmentedSnapshots++;
+    }
+
+    // False if even MAX_FRAGMENTS datagrams can't hold it
+    private boolean encodeForFragments(Snapshot snapshot, Snapshot baseline) {
+        int limit = MAX_FRAGMENTS * (maxPacket - FRAGMENT_HEADER);
+        while (true) {
+            fragmentSource.clear();
+            try {
+                SnapshotCodec.encode(snapshot, baseline, fragmentSource);
+                return fragmentSource.position() <= limit;
+            } catch (BufferOverflowException e) {
+                if (fragmentSource.capacity() >= limit) return false;
+                fragmentSource = ByteBuffer.allocate(Math.min(limit, fragmentSource.capacity() * 2));
+            }
+        }
+    }
+
+    private void send(SocketAddress address) {
+        sendBuffer.flip();
+        try {
+            bytesSent += channel.send(sendBuffer, address);
+            packetsSent++;
+        } catch (IOException e) {
+            // UDP gives no delivery guarantee anyway, the next tick's snapshot supersedes this one
+        }
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public int getPort() {
+        try {
+            return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    // Weapon for clients that connect from now on. Projectiles are resolved against current positions,
+    // so only hitscan gets lag compensation.
+    public void setRemoteFireMode(FireMode remoteFireMode) { this.remoteFireMode = remoteFireMode; }
+    public FireMode getRemoteFireMode() { return remoteFireMode; }
+    public int getClientCount() { return clientCount; }
+    public long getBytesSent() { return bytesSent; }
+    public long getPacketsSent() { return packetsSent; }
+    public long getRejectedConnects() { return rejectedConnects; }
+    public long getFragmentedSnapshots() { return fragmentedSnapshots; }
+    public long getOversizedSnapshots() { return oversizedSnapshots; }
+    public GameEngine getEngine() { return engine; }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int tickRate = args.length > 1 ? Integer.parseInt(args[1]) : GameEngine.DEFAULT_TICK_RATE;
+        FireMode fireMode = args.length > 2 ? FireMode.valueOf(args[2].toUpperCase()) : FireMode.HITSCAN;
+
+        // Servers never open a window
+        System.setProperty("java.awt.headless", "true");
+
+        GameEngine engine = new GameEngine(1024, 768, tickRate);
+        GameServer server = new GameServer(engine, port);
+        server.setRemoteFireMode(fireMode);
+        HeadlessGameRunner runner = new HeadlessGameRunner(engine, server::tick);
+        runner.start();
+        System.out.printf("Serving on UDP port %d at %d Hz, clients fire %s%n", server.getPort(), tickRate,
+                          fireMode.name().toLowerCase());
+
+        long lastBytes = 0;
+        while (runner.isRunning()) {
+            Thread.sleep(5000);
+            long bytes = server.getBytesSent();
+            System.out.printf("%d clients, %.1f KB/s out%n", server.getClientCount(), (bytes - lastBytes) / 5120.0);
+            lastBytes = bytes;
+        }
+    }
+}
@@ -9,13 +9,29 @@ public class GameWorld {
     private List<MapElement> mapElements;
     private List<SpawnPoint> spawnPoints;
     private List<BombSite> bombSites;
-    private final int width;
-    private final int height;
+    private final int viewWidth;
+    private final int viewHeight;
+    private int width; // World size, the window size unless a map is larger
+    private int height;
     private String mapName;
+    private SpatialGrid spatialGrid;
+    private NavigationGrid navigationGrid;
+    private PathPlanner pathPlanner;
+    private FlowField playerFlowField;
+    private VisibilityCache visibilityCache;
+    private int layoutVersion; // Bumped whenever the map geometry is rebuilt
+    private int[] renderable; // Scratch for spatial render queries
+    public static final String[] MAP_NAMES = {"dust2", "office", "mirage", "sprawl"}; // Index is sent over the wire
+    private static final double GRID_CELL_SIZE = 40;
+    private static final double NAV_CELL_SIZE = 20;
+    private static final int VISIBILITY_CACHE_SIZE = 1 << 16;
+    private static final int SPRAWL_SCALE = 6; // World is this many windows wide and tall
+    private static final int SPRAWL_BLOCK_SIZE = 512;
+    private static final long SPRAWL_SEED = 20240607L;
     
     public GameWorld(int width, int height) {
-        this.width = width;
-        this.height = height;
+        this.viewWidth = width;
+        this.viewHeight = height;
         this.mapElements = new ArrayList<>();
         this.spawnPoints = new ArrayList<>();
         this.bombSites = new ArrayList<>();
@@ -29,6 +45,9 @@ public class GameWorld {
     
     private void createMap(String mapName) {
         this.mapName = mapName;
+        this.layoutVersion++;
+        this.width = viewWidth;
+        this.height = viewHeight;
         mapElements.clear();
         spawnPoints.clear();
         bombSites.clear();
@@ -43,10 +62,21 @@ public class GameWorld {
             case "mirage":
                 createMirageMap();
                 break;
+            case "sprawl":
+                createSprawlMap();
+                break;
             default:
                 createDefaultMap();
                 break;
         }
+        
+        // Map geometry is static, so index it once per map
+        spatialGrid = new SpatialGrid(mapElements, width, height, GRID_CELL_SIZE);
+        navigationGrid = new NavigationGrid(mapElements, width, height, NAV_CELL_SIZE);
+        pathPlanner = new PathPlanner(navigationGrid);
+        playerFlowField = new FlowField(navigationGrid);
+        visibilityCache = new VisibilityCache(navigationGrid, spatialGrid, VISIBILITY_CACHE_SIZE);
+        renderable = new int[mapElements.size()];
     }
     
     private void createDust2Map() {
@@ -181,6 +211,86 @@ public class GameWorld {
         addBombSite(700, 400, 90, 70, "Site B");
     }
     
+    // City blocks on a world many screens large, laid out from a fixed seed so every run gets the same map
+    private void createSprawlMap() {
+        width = viewWidth * SPRAWL_SCALE;
+        height = viewHeight * SPRAWL_SCALE;
+        int wallThickness = 20;
+        Random layout = new Random(SPRAWL_SEED);
+        
+        // Boundary walls
+        addWall(0, 0, width, wallThickness, Wall.WallType.CONCRETE);
+        addWall(0, height - wallThickness, width, wallThickness, Wall.WallType.CONCRETE);
+        addWall(0, 0, wallThickness, height, Wall.WallType.CONCRETE);
+        addWall(width - wallThickness, 0, wallThickness, height, Wall.WallType.CONCRETE);
+        
+        // One building or a cover yard per block, streets in between
+        Wall.WallType[] buildingTypes = { Wall.WallType.BRICK, Wall.WallType.CONCRETE, Wall.WallType.WOOD, Wall.WallType.METAL };
+        int block = SPRAWL_BLOCK_SIZE;
+        for (int by = 0; by < height / block; by++) {
+            for (int bx = 0; bx < width / block; bx++) {
+                // Keep the window-sized area around the start and spawns open
+                if (bx * block < viewWidth && by * block < viewHeight) continue;
+                
+                double left = bx * block + 80;
+                double top = by * block + 80;
+                double size = block - 160;
+                if (layout.nextInt(4) == 0) {
+                    for (int i = 0; i < 3; i++) {
+                        addWall(left + layout.nextInt((int) size - 60), top + layout.nextInt((int) size - 60),
+                                30 + layout.nextInt(30), 30 + layout.nextInt(30), Wall.WallType.COVER);
+                    }
+                    continue;
+                }
+                
+                // Four walls with a door gap in a random side
+                Wall.WallType type = buildingTypes[layout.nextInt(buildingTypes.length)];
+                int door = layout.nextInt(4);
+                double gap = 60;
+                double half = (size - gap) / 2;
+                if (door == 0) {
+                    addWall(left, top, half, wallThickness, type);
+                    addWall(left + half + gap, top, half, wallThickness, type);
+                } else {
+                    addWall(left, top, size, wallThickness, type);
+                }
+                if (door == 1) {
+                    addWall(left, top + size - wallThickness, half, wallThickness, type);
+                    addWall(left + half + gap, top + size - wallThickness, half, wallThickness, type);
+                } else {
+                    addWall(left, top + size - wallThickness, size, wallThickness, type);
+                }
+                if (door == 2) {
+                    addWall(left, top, wallThickness, half, type);
+                    addWall(left, top + half + gap, wallThickness, half, type);
+                } else {
+                    addWall(left, top, wallThickness, size, type);
+                }
+                if (door == 3) {
+                    addWall(left + size - wallThickness, top, wallThickness, half, type);
+                    addWall(left + size - wallThickness, top + half + gap, wallThickness, half, type);
+                } else {
+                    addWall(left + size - wallThickness, top, wallThickness, size, type);
+                }
+            }
+        }
+        
+        // Spawn points
+        addSpawnPoint(80, 80, SpawnPoint.Team.COUNTER_TERRORIST);
+        addSpawnPoint(120, 80, SpawnPoint.Team.COUNTER_TERRORIST);
+        addSpawnPoint(80, 120, SpawnPoint.Team.COUNTER_TERRORIST);
+        
+        addSpawnPoint(900, 650, SpawnPoint.Team.TERRORIST);
+        addSpawnPoint(860, 650, SpawnPoint.Team.TERRORIST);
+        addSpawnPoint(width - 60, height - 60, SpawnPoint.Team.TERRORIST);
+        addSpawnPoint(width - 60, 60, SpawnPoint.Team.TERRORIST);
+        addSpawnPoint(60, height - 60, SpawnPoint.Team.TERRORIST);
+        
+        // Bomb sites
+        addBombSite(width / 2 - 50, height / 2 - 40, 100, 80, "Site A");
+        addBombSite(width - 300, height - 300, 100, 80, "Site B");
+    }
+    
     private void createDefaultMap() {
         createDust2Map(); // Fallback to dust2
     }
@@ -202,34 +312,48 @@ public class GameWorld {
     }
     
     public boolean checkCollision(double x, double y) {
-        for (MapElement element : mapElements) {
-            if (element.blocksMovement() && element.contains(x, y)) {
-                return true;
-            }
-        }
-        return false;
+        return spatialGrid.blocksMovementAt(x, y);
     }
     
     public boolean checkProjectileCollision(double x, double y) {
-        for (MapElement element : mapElements) {
-            if (element.blocksProjectiles() && element.contains(x, y)) {
-                return true;
-            }
+        return spatialGrid.blocksProjectilesAt(x, y);
+    }
+    
+    // Line of sight against projectile-blocking walls, answered from the cell visibility cache
+    public boolean hasLineOfSight(double x0, double y0, double x1, double y1) {
+        int cellA = navigationGrid.cellAt(x0, y0);
+        int cellB = navigationGrid.cellAt(x1, y1);
+        if (cellA == -1 || cellB == -1 ||
+            spatialGrid.blocksProjectilesAt(navigationGrid.centerX(cellA), navigationGrid.centerY(cellA)) ||
+            spatialGrid.blocksProjectilesAt(navigationGrid.centerX(cellB), navigationGrid.centerY(cellB))) {
+            // Cell centres inside walls can't stand in for the real points, cast the exact ray
+            double dx = x1 - x0;
+            double dy = y1 - y0;
+            double distance = Math.sqrt(dx * dx + dy * dy);
+            if (distance == 0) return true;
+            return spatialGrid.raycastProjectile(x0, y0, dx / distance, dy / distance, distance) == Sweep.NO_HIT;
         }
-        return false;
+        return visibilityCache.isVisible(cellA, cellB);
+    }
+    
+    // Shared by every bot chasing the player, cheap when the player stays in the same cell
+    public void updatePlayerFlowField(double playerX, double playerY) {
+        playerFlowField.update(playerX, playerY);
     }
     
-    public SpawnPoint getRandomSpawnPoint(SpawnPoint.Team team) {
-        List<SpawnPoint> teamSpawns = new ArrayList<>();
+    // Draws from the caller's stream so spawns are reproducible from the match seed
+    public SpawnPoint getRandomSpawnPoint(SpawnPoint.Team team, GameRandom random) {
+        int candidates = 0;
         for (SpawnPoint spawn : spawnPoints) {
-            if (spawn.getTeam() == team && spawn.isActive()) {
-                teamSpawns.add(spawn);
-            }
+            if (spawn.getTeam() == team && spawn.isActive()) candidates++;
         }
-        if (teamSpawns.isEmpty()) return null;
+        if (candidates == 0) return null;
         
-        Random random = new Random();
-        return teamSpawns.get(random.nextInt(teamSpawns.size()));
+        int pick = random.nextInt(candidates);
+        for (SpawnPoint spawn : spawnPoints) {
+            if (spawn.getTeam() == team && spawn.isActive() && pick-- == 0) return spawn;
+        }
+        return null;
     }
     
     public void render(Graphics2D g2d) {
@@ -239,11 +363,40 @@ public class GameWorld {
         }
     }
     
+    // Only the elements whose bounds reach into the region, found through the spatial grid
+    public void render(Graphics2D g2d, double minX, double minY, double maxX, double maxY) {
+        int count = spatialGrid.queryRenderable(minX, minY, maxX, maxY, renderable);
+        for (int i = 0; i < count; i++) {
+            spatialGrid.getElement(renderable[i]).render(g2d);
+        }
+    }
+    
     public List<SpawnPoint> getSpawnPoints() { return spawnPoints; }
     public List<BombSite> getBombSites() { return bombSites; }
     public String getMapName() { return mapName; }
     
-    public void switchMap(String newMapName) {
+    public int getMapIndex() {
+        for (int i = 0; i < MAP_NAMES.length; i++) {
+            if (MAP_NAMES[i].equalsIgnoreCase(mapName)) return i;
+        }
+        return 0;
+    }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getLayoutVersion() { return layoutVersion; }
+    public SpatialGrid getSpatialGrid() { return spatialGrid; }
+    public NavigationGrid getNavigationGrid() { return navigationGrid; }
+    public PathPlanner getPathPlanner() { return pathPlanner; }
+    public FlowField getPlayerFlowField() { return playerFlowField; }
+    public VisibilityCache getVisibilityCache() { return visibilityCache; }
+    
+    // Geometry is rebuilt in place, so this shares the world's monitor with the render thread's tile painting
+    public synchronized void switchMap(String newMapName) {
         createMap(newMapName);
     }
+    
+    // Call after changing how a static element looks (e.g. a planted bomb) so cached layers redraw
+    public void markLayoutDirty() {
+        layoutVersion++;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,136 @@
+package com.yen.playCS;
+
+public class HeadlessGameRunner implements Runnable {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final int MAX_TICKS_PER_FRAME = 8; // Drop time instead of spiralling when overloaded
+
+    private final GameEngine engine;
+    private final Runnable step; // What one tick does, normally just engine.update()
+    private final long tickNanos;
+    private volatile boolean running;
+    private volatile boolean maxSpeed;
+    private volatile long tickCount;
+    private volatile long accumulator;
+    private volatile long lastAdvance; // nanoTime when the accumulator was last brought up to date
+    private Thread thread;
+
+    public HeadlessGameRunner(GameEngine engine) {
+        this(engine, engine::update);
+    }
+
+    // Lets a server or client wrap each tick with its own work, at the engine's tick rate
+    public HeadlessGameRunner(GameEngine engine, Runnable step) {
+        this.engine = engine;
+        this.step = step;
+        this.tickNanos = NANOS_PER_SECOND / engine.getTickRate();
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this, "game-sim");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            current = thread;
+            thread = null;
+        }
+        if (current != null && current != Thread.currentThread()) {
+            try {
+                current.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        long previous = System.nanoTime();
+        accumulator = 0;
+        lastAdvance = previous;
+
+        while (running) {
+            if (maxSpeed) {
+                // Back-to-back ticks, simulation time runs as fast as the CPU allows
+                tick();
+                previous = System.nanoTime();
+                accumulator = 0;
+                continue;
+            }
+
+            long now = System.nanoTime();
+            accumulator += Math.min(now - previous, tickNanos * MAX_TICKS_PER_FRAME);
+            previous = now;
+
+            long pending = accumulator;
+            while (pending >= tickNanos) {
+                tick();
+                pending -= tickNanos;
+            }
+            accumulator = pending;
+            lastAdvance = now;
+
+            sleepUntilNextTick(tickNanos - accumulator);
+        }
+    }
+
+    // Runs the given number of ticks immediately on the calling thread
+    public void runTicks(long ticks) {
+        for (long i = 0; i < ticks; i++) {
+            tick();
+        }
+    }
+
+    private void tick() {
+        step.run();
+        tickCount++;
+    }
+
+    private void sleepUntilNextTick(long remainingNanos) {
+        if (remainingNanos <= 0) return;
+        try {
+            Thread.sleep(remainingNanos / 1_000_000L, (int) (remainingNanos % 1_000_000L));
+        } catch (InterruptedException e) {
+            running = false;
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Fraction of a tick that has elapsed since the last one, for interpolated rendering
+    public double getAlpha() {
+        if (!running || maxSpeed) return 1.0;
+        double alpha = (accumulator + (System.nanoTime() - lastAdvance)) / (double) tickNanos;
+        return Math.max(0.0, Math.min(1.0, alpha));
+    }
+
+    public void setMaxSpeed(boolean maxSpeed) { this.maxSpeed = maxSpeed; }
+    public boolean isMaxSpeed() { return maxSpeed; }
+    public boolean isRunning() { return running; }
+    public long getTickCount() { return tickCount; }
+    public GameEngine getEngine() { return engine; }
+
+    public static void main(String[] args) {
+        int tickRate = args.length > 0 ? Integer.parseInt(args[0]) : GameEngine.DEFAULT_TICK_RATE;
+        long ticks = args.length > 1 ? Long.parseLong(args[1]) : tickRate * 60L;
+
+        // Server runs never open a window
+        System.setProperty("java.awt.headless", "true");
+
+        GameEngine engine = new GameEngine(1024, 768, tickRate);
+        HeadlessGameRunner runner = new HeadlessGameRunner(engine);
+
+        long start = System.nanoTime();
+        runner.runTicks(ticks);
+        double seconds = (System.nanoTime() - start) / (double) NANOS_PER_SECOND;
+
+        System.out.printf("Simulated %d ticks at %d Hz in %.3f s (%.0f ticks/s)%n",
+                          ticks, tickRate, seconds, ticks / seconds);
+        System.out.print(engine.getProfiler().toCsv());
+    }
+}
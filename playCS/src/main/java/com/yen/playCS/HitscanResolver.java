@@ -0,0 +1,5 @@
+package com.yen.playCS;
+
+public interface HitscanResolver {
+    void fireHitscan(double startX, double startY, double angle, int ownerId);
+}
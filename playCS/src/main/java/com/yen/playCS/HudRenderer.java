@@ -0,0 +1,117 @@
+package com.yen.playCS;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+
+// HUD panels are painted into cached images and only repainted when the values they show change
+public class HudRenderer {
+    private static final int PAD = 2; // Room for borders stroked over the panel edge
+
+    private final int width, height;
+    private final Panel status, map, crosshair, gameOver, instructions;
+
+    public HudRenderer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.status = new Panel(10, 10, 200, 100);
+        this.map = new Panel(width - 160, 10, 150, 60);
+        this.crosshair = new Panel(width / 2 - 17, height / 2 - 17, 34, 34);
+        this.gameOver = new Panel(0, 0, width, height);
+        this.instructions = new Panel(10, height - 80, width - 20, 70);
+    }
+
+    private static final class Panel {
+        final int x, y, w, h;
+        BufferedImage image;
+        long key;
+        Object keyObject;
+        int repaints;
+
+        Panel(int x, int y, int w, int h) {
+            this.x = x;
+            this.y = y;
+            this.w = w;
+            this.h = h;
+        }
+
+        boolean isStale(long newKey, Object newKeyObject) {
+            return image == null || key != newKey || keyObject != newKeyObject;
+        }
+
+        // Returns a context that draws in screen coordinates into the panel image
+        Graphics2D begin(Graphics2D target, long newKey, Object newKeyObject) {
+            if (image == null) {
+                image = target.getDeviceConfiguration().createCompatibleImage(w + PAD * 2, h + PAD * 2,
+                                                                               Transparency.TRANSLUCENT);
+            }
+            key = newKey;
+            keyObject = newKeyObject;
+            repaints++;
+
+            Graphics2D g = image.createGraphics();
+            g.setComposite(AlphaComposite.Clear);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.setComposite(AlphaComposite.SrcOver);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.translate(PAD - x, PAD - y);
+            return g;
+        }
+
+        void draw(Graphics2D g2d) {
+            g2d.drawImage(image, x - PAD, y - PAD, null);
+        }
+    }
+
+    public void render(Graphics2D g2d, Player player, int enemyCount, String mapName) {
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        // Main HUD panel (top-left), with the fast-changing position drawn over it
+        int health = player.getHealth();
+        int ammo = player.getAmmo();
+        long statusKey = ((long) enemyCount << 32) | ((long) (ammo & 0xFFFF) << 16) | (health & 0xFFFF);
+        if (status.isStale(statusKey, null)) {
+            Graphics2D g = status.begin(g2d, statusKey, null);
+            ModernUI.drawHUDPanel(g, status.x, status.y, status.w, status.h, health, ammo, enemyCount);
+            g.dispose();
+        }
+        status.draw(g2d);
+        ModernUI.drawPosition(g2d, status.x, status.y, player);
+
+        // Map info panel (top-right)
+        if (map.isStale(0, mapName)) {
+            Graphics2D g = map.begin(g2d, 0, mapName);
+            ModernUI.drawMapPanel(g, map.x, map.y, map.w, map.h, mapName);
+            g.dispose();
+        }
+        map.draw(g2d);
+
+        if (health > 0) {
+            if (crosshair.isStale(0, null)) {
+                Graphics2D g = crosshair.begin(g2d, 0, null);
+                ModernUI.drawModernCrosshair(g, width / 2, height / 2);
+                g.dispose();
+            }
+            crosshair.draw(g2d);
+        } else {
+            if (gameOver.isStale(0, null)) {
+                Graphics2D g = gameOver.begin(g2d, 0, null);
+                ModernUI.drawGameOverScreen(g, width, height);
+                g.dispose();
+            }
+            gameOver.draw(g2d);
+        }
+
+        // Instructions panel (bottom)
+        if (instructions.isStale(0, null)) {
+            Graphics2D g = instructions.begin(g2d, 0, null);
+            ModernUI.drawInstructionsPanel(g, instructions.x, instructions.y, instructions.w, instructions.h);
+            g.dispose();
+        }
+        instructions.draw(g2d);
+    }
+
+    // Total panel repaints so far, for tests and profiling
+    public int getRepaintCount() {
+        return status.repaints + map.repaints + crosshair.repaints + gameOver.repaints + instructions.repaints;
+    }
+}
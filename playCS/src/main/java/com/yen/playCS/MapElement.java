@@ -22,6 +22,12 @@ public abstract class MapElement {
     public abstract boolean blocksMovement();
     public abstract boolean blocksProjectiles();
     
+    // Area touched by render(), before stroke widths; used to skip elements outside the view
+    public double getRenderMinX() { return x; }
+    public double getRenderMinY() { return y; }
+    public double getRenderMaxX() { return x + width; }
+    public double getRenderMaxY() { return y + height; }
+    
     public double getX() { return x; }
     public double getY() { return y; }
     public double getWidth() { return width; }
@@ -10,13 +10,67 @@ public class ModernUI {
     private static final Color SUCCESS_COLOR = new Color(0, 200, 100);
     private static final Color WARNING_COLOR = new Color(255, 165, 0);
     private static final Color DANGER_COLOR = new Color(220, 50, 50);
+    private static final Color INSTRUCTIONS_BACKGROUND = new Color(40, 45, 50, 150);
+    private static final Color CROSSHAIR_COLOR = new Color(255, 0, 0, 180);
+    
+    // HUD strings are rebuilt only when the value they show changes
+    private static final CachedText ENEMY_TEXT = new CachedText();
+    private static final CachedText POSITION_TEXT = new CachedText();
+    private static final CachedText HEALTH_TEXT = new CachedText();
+    private static final CachedText AMMO_TEXT = new CachedText();
+    private static final CachedText MAP_TEXT = new CachedText();
+    
+    private static final class CachedText {
+        private static final class Entry {
+            final Object key;
+            final int a, b;
+            final String text;
+            
+            Entry(Object key, int a, int b, String text) {
+                this.key = key;
+                this.a = a;
+                this.b = b;
+                this.text = text;
+            }
+        }
+        
+        private volatile Entry entry = new Entry(null, 0, 0, "");
+        
+        String get(String prefix, int a, String separator, int b) {
+            Entry current = entry;
+            if (current.key != prefix || current.a != a || current.b != b) {
+                current = new Entry(prefix, a, b, prefix + a + separator + b);
+                entry = current;
+            }
+            return current.text;
+        }
+        
+        String get(String prefix, int a) {
+            Entry current = entry;
+            if (current.key != prefix || current.a != a) {
+                current = new Entry(prefix, a, 0, prefix + a);
+                entry = current;
+            }
+            return current.text;
+        }
+        
+        String upperCase(String prefix, String value) {
+            Entry current = entry;
+            if (current.key != value) {
+                current = new Entry(value, 0, 0, prefix + value.toUpperCase());
+                entry = current;
+            }
+            return current.text;
+        }
+    }
     
     public static void drawModernHUD(Graphics2D g2d, Player player, int enemyCount, String mapName, int width, int height) {
         // Enable anti-aliasing for smoother UI
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         
         // Draw main HUD panel (top-left)
-        drawHUDPanel(g2d, 10, 10, 200, 100, player, enemyCount);
+        drawHUDPanel(g2d, 10, 10, 200, 100, player.getHealth(), player.getAmmo(), enemyCount);
+        drawPosition(g2d, 10, 10, player);
         
         // Draw map info panel (top-right)
         drawMapPanel(g2d, width - 160, 10, 150, 60, mapName);
@@ -35,39 +89,45 @@ public class ModernUI {
         drawInstructionsPanel(g2d, 10, height - 80, width - 20, 70);
     }
     
-    private static void drawHUDPanel(Graphics2D g2d, int x, int y, int width, int height, Player player, int enemyCount) {
+    static void drawHUDPanel(Graphics2D g2d, int x, int y, int width, int height, int health, int ammo, int enemyCount) {
         // Panel background
         g2d.setColor(UI_BACKGROUND);
         g2d.fillRoundRect(x, y, width, height, 10, 10);
         
         // Border
         g2d.setColor(ACCENT_COLOR);
-        g2d.setStroke(new BasicStroke(2));
+        g2d.setStroke(RenderResources.STROKE_2);
         g2d.drawRoundRect(x, y, width, height, 10, 10);
         
         // Health bar
-        drawProgressBar(g2d, x + 10, y + 15, width - 20, 20, "HEALTH", 
-                       player.getHealth(), 100, SUCCESS_COLOR, DANGER_COLOR);
+        drawProgressBar(g2d, x + 10, y + 15, width - 20, 20, HEALTH_TEXT, "HEALTH: ", 
+                       health, 100, SUCCESS_COLOR, DANGER_COLOR);
         
         // Ammo bar
-        drawProgressBar(g2d, x + 10, y + 45, width - 20, 15, "AMMO", 
-                       player.getAmmo(), 30, WARNING_COLOR, DANGER_COLOR);
+        drawProgressBar(g2d, x + 10, y + 45, width - 20, 15, AMMO_TEXT, "AMMO: ", 
+                       ammo, 30, WARNING_COLOR, DANGER_COLOR);
         
         // Enemy counter
         g2d.setColor(Color.WHITE);
-        g2d.setFont(new Font("Arial", Font.BOLD, 12));
-        g2d.drawString("ENEMIES: " + enemyCount, x + 10, y + 80);
-        
-        // Position
-        g2d.setFont(new Font("Arial", Font.PLAIN, 10));
-        g2d.setColor(new Color(200, 200, 200));
-        g2d.drawString("X: " + (int)player.getX() + " Y: " + (int)player.getY(), x + 10, y + 95);
+        g2d.setFont(RenderResources.BOLD_12);
+        g2d.drawString(ENEMY_TEXT.get("ENEMIES: ", enemyCount), x + 10, y + 80);
+    }
+    
+    // Changes almost every frame, so it is drawn on top of the HUD panel rather than baked into it.
+    // The string is only rebuilt when the whole-pixel position changes: one short string per tick
+    // while the player moves, nothing while it stands still. Java2D drops its cached font lookup
+    // whenever the paint switches between opaque and translucent, so on frames with effects on
+    // screen this text also costs one 40-byte FontStrikeDesc inside SunGraphics2D.
+    static void drawPosition(Graphics2D g2d, int x, int y, Player player) {
+        g2d.setFont(RenderResources.PLAIN_10);
+        g2d.setColor(RenderResources.GRAY_200);
+        g2d.drawString(POSITION_TEXT.get("X: ", (int)player.getX(), " Y: ", (int)player.getY()), x + 10, y + 95);
     }
     
     private static void drawProgressBar(Graphics2D g2d, int x, int y, int width, int height, 
-                                       String label, int current, int max, Color goodColor, Color badColor) {
+                                       CachedText label, String prefix, int current, int max, Color goodColor, Color badColor) {
         // Background
-        g2d.setColor(new Color(60, 60, 60));
+        g2d.setColor(RenderResources.GRAY_60);
         g2d.fillRoundRect(x, y, width, height, 5, 5);
         
         // Progress fill
@@ -82,52 +142,52 @@ public class ModernUI {
         }
         
         // Border
-        g2d.setColor(new Color(100, 100, 100));
-        g2d.setStroke(new BasicStroke(1));
+        g2d.setColor(RenderResources.GRAY_100);
+        g2d.setStroke(RenderResources.STROKE_1);
         g2d.drawRoundRect(x, y, width, height, 5, 5);
         
         // Text
         g2d.setColor(Color.WHITE);
-        g2d.setFont(new Font("Arial", Font.BOLD, 10));
+        g2d.setFont(RenderResources.BOLD_10);
         FontMetrics fm = g2d.getFontMetrics();
-        String text = label + ": " + current + "/" + max;
+        String text = label.get(prefix, current, "/", max);
         int textX = x + (width - fm.stringWidth(text)) / 2;
         int textY = y + height - 3;
         g2d.drawString(text, textX, textY);
     }
     
-    private static void drawMapPanel(Graphics2D g2d, int x, int y, int width, int height, String mapName) {
+    static void drawMapPanel(Graphics2D g2d, int x, int y, int width, int height, String mapName) {
         // Panel background
         g2d.setColor(UI_BACKGROUND);
         g2d.fillRoundRect(x, y, width, height, 10, 10);
         
         // Border
         g2d.setColor(ACCENT_COLOR);
-        g2d.setStroke(new BasicStroke(2));
+        g2d.setStroke(RenderResources.STROKE_2);
         g2d.drawRoundRect(x, y, width, height, 10, 10);
         
         // Map name
         g2d.setColor(Color.WHITE);
-        g2d.setFont(new Font("Arial", Font.BOLD, 14));
+        g2d.setFont(RenderResources.BOLD_14);
         FontMetrics fm = g2d.getFontMetrics();
-        String text = "MAP: " + mapName.toUpperCase();
+        String text = MAP_TEXT.upperCase("MAP: ", mapName);
         int textX = x + (width - fm.stringWidth(text)) / 2;
         g2d.drawString(text, textX, y + 20);
         
         // Map switching hint
-        g2d.setFont(new Font("Arial", Font.PLAIN, 10));
-        g2d.setColor(new Color(200, 200, 200));
-        text = "Press 1-3 to switch";
+        g2d.setFont(RenderResources.PLAIN_10);
+        g2d.setColor(RenderResources.GRAY_200);
+        text = "Press 1-4 to switch";
         textX = x + (width - fm.stringWidth(text)) / 2;
         g2d.drawString(text, textX, y + 40);
     }
     
-    private static void drawModernCrosshair(Graphics2D g2d, int centerX, int centerY) {
+    static void drawModernCrosshair(Graphics2D g2d, int centerX, int centerY) {
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         
         // Outer ring
-        g2d.setColor(new Color(255, 255, 255, 100));
-        g2d.setStroke(new BasicStroke(2));
+        g2d.setColor(RenderResources.WHITE_100);
+        g2d.setStroke(RenderResources.STROKE_2);
         g2d.drawOval(centerX - 15, centerY - 15, 30, 30);
         
         // Center dot
@@ -135,8 +195,8 @@ public class ModernUI {
         g2d.fillOval(centerX - 2, centerY - 2, 4, 4);
         
         // Cross lines
-        g2d.setColor(new Color(255, 0, 0, 180));
-        g2d.setStroke(new BasicStroke(2));
+        g2d.setColor(CROSSHAIR_COLOR);
+        g2d.setStroke(RenderResources.STROKE_2);
         
         // Horizontal line (with gap in middle)
         g2d.drawLine(centerX - 12, centerY, centerX - 5, centerY);
@@ -147,9 +207,9 @@ public class ModernUI {
         g2d.drawLine(centerX, centerY + 5, centerX, centerY + 12);
     }
     
-    private static void drawGameOverScreen(Graphics2D g2d, int width, int height) {
+    static void drawGameOverScreen(Graphics2D g2d, int width, int height) {
         // Semi-transparent overlay
-        g2d.setColor(new Color(0, 0, 0, 150));
+        g2d.setColor(RenderResources.BLACK_150);
         g2d.fillRect(0, 0, width, height);
         
         // Game over panel
@@ -162,12 +222,12 @@ public class ModernUI {
         g2d.fillRoundRect(panelX, panelY, panelWidth, panelHeight, 20, 20);
         
         g2d.setColor(DANGER_COLOR);
-        g2d.setStroke(new BasicStroke(3));
+        g2d.setStroke(RenderResources.STROKE_3);
         g2d.drawRoundRect(panelX, panelY, panelWidth, panelHeight, 20, 20);
         
         // Game over text
         g2d.setColor(DANGER_COLOR);
-        g2d.setFont(new Font("Arial", Font.BOLD, 36));
+        g2d.setFont(RenderResources.BOLD_36);
         FontMetrics fm = g2d.getFontMetrics();
         String text = "ELIMINATED";
         int textX = panelX + (panelWidth - fm.stringWidth(text)) / 2;
@@ -175,7 +235,7 @@ public class ModernUI {
         
         // Subtitle
         g2d.setColor(Color.WHITE);
-        g2d.setFont(new Font("Arial", Font.PLAIN, 16));
+        g2d.setFont(RenderResources.PLAIN_16);
         fm = g2d.getFontMetrics();
         text = "You were taken down by hostile forces";
         textX = panelX + (panelWidth - fm.stringWidth(text)) / 2;
@@ -183,31 +243,31 @@ public class ModernUI {
         
         // Restart hint
         g2d.setColor(ACCENT_COLOR);
-        g2d.setFont(new Font("Arial", Font.BOLD, 14));
+        g2d.setFont(RenderResources.BOLD_14);
         fm = g2d.getFontMetrics();
         text = "Restart the game to try again";
         textX = panelX + (panelWidth - fm.stringWidth(text)) / 2;
         g2d.drawString(text, textX, panelY + 150);
     }
     
-    private static void drawInstructionsPanel(Graphics2D g2d, int x, int y, int width, int height) {
+    private static final String[] INSTRUCTIONS = {
+        "🎮 WASD: Move  |  🖱️ Mouse: Aim  |  🔫 Left Click: Shoot  |  🗺️ 1-4: Switch Maps",
+        "🤖 Enemy Types: A=Aggressive, D=Defensive, P=Patrol  |  💥 Eliminate all hostiles to survive!"
+    };
+    
+    static void drawInstructionsPanel(Graphics2D g2d, int x, int y, int width, int height) {
         // Panel background
-        g2d.setColor(new Color(UI_BACKGROUND.getRed(), UI_BACKGROUND.getGreen(), UI_BACKGROUND.getBlue(), 150));
+        g2d.setColor(INSTRUCTIONS_BACKGROUND);
         g2d.fillRoundRect(x, y, width, height, 10, 10);
         
         // Instructions text
-        g2d.setColor(new Color(220, 220, 220));
-        g2d.setFont(new Font("Arial", Font.PLAIN, 12));
+        g2d.setColor(RenderResources.GRAY_220);
+        g2d.setFont(RenderResources.PLAIN_12);
         
-        String[] instructions = {
-            "🎮 WASD: Move  |  🖱️ Mouse: Aim  |  🔫 Left Click: Shoot  |  🗺️ 1-3: Switch Maps",
-            "🤖 Enemy Types: A=Aggressive, D=Defensive, P=Patrol  |  💥 Eliminate all hostiles to survive!"
-        };
-        
-        for (int i = 0; i < instructions.length; i++) {
+        for (int i = 0; i < INSTRUCTIONS.length; i++) {
             FontMetrics fm = g2d.getFontMetrics();
-            int textX = x + (width - fm.stringWidth(instructions[i])) / 2;
-            g2d.drawString(instructions[i], textX, y + 25 + i * 20);
+            int textX = x + (width - fm.stringWidth(INSTRUCTIONS[i])) / 2;
+            g2d.drawString(INSTRUCTIONS[i], textX, y + 25 + i * 20);
         }
     }
     
@@ -220,26 +280,35 @@ public class ModernUI {
         drawGridPattern(g2d, width, height);
     }
     
+    private static final Color DUST2_BASE = new Color(139, 119, 101);
+    private static final Color DUST2_ACCENT = new Color(160, 140, 120);
+    private static final Color OFFICE_BASE = new Color(240, 240, 245);
+    private static final Color OFFICE_ACCENT = new Color(220, 220, 230);
+    private static final Color MIRAGE_BASE = new Color(205, 180, 140);
+    private static final Color MIRAGE_ACCENT = new Color(225, 200, 160);
+    private static final Color DEFAULT_BASE = new Color(60, 80, 60);
+    private static final Color DEFAULT_ACCENT = new Color(80, 100, 80);
+    
     private static void drawTexturedBackground(Graphics2D g2d, int width, int height, String mapName) {
         Color baseColor;
         Color accentColor;
         
         switch (mapName.toLowerCase()) {
             case "dust2":
-                baseColor = new Color(139, 119, 101); // Desert sand
-                accentColor = new Color(160, 140, 120);
+                baseColor = DUST2_BASE; // Desert sand
+                accentColor = DUST2_ACCENT;
                 break;
             case "office":
-                baseColor = new Color(240, 240, 245); // Office white
-                accentColor = new Color(220, 220, 230);
+                baseColor = OFFICE_BASE; // Office white
+                accentColor = OFFICE_ACCENT;
                 break;
             case "mirage":
-                baseColor = new Color(205, 180, 140); // Mediterranean stone
-                accentColor = new Color(225, 200, 160);
+                baseColor = MIRAGE_BASE; // Mediterranean stone
+                accentColor = MIRAGE_ACCENT;
                 break;
             default:
-                baseColor = new Color(60, 80, 60); // Default green
-                accentColor = new Color(80, 100, 80);
+                baseColor = DEFAULT_BASE; // Default green
+                accentColor = DEFAULT_ACCENT;
                 break;
         }
         
@@ -250,8 +319,8 @@ public class ModernUI {
     }
     
     private static void drawGridPattern(Graphics2D g2d, int width, int height) {
-        g2d.setColor(new Color(255, 255, 255, 15)); // Very subtle white grid
-        g2d.setStroke(new BasicStroke(1));
+        g2d.setColor(RenderResources.WHITE_15); // Very subtle white grid
+        g2d.setStroke(RenderResources.STROKE_1);
         
         int gridSize = 50;
         
@@ -0,0 +1,56 @@
+package com.yen.playCS;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class NavPath {
+    private int[] cells = new int[32];
+    private int length;
+    private int index;
+
+    public void clear() {
+        length = 0;
+        index = 0;
+    }
+
+    // Paths are written goal-first by the planner, then reversed once complete
+    void append(int cell) {
+        if (length == cells.length) {
+            cells = Arrays.copyOf(cells, length * 2);
+        }
+        cells[length++] = cell;
+    }
+
+    void reverse() {
+        for (int i = 0, j = length - 1; i < j; i++, j--) {
+            int swap = cells[i];
+            cells[i] = cells[j];
+            cells[j] = swap;
+        }
+        index = 0;
+    }
+
+    void writeState(ByteBuffer out) {
+        out.putInt(length).putInt(index);
+        for (int i = 0; i < length; i++) {
+            out.putInt(cells[i]);
+        }
+    }
+
+    void readState(ByteBuffer in) {
+        clear();
+        int saved = in.getInt();
+        int savedIndex = in.getInt();
+        for (int i = 0; i < saved; i++) {
+            append(in.getInt());
+        }
+        index = savedIndex;
+    }
+
+    public boolean hasNext() { return index < length; }
+    public int current() { return cells[index]; }
+    public void advance() { index++; }
+    public boolean isLast() { return index == length - 1; }
+    public int length() { return length; }
+    public int get(int i) { return cells[i]; }
+}
@@ -0,0 +1,90 @@
+package com.yen.playCS;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class NavigationGrid {
+    private final double cellSize;
+    private final int cols, rows;
+    private final boolean[] walkable;
+    private static final int SNAP_RADIUS = 2;
+
+    public NavigationGrid(List<MapElement> elements, double worldWidth, double worldHeight, double cellSize) {
+        this.cellSize = cellSize;
+        this.cols = (int) Math.ceil(worldWidth / cellSize);
+        this.rows = (int) Math.ceil(worldHeight / cellSize);
+        this.walkable = new boolean[cols * rows];
+        Arrays.fill(walkable, true);
+
+        // A cell is blocked if any movement blocker overlaps its interior
+        for (MapElement element : elements) {
+            if (!element.blocksMovement()) continue;
+            double minX = element.getX();
+            double minY = element.getY();
+            double maxX = minX + element.getWidth();
+            double maxY = minY + element.getHeight();
+
+            int minCol = Math.max(0, (int) Math.floor(minX / cellSize));
+            int maxCol = Math.min(cols - 1, (int) Math.ceil(maxX / cellSize) - 1);
+            int minRow = Math.max(0, (int) Math.floor(minY / cellSize));
+            int maxRow = Math.min(rows - 1, (int) Math.ceil(maxY / cellSize) - 1);
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int col = minCol; col <= maxCol; col++) {
+                    walkable[row * cols + col] = false;
+                }
+            }
+        }
+    }
+
+    public int cellAt(double x, double y) {
+        int col = (int) Math.floor(x / cellSize);
+        int row = (int) Math.floor(y / cellSize);
+        if (col < 0 || row < 0 || col >= cols || row >= rows) return -1;
+        return row * cols + col;
+    }
+
+    public boolean isWalkable(int cell) {
+        return cell >= 0 && cell < walkable.length && walkable[cell];
+    }
+
+    public boolean isWalkable(int col, int row) {
+        return col >= 0 && row >= 0 && col < cols && row < rows && walkable[row * cols + col];
+    }
+
+    // Walkable cell with the centre closest to a point, for goals and actors that sit partly inside
+    // a blocked cell. Only looks a couple of cells out, -1 if nothing nearby is walkable.
+    public int nearestWalkable(double x, double y) {
+        int cell = cellAt(x, y);
+        if (isWalkable(cell)) return cell;
+        int col = (int) Math.floor(x / cellSize);
+        int row = (int) Math.floor(y / cellSize);
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        for (int r = row - SNAP_RADIUS; r <= row + SNAP_RADIUS; r++) {
+            for (int c = col - SNAP_RADIUS; c <= col + SNAP_RADIUS; c++) {
+                if (!isWalkable(c, r)) continue;
+                double dx = (c + 0.5) * cellSize - x;
+                double dy = (r + 0.5) * cellSize - y;
+                double distance = dx * dx + dy * dy;
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = r * cols + c;
+                }
+            }
+        }
+        return best;
+    }
+
+    public double centerX(int cell) {
+        return (cell % cols + 0.5) * cellSize;
+    }
+
+    public double centerY(int cell) {
+        return (cell / cols + 0.5) * cellSize;
+    }
+
+    public double getCellSize() { return cellSize; }
+    public int getCols() { return cols; }
+    public int getRows() { return rows; }
+    public int getCellCount() { return cols * rows; }
+}
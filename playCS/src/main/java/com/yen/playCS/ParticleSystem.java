@@ -0,0 +1,151 @@
+package com.yen.playCS;
+
+import java.awt.*;
+
+public class ParticleSystem {
+    private static final double FRICTION = 0.95; // Velocity kept per reference tick
+
+    private final int capacity;
+    private final double[] x, y, vx, vy;
+    private final int[] size;
+    private final long[] birthTick;
+    private final int[] lifeTicks;
+    private final Color[][] ramp;
+
+    // Ring buffer of live slots, oldest at head
+    private int head;
+    private int count;
+    private long tick;
+    private long compactedAt = -1; // Tick expired slots were last squeezed out at
+    private long dropped;
+
+    public ParticleSystem(int capacity) {
+        this.capacity = capacity;
+        this.x = new double[capacity];
+        this.y = new double[capacity];
+        this.vx = new double[capacity];
+        this.vy = new double[capacity];
+        this.size = new int[capacity];
+        this.birthTick = new long[capacity];
+        this.lifeTicks = new int[capacity];
+        this.ramp = new Color[capacity][];
+    }
+
+    // Born on the clock's current tick. When the budget is full, particles that have already expired
+    // make room first; only then is the oldest live particle recycled, so bursts never allocate.
+    public void spawn(double startX, double startY, double angle, double speed, int particleSize,
+                      int life, Color[] colorRamp, GameClock clock) {
+        long now = clock.getTick();
+        if (count == capacity && compactedAt != now) {
+            compact(now);
+        }
+        if (count == capacity) {
+            ramp[head] = null;
+            head = next(head);
+            count--;
+            dropped++;
+        }
+        int i = head + count;
+        if (i >= capacity) i -= capacity;
+        count++;
+
+        x[i] = startX;
+        y[i] = startY;
+        vx[i] = Math.cos(angle) * speed;
+        vy[i] = Math.sin(angle) * speed;
+        size[i] = particleSize;
+        birthTick[i] = now;
+        lifeTicks[i] = life;
+        ramp[i] = colorRamp;
+    }
+
+    public void update(GameClock clock) {
+        tick = clock.getTick();
+        double stepScale = clock.getStepScale();
+        double friction = Math.pow(FRICTION, stepScale);
+
+        for (int n = 0, i = head; n < count; n++, i = next(i)) {
+            x[i] += vx[i] * stepScale;
+            y[i] += vy[i] * stepScale;
+            vx[i] *= friction;
+            vy[i] *= friction;
+        }
+
+        compact(tick);
+    }
+
+    // Drops every particle expired by the given tick, keeping the rest in spawn order from the head.
+    // Lifetimes differ, so an expired spark can sit behind a long-lived blood drop.
+    private void compact(long now) {
+        int kept = 0;
+        int write = head;
+        for (int n = 0, i = head; n < count; n++, i = next(i)) {
+            if (now - birthTick[i] > lifeTicks[i]) continue;
+            if (write != i) {
+                x[write] = x[i];
+                y[write] = y[i];
+                vx[write] = vx[i];
+                vy[write] = vy[i];
+                size[write] = size[i];
+                birthTick[write] = birthTick[i];
+                lifeTicks[write] = lifeTicks[i];
+                ramp[write] = ramp[i];
+            }
+            write = next(write);
+            kept++;
+        }
+        for (int n = kept; n < count; n++, write = next(write)) {
+            ramp[write] = null;
+        }
+        count = kept;
+        compactedAt = now;
+    }
+
+    public void render(Graphics2D g2d) {
+        for (int n = 0, i = head; n < count; n++, i = next(i)) {
+            float alpha = 1.0f - (float) (tick - birthTick[i]) / lifeTicks[i];
+            if (alpha <= 0) continue;
+
+            g2d.setColor(RenderResources.fade(ramp[i], alpha, 255));
+            int s = size[i];
+            g2d.fillRect((int) (x[i] - s / 2.0), (int) (y[i] - s / 2.0), s, s);
+        }
+    }
+
+    // Live particles in spawn order, for the render thread's copy of the frame.
+    // A smaller pool keeps only the newest particles that fit.
+    void copyFrom(ParticleSystem from) {
+        clear();
+        int copied = Math.min(from.count, capacity);
+        int first = from.head + (from.count - copied);
+        if (first >= from.capacity) first -= from.capacity;
+        for (int k = 0, i = first; k < copied; k++, i = from.next(i)) {
+            x[k] = from.x[i];
+            y[k] = from.y[i];
+            vx[k] = from.vx[i];
+            vy[k] = from.vy[i];
+            size[k] = from.size[i];
+            birthTick[k] = from.birthTick[i];
+            lifeTicks[k] = from.lifeTicks[i];
+            ramp[k] = from.ramp[i];
+        }
+        count = copied;
+        tick = from.tick;
+    }
+
+    private int next(int i) {
+        return i + 1 == capacity ? 0 : i + 1;
+    }
+
+    public void clear() {
+        for (int n = 0, i = head; n < count; n++, i = next(i)) {
+            ramp[i] = null;
+        }
+        head = 0;
+        count = 0;
+    }
+
+    public int size() { return count; }
+    public int capacity() { return capacity; }
+    public long getDroppedCount() { return dropped; }
+}
@@ -0,0 +1,135 @@
+package com.yen.playCS;
+
+public class PathPlanner {
+    private static final double DIAGONAL_COST = Math.sqrt(2);
+    private static final int[] NEIGHBOR_DX = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] NEIGHBOR_DY = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    private final NavigationGrid grid;
+
+    // Search state is reused between calls, a stamp marks which entries belong to the current search
+    private final double[] gScore;
+    private final double[] fScore;
+    private final int[] parent;
+    private final int[] visitStamp;
+    private final boolean[] closed;
+    private final int[] heap;
+    private final int[] heapIndex;
+    private int heapSize;
+    private int stamp;
+
+    public PathPlanner(NavigationGrid grid) {
+        this.grid = grid;
+        int cells = grid.getCellCount();
+        this.gScore = new double[cells];
+        this.fScore = new double[cells];
+        this.parent = new int[cells];
+        this.visitStamp = new int[cells];
+        this.closed = new boolean[cells];
+        this.heap = new int[cells];
+        this.heapIndex = new int[cells];
+    }
+
+    // A* over the 8-connected grid, no corner cutting. Writes start..goal cells into path.
+    public boolean findPath(int start, int goal, NavPath path) {
+        path.clear();
+        if (!grid.isWalkable(start) || !grid.isWalkable(goal)) return false;
+
+        stamp++;
+        heapSize = 0;
+        open(start, -1, 0, goal);
+
+        int cols = grid.getCols();
+        while (heapSize > 0) {
+            int current = pop();
+            if (current == goal) {
+                for (int cell = goal; cell != -1; cell = parent[cell]) {
+                    path.append(cell);
+                }
+                path.reverse();
+                return true;
+            }
+            closed[current] = true;
+
+            int col = current % cols;
+            int row = current / cols;
+            for (int n = 0; n < NEIGHBOR_DX.length; n++) {
+                int nc = col + NEIGHBOR_DX[n];
+                int nr = row + NEIGHBOR_DY[n];
+                if (!grid.isWalkable(nc, nr)) continue;
+
+                boolean diagonal = n >= 4;
+                if (diagonal && (!grid.isWalkable(nc, row) || !grid.isWalkable(col, nr))) continue;
+
+                int neighbor = nr * cols + nc;
+                double g = gScore[current] + (diagonal ? DIAGONAL_COST : 1);
+                if (visitStamp[neighbor] != stamp) {
+                    open(neighbor, current, g, goal);
+                } else if (!closed[neighbor] && g < gScore[neighbor]) {
+                    parent[neighbor] = current;
+                    gScore[neighbor] = g;
+                    fScore[neighbor] = g + heuristic(neighbor, goal);
+                    siftUp(heapIndex[neighbor]);
+                }
+            }
+        }
+        return false;
+    }
+
+    private void open(int cell, int from, double g, int goal) {
+        visitStamp[cell] = stamp;
+        closed[cell] = false;
+        parent[cell] = from;
+        gScore[cell] = g;
+        fScore[cell] = g + heuristic(cell, goal);
+        heap[heapSize] = cell;
+        heapIndex[cell] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    // Octile distance, admissible for 8-way movement
+    private double heuristic(int cell, int goal) {
+        int cols = grid.getCols();
+        int dx = Math.abs(cell % cols - goal % cols);
+        int dy = Math.abs(cell / cols - goal / cols);
+        return Math.max(dx, dy) + (DIAGONAL_COST - 1) * Math.min(dx, dy);
+    }
+
+    private int pop() {
+        int top = heap[0];
+        heap[0] = heap[--heapSize];
+        heapIndex[heap[0]] = 0;
+        siftDown(0);
+        return top;
+    }
+
+    private void siftUp(int i) {
+        int cell = heap[i];
+        while (i > 0) {
+            int parentSlot = (i - 1) / 2;
+            if (fScore[heap[parentSlot]] <= fScore[cell]) break;
+            heap[i] = heap[parentSlot];
+            heapIndex[heap[i]] = i;
+            i = parentSlot;
+        }
+        heap[i] = cell;
+        heapIndex[cell] = i;
+    }
+
+    private void siftDown(int i) {
+        int cell = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && fScore[heap[child + 1]] < fScore[heap[child]]) child++;
+            if (fScore[heap[child]] >= fScore[cell]) break;
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = cell;
+        heapIndex[cell] = i;
+    }
+
+    public NavigationGrid getGrid() { return grid; }
+}
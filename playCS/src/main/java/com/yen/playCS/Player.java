@@ -1,30 +1,41 @@
 package com.yen.playCS;
 
 import java.awt.*;
+import java.nio.ByteBuffer;
 
 public class Player {
     private double x, y;
+    private double prevX, prevY; // Position at the end of the previous tick, for interpolation
     private double mouseX, mouseY;
     private int health;
     private int ammo;
     private double angle;
+    private FireMode fireMode;
+    private int id; // Entity id, shared with enemies, that snapshots identify this player by
+    private boolean networked; // Driven by inputs from a remote client instead of the keyboard
+    private final PlayerInput input = new PlayerInput(); // Latest input applied on the server
+    private final PositionHistory history = new PositionHistory();
     private static final double MOVE_SPEED = 3.0;
     private static final double PLAYER_SIZE = 20;
     
     public Player(double x, double y) {
         this.x = x;
         this.y = y;
+        this.prevX = x;
+        this.prevY = y;
         this.health = 100;
         this.ammo = 30;
         this.angle = 0;
+        this.fireMode = FireMode.PROJECTILE;
     }
     
-    public void move(double deltaX, double deltaY, GameWorld world) {
+    public void move(double deltaX, double deltaY, GameWorld world, GameClock clock) {
         if (deltaX == 0 && deltaY == 0) return;
         
         double length = Math.sqrt(deltaX * deltaX + deltaY * deltaY);
-        deltaX = (deltaX / length) * MOVE_SPEED;
-        deltaY = (deltaY / length) * MOVE_SPEED;
+        double speed = MOVE_SPEED * clock.getStepScale();
+        deltaX = (deltaX / length) * speed;
+        deltaY = (deltaY / length) * speed;
         
         double newX = x + deltaX;
         double newY = y + deltaY;
@@ -35,6 +46,16 @@ public class Player {
         }
     }
     
+    // Position drawn for a frame alpha of the way from the previous tick to this one
+    public double getRenderX(double alpha) { return prevX + (x - prevX) * alpha; }
+    public double getRenderY(double alpha) { return prevY + (y - prevY) * alpha; }
+    
+    // Called at the start of every tick, before anything moves
+    public void storePreviousPosition() {
+        prevX = x;
+        prevY = y;
+    }
+    
     public void updateMousePosition(double mouseX, double mouseY) {
         this.mouseX = mouseX;
         this.mouseY = mouseY;
@@ -44,74 +65,110 @@ public class Player {
         this.angle = Math.atan2(dy, dx);
     }
     
-    public Projectile shoot() {
-        if (ammo <= 0) return null;
+    public void setAngle(double angle) {
+        this.angle = angle;
+    }
+    
+    public void setPosition(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+    
+    // Moves without drawing the way there, e.g. to a spawn on a new map
+    public void relocate(double x, double y) {
+        setPosition(x, y);
+        storePreviousPosition();
+    }
+    
+    // Overwrites the simulated state with an authoritative one, e.g. from a server snapshot
+    public void setState(double x, double y, double angle, int health, int ammo) {
+        this.x = x;
+        this.y = y;
+        this.angle = angle;
+        this.health = health;
+        this.ammo = ammo;
+    }
+    
+    public boolean shoot(ProjectileSystem projectiles, HitscanResolver hitscan) {
+        if (ammo <= 0) return false;
         
         ammo--;
         
         double bulletStartX = x + Math.cos(angle) * (PLAYER_SIZE / 2 + 5);
         double bulletStartY = y + Math.sin(angle) * (PLAYER_SIZE / 2 + 5);
         
-        return new Projectile(bulletStartX, bulletStartY, angle);
+        if (fireMode == FireMode.HITSCAN) {
+            hitscan.fireHitscan(bulletStartX, bulletStartY, angle, ProjectileSystem.OWNER_PLAYER);
+        } else {
+            projectiles.spawn(bulletStartX, bulletStartY, angle, ProjectileSystem.OWNER_PLAYER);
+        }
+        return true;
     }
     
-    public void render(Graphics2D g2d) {
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        
+    public void render(Graphics2D g2d, double alpha, SpriteAtlas sprites) {
         if (health <= 0) return; // Don't render if dead
         
+        // Draw between the last two simulation ticks
+        int rx = (int) (prevX + (x - prevX) * alpha);
+        int ry = (int) (prevY + (y - prevY) * alpha);
+        
+        sprites.drawPlayer(g2d, rx, ry, angle);
+        
+        // Health indicator (only show when damaged)
+        if (health < 100) {
+            sprites.drawPlayerHealthBar(g2d, rx, ry, health);
+        }
+    }
+    
+    // Vector drawing below is only run by SpriteAtlas, which rasterizes it once per rotation
+    static void paintBody(Graphics2D g2d, double rx, double ry, double angle) {
         // Player body (Counter-Terrorist blue)
         Color bodyColor = new Color(0, 100, 200);
         Color bodyHighlight = new Color(50, 150, 255);
         
         // Create gradient for body
         GradientPaint bodyGradient = new GradientPaint(
-            (float)(x - PLAYER_SIZE/2), (float)(y - PLAYER_SIZE/2), bodyHighlight,
-            (float)(x + PLAYER_SIZE/2), (float)(y + PLAYER_SIZE/2), bodyColor
+            (float)(rx - PLAYER_SIZE/2), (float)(ry - PLAYER_SIZE/2), bodyHighlight,
+            (float)(rx + PLAYER_SIZE/2), (float)(ry + PLAYER_SIZE/2), bodyColor
         );
         g2d.setPaint(bodyGradient);
-        g2d.fillOval((int)(x - PLAYER_SIZE/2), (int)(y - PLAYER_SIZE/2), (int)PLAYER_SIZE, (int)PLAYER_SIZE);
+        g2d.fillOval((int)(rx - PLAYER_SIZE/2), (int)(ry - PLAYER_SIZE/2), (int)PLAYER_SIZE, (int)PLAYER_SIZE);
         
         // Body border
         g2d.setColor(new Color(0, 50, 150));
-        g2d.setStroke(new BasicStroke(2));
-        g2d.drawOval((int)(x - PLAYER_SIZE/2), (int)(y - PLAYER_SIZE/2), (int)PLAYER_SIZE, (int)PLAYER_SIZE);
+        g2d.setStroke(RenderResources.STROKE_2);
+        g2d.drawOval((int)(rx - PLAYER_SIZE/2), (int)(ry - PLAYER_SIZE/2), (int)PLAYER_SIZE, (int)PLAYER_SIZE);
         
         // Weapon
-        g2d.setColor(new Color(60, 60, 60)); // Gun metal color
-        g2d.setStroke(new BasicStroke(4));
+        g2d.setColor(RenderResources.GRAY_60); // Gun metal color
+        g2d.setStroke(RenderResources.STROKE_4);
         double gunLength = 28;
-        double gunEndX = x + Math.cos(angle) * gunLength;
-        double gunEndY = y + Math.sin(angle) * gunLength;
-        g2d.drawLine((int)x, (int)y, (int)gunEndX, (int)gunEndY);
+        double gunEndX = rx + Math.cos(angle) * gunLength;
+        double gunEndY = ry + Math.sin(angle) * gunLength;
+        g2d.drawLine((int)rx, (int)ry, (int)gunEndX, (int)gunEndY);
         
         // Gun barrel
-        g2d.setColor(new Color(40, 40, 40));
-        g2d.setStroke(new BasicStroke(2));
-        g2d.drawLine((int)(x + Math.cos(angle) * 20), (int)(y + Math.sin(angle) * 20), 
+        g2d.setColor(RenderResources.GRAY_40);
+        g2d.setStroke(RenderResources.STROKE_2);
+        g2d.drawLine((int)(rx + Math.cos(angle) * 20), (int)(ry + Math.sin(angle) * 20), 
                      (int)gunEndX, (int)gunEndY);
         
         // Player direction indicator (small arrow)
         g2d.setColor(Color.WHITE);
         double arrowSize = 6;
-        double arrowX = x + Math.cos(angle) * 12;
-        double arrowY = y + Math.sin(angle) * 12;
+        double arrowX = rx + Math.cos(angle) * 12;
+        double arrowY = ry + Math.sin(angle) * 12;
         g2d.fillOval((int)(arrowX - 2), (int)(arrowY - 2), 4, 4);
-        
-        // Health indicator (only show when damaged)
-        if (health < 100) {
-            drawHealthBar(g2d);
-        }
     }
     
-    private void drawHealthBar(Graphics2D g2d) {
+    static void paintHealthBar(Graphics2D g2d, double rx, double ry, int health) {
         int barWidth = (int)PLAYER_SIZE;
         int barHeight = 4;
-        int barX = (int)(x - barWidth/2);
-        int barY = (int)(y - PLAYER_SIZE/2 - 8);
+        int barX = (int)(rx - barWidth/2);
+        int barY = (int)(ry - PLAYER_SIZE/2 - 8);
         
         // Background
-        g2d.setColor(new Color(60, 60, 60));
+        g2d.setColor(RenderResources.GRAY_60);
         g2d.fillRect(barX, barY, barWidth, barHeight);
         
         // Health fill
@@ -125,7 +182,7 @@ public class Player {
         
         // Border
         g2d.setColor(Color.WHITE);
-        g2d.setStroke(new BasicStroke(1));
+        g2d.setStroke(RenderResources.STROKE_1);
         g2d.drawRect(barX, barY, barWidth, barHeight);
     }
     
@@ -140,10 +197,58 @@ public class Player {
         return Math.sqrt(dx * dx + dy * dy) <= PLAYER_SIZE / 2;
     }
     
+    // Copies what render() and the HUD draw, into the render thread's copy of the frame
+    void copyRenderState(Player from) {
+        x = from.x;
+        y = from.y;
+        prevX = from.prevX;
+        prevY = from.prevY;
+        angle = from.angle;
+        health = from.health;
+        ammo = from.ammo;
+        fireMode = from.fireMode;
+        id = from.id;
+    }
+    
+    // Everything the simulation reads, for replay keyframes
+    void writeState(ByteBuffer out) {
+        out.putDouble(x).putDouble(y).putDouble(prevX).putDouble(prevY);
+        out.putDouble(mouseX).putDouble(mouseY).putDouble(angle);
+        out.putInt(health).putInt(ammo).putInt(fireMode.ordinal()).putInt(id);
+        out.put((byte) (networked ? 1 : 0));
+        out.putInt(input.getSequence()).putInt(input.getButtons()).putInt(input.getAim()).putInt(input.getViewTick());
+        history.writeState(out);
+    }
+    
+    void readState(ByteBuffer in) {
+        x = in.getDouble();
+        y = in.getDouble();
+        prevX = in.getDouble();
+        prevY = in.getDouble();
+        mouseX = in.getDouble();
+        mouseY = in.getDouble();
+        angle = in.getDouble();
+        health = in.getInt();
+        ammo = in.getInt();
+        fireMode = FireMode.values()[in.getInt()];
+        id = in.getInt();
+        networked = in.get() != 0;
+        input.setRaw(in.getInt(), in.getInt(), in.getInt(), in.getInt());
+        history.readState(in);
+    }
+    
     public double getX() { return x; }
     public double getY() { return y; }
     public int getHealth() { return health; }
     public int getAmmo() { return ammo; }
     public double getSize() { return PLAYER_SIZE; }
     public double getAngle() { return angle; }
+    public FireMode getFireMode() { return fireMode; }
+    public void setFireMode(FireMode fireMode) { this.fireMode = fireMode; }
+    public int getId() { return id; }
+    public void setId(int id) { this.id = id; }
+    public boolean isNetworked() { return networked; }
+    public void setNetworked(boolean networked) { this.networked = networked; }
+    public PlayerInput getInput() { return input; }
+    public PositionHistory getHistory() { return history; }
 }
\ No newline at end of file
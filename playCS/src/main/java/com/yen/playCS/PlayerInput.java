@@ -0,0 +1,78 @@
+package com.yen.playCS;
+
+// One tick of player commands, the only thing clients send to an authoritative server
+public final class PlayerInput {
+    public static final int UP = 1;
+    public static final int DOWN = 1 << 1;
+    public static final int LEFT = 1 << 2;
+    public static final int RIGHT = 1 << 3;
+    public static final int FIRE = 1 << 4;
+    public static final int REMOTE_BUTTONS = UP | DOWN | LEFT | RIGHT | FIRE; // All a remote client may send
+
+    // Match commands, only honoured from the local player's input
+    public static final int TOGGLE_FIRE_MODE = 1 << 5;
+    private static final int MAP_SHIFT = 6; // Three bits holding map index + 1, zero for no switch
+
+    private static final double ANGLE_STEPS = 65536; // Aim is sent as a 16-bit fraction of a turn
+
+    private int sequence;
+    private int buttons;
+    private int aim;
+    private int viewTick = -1; // Newest snapshot the client was showing when it sampled this input
+
+    public void set(int sequence, int buttons, double angle) {
+        this.sequence = sequence;
+        this.buttons = buttons;
+        this.aim = quantizeAngle(angle);
+    }
+
+    public void copyFrom(PlayerInput other) {
+        this.sequence = other.sequence;
+        this.buttons = other.buttons;
+        this.aim = other.aim;
+        this.viewTick = other.viewTick;
+    }
+
+    public static int quantizeAngle(double angle) {
+        double turns = angle / (Math.PI * 2);
+        return (int) Math.round((turns - Math.floor(turns)) * ANGLE_STEPS) & 0xFFFF;
+    }
+
+    public static double dequantizeAngle(int aim) {
+        double angle = (aim & 0xFFFF) / ANGLE_STEPS * Math.PI * 2;
+        return angle > Math.PI ? angle - Math.PI * 2 : angle;
+    }
+
+    public double getMoveX() {
+        return ((buttons & RIGHT) != 0 ? 1 : 0) - ((buttons & LEFT) != 0 ? 1 : 0);
+    }
+
+    public double getMoveY() {
+        return ((buttons & DOWN) != 0 ? 1 : 0) - ((buttons & UP) != 0 ? 1 : 0);
+    }
+
+    public static int switchMap(int mapIndex) {
+        return (mapIndex + 1) << MAP_SHIFT;
+    }
+
+    // Map index to switch to this tick, -1 for none
+    public int getMapSwitch() {
+        return ((buttons >> MAP_SHIFT) & 0x7) - 1;
+    }
+
+    public boolean isFiring() { return (buttons & FIRE) != 0; }
+    public boolean isTogglingFireMode() { return (buttons & TOGGLE_FIRE_MODE) != 0; }
+    public int getSequence() { return sequence; }
+    public int getButtons() { return buttons; }
+    public int getAim() { return aim; }
+    public double getAngle() { return dequantizeAngle(aim); }
+    public int getViewTick() { return viewTick; }
+    public void setViewTick(int viewTick) { this.viewTick = viewTick; }
+
+    void setRaw(int sequence, int buttons, int aim, int viewTick) {
+        this.sequence = sequence;
+        this.buttons = buttons;
+        this.aim = aim & 0xFFFF;
+        this.viewTick = viewTick;
+    }
+}
@@ -0,0 +1,52 @@
+package com.yen.playCS;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Where one actor was at the end of each recent tick, so the server can test a shot against
+// the world as the shooting client saw it
+public final class PositionHistory {
+    public static final int CAPACITY = 64; // Ticks kept, a second at the default tick rate
+    private static final int MASK = CAPACITY - 1;
+
+    private final int[] ticks = new int[CAPACITY];
+    private final double[] xs = new double[CAPACITY];
+    private final double[] ys = new double[CAPACITY];
+
+    public PositionHistory() {
+        clear();
+    }
+
+    public void record(int tick, double x, double y) {
+        int slot = tick & MASK;
+        ticks[slot] = tick;
+        xs[slot] = x;
+        ys[slot] = y;
+    }
+
+    public void clear() {
+        Arrays.fill(ticks, -1);
+    }
+
+    // False if the tick was never recorded or has been overwritten since
+    public boolean has(int tick) {
+        return tick >= 0 && ticks[tick & MASK] == tick;
+    }
+
+    void writeState(ByteBuffer out) {
+        for (int i = 0; i < CAPACITY; i++) {
+            out.putInt(ticks[i]).putDouble(xs[i]).putDouble(ys[i]);
+        }
+    }
+
+    void readState(ByteBuffer in) {
+        for (int i = 0; i < CAPACITY; i++) {
+            ticks[i] = in.getInt();
+            xs[i] = in.getDouble();
+            ys[i] = in.getDouble();
+        }
+    }
+
+    public double getX(int tick) { return xs[tick & MASK]; }
+    public double getY(int tick) { return ys[tick & MASK]; }
+}
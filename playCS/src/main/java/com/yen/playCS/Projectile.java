@@ -5,8 +5,8 @@ import java.awt.*;
 public class Projectile {
     private double x, y;
     private double velocityX, velocityY;
-    private static final double SPEED = 8.0;
-    private static final double SIZE = 4.0;
+    static final double SPEED = 8.0;
+    static final double SIZE = 4.0;
     
     public Projectile(double x, double y, double angle) {
         this.x = x;
@@ -15,9 +15,10 @@ public class Projectile {
         this.velocityY = Math.sin(angle) * SPEED;
     }
     
-    public void update() {
-        x += velocityX;
-        y += velocityY;
+    public void update(GameClock clock) {
+        double scale = clock.getStepScale();
+        x += velocityX * scale;
+        y += velocityY * scale;
     }
     
     public boolean isOutOfBounds(int windowWidth, int windowHeight) {
@@ -0,0 +1,190 @@
+package com.yen.playCS;
+
+import java.awt.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class ProjectileSystem {
+    public static final int OWNER_PLAYER = 0;
+    public static final int OWNER_AI = 1;
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // Structure-of-arrays storage, slots [0, count) are in use
+    private double[] x, y, vx, vy;
+    private double[] prevX, prevY; // Position at the start of the last tick
+    private int[] owner;
+    private int[] ids; // Stable for the projectile's life, so snapshots can delta-encode it
+    private boolean[] alive;
+    private int count;
+    private int nextId;
+
+    public ProjectileSystem() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public ProjectileSystem(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        x = new double[capacity];
+        y = new double[capacity];
+        vx = new double[capacity];
+        vy = new double[capacity];
+        prevX = new double[capacity];
+        prevY = new double[capacity];
+        owner = new int[capacity];
+        ids = new int[capacity];
+        alive = new boolean[capacity];
+    }
+
+    public int spawn(double startX, double startY, double angle, int ownerId) {
+        if (count == x.length) {
+            grow();
+        }
+        int i = count++;
+        x[i] = startX;
+        y[i] = startY;
+        prevX[i] = startX;
+        prevY[i] = startY;
+        vx[i] = Math.cos(angle) * Projectile.SPEED;
+        vy[i] = Math.sin(angle) * Projectile.SPEED;
+        owner[i] = ownerId;
+        ids[i] = nextId++;
+        alive[i] = true;
+        return i;
+    }
+
+    public void update(GameClock clock) {
+        double scale = clock.getStepScale();
+        for (int i = 0; i < count; i++) {
+            prevX[i] = x[i];
+            prevY[i] = y[i];
+            x[i] += vx[i] * scale;
+            y[i] += vy[i] * scale;
+        }
+    }
+
+    public void kill(int i) {
+        alive[i] = false;
+    }
+
+    // Swap-remove dead slots so the live range stays dense, O(n) per pass
+    public void compact() {
+        int i = 0;
+        while (i < count) {
+            if (alive[i]) {
+                i++;
+                continue;
+            }
+            int last = --count;
+            if (i != last) {
+                x[i] = x[last];
+                y[i] = y[last];
+                vx[i] = vx[last];
+                vy[i] = vy[last];
+                prevX[i] = prevX[last];
+                prevY[i] = prevY[last];
+                owner[i] = owner[last];
+                ids[i] = ids[last];
+                alive[i] = alive[last];
+            }
+            alive[last] = false;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(alive, 0, count, false);
+        count = 0;
+    }
+
+    // Live slots only, for the render thread's copy of the frame
+    void copyFrom(ProjectileSystem from) {
+        while (x.length < from.count) {
+            grow();
+        }
+        count = 0;
+        for (int i = 0; i < from.count; i++) {
+            if (!from.alive[i]) continue;
+            x[count] = from.x[i];
+            y[count] = from.y[i];
+            prevX[count] = from.prevX[i];
+            prevY[count] = from.prevY[i];
+            vx[count] = from.vx[i];
+            vy[count] = from.vy[i];
+            owner[count] = from.owner[i];
+            ids[count] = from.ids[i];
+            alive[count] = true;
+            count++;
+        }
+    }
+
+    void writeState(ByteBuffer out) {
+        out.putInt(nextId);
+        out.putInt(count);
+        for (int i = 0; i < count; i++) {
+            out.putDouble(x[i]).putDouble(y[i]).putDouble(vx[i]).putDouble(vy[i])
+               .putDouble(prevX[i]).putDouble(prevY[i]);
+            out.putInt(owner[i]).putInt(ids[i]).put((byte) (alive[i] ? 1 : 0));
+        }
+    }
+
+    void readState(ByteBuffer in) {
+        clear();
+        nextId = in.getInt();
+        int saved = in.getInt();
+        while (x.length < saved) {
+            grow();
+        }
+        for (int i = 0; i < saved; i++) {
+            x[i] = in.getDouble();
+            y[i] = in.getDouble();
+            vx[i] = in.getDouble();
+            vy[i] = in.getDouble();
+            prevX[i] = in.getDouble();
+            prevY[i] = in.getDouble();
+            owner[i] = in.getInt();
+            ids[i] = in.getInt();
+            alive[i] = in.get() != 0;
+        }
+        count = saved;
+    }
+
+    private void grow() {
+        int capacity = x.length * 2;
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        prevX = Arrays.copyOf(prevX, capacity);
+        prevY = Arrays.copyOf(prevY, capacity);
+        owner = Arrays.copyOf(owner, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        alive = Arrays.copyOf(alive, capacity);
+    }
+
+    public void render(Graphics2D g2d, double alpha) {
+        render(g2d, alpha, null);
+    }
+    
+    // Skips projectiles outside the camera view when one is given
+    public void render(Graphics2D g2d, double alpha, Camera camera) {
+        g2d.setColor(Color.YELLOW);
+        int size = (int) Projectile.SIZE;
+        for (int i = 0; i < count; i++) {
+            if (!alive[i]) continue;
+            if (camera != null && !camera.isVisible(x[i], y[i], Projectile.SIZE)) continue;
+            double rx = prevX[i] + (x[i] - prevX[i]) * alpha;
+            double ry = prevY[i] + (y[i] - prevY[i]) * alpha;
+            g2d.fillOval((int) (rx - Projectile.SIZE / 2), (int) (ry - Projectile.SIZE / 2), size, size);
+        }
+    }
+
+    public int size() { return count; }
+    public int capacity() { return x.length; }
+    public double getX(int i) { return x[i]; }
+    public double getY(int i) { return y[i]; }
+    public double getPrevX(int i) { return prevX[i]; }
+    public double getPrevY(int i) { return prevY[i]; }
+    public int getOwner(int i) { return owner[i]; }
+    public int getId(int i) { return ids[i]; }
+    public boolean isAlive(int i) { return alive[i]; }
+}
@@ -0,0 +1,59 @@
+package com.yen.playCS;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The render thread's copy of everything a frame draws. It is filled under the engine lock, which
+// is only a handful of array copies, and drawn outside it so a slow frame never holds up a tick.
+// Actors are mirrored into pooled instances, so copying a frame doesn't allocate once warmed up.
+public class RenderFrame {
+    final Camera camera;
+    final List<Player> players = new ArrayList<>(); // Local player first
+    final List<AIEnemy> enemies = new ArrayList<>();
+    final ProjectileSystem projectiles = new ProjectileSystem();
+    final VisualEffects effects;
+    int playerCount;
+    int enemyCount;
+    int aliveEnemies;
+    GameWorld world;
+    String mapName;
+
+    public RenderFrame(int viewWidth, int viewHeight, int particleBudget) {
+        this.camera = new Camera(viewWidth, viewHeight);
+        this.effects = new VisualEffects(particleBudget, new GameRandom(0));
+    }
+
+    // Call holding the engine lock
+    void capture(GameWorld world, Camera engineCamera, List<Player> enginePlayers, List<AIEnemy> engineEnemies,
+                 ProjectileSystem engineProjectiles, VisualEffects engineEffects) {
+        this.world = world;
+        this.mapName = world.getMapName();
+        camera.copyFrom(engineCamera);
+
+        playerCount = enginePlayers.size();
+        while (players.size() < playerCount) {
+            players.add(new Player(0, 0));
+        }
+        for (int i = 0; i < playerCount; i++) {
+            players.get(i).copyRenderState(enginePlayers.get(i));
+        }
+
+        enemyCount = engineEnemies.size();
+        aliveEnemies = 0;
+        while (enemies.size() < enemyCount) {
+            enemies.add(new AIEnemy(0, 0, SpawnPoint.Team.TERRORIST, AIEnemy.AIBehavior.PATROL, new GameRandom(0)));
+        }
+        for (int i = 0; i < enemyCount; i++) {
+            AIEnemy enemy = engineEnemies.get(i);
+            enemies.get(i).copyRenderState(enemy);
+            if (enemy.isAlive()) aliveEnemies++;
+        }
+
+        projectiles.copyFrom(engineProjectiles);
+        effects.copyFrom(engineEffects);
+    }
+
+    public Player getLocalPlayer() { return players.get(0); }
+    public int getPlayerCount() { return playerCount; }
+    public int getEnemyCount() { return enemyCount; }
+}
@@ -0,0 +1,75 @@
+package com.yen.playCS;
+
+import java.awt.*;
+
+// Shared immutable paint objects, so render code never allocates fonts, strokes or colors per frame
+public final class RenderResources {
+    // Fonts
+    public static final Font PLAIN_10 = new Font("Arial", Font.PLAIN, 10);
+    public static final Font PLAIN_12 = new Font("Arial", Font.PLAIN, 12);
+    public static final Font PLAIN_16 = new Font("Arial", Font.PLAIN, 16);
+    public static final Font BOLD_10 = new Font("Arial", Font.BOLD, 10);
+    public static final Font BOLD_12 = new Font("Arial", Font.BOLD, 12);
+    public static final Font BOLD_14 = new Font("Arial", Font.BOLD, 14);
+    public static final Font BOLD_24 = new Font("Arial", Font.BOLD, 24);
+    public static final Font BOLD_36 = new Font("Arial", Font.BOLD, 36);
+    public static final Font MONO_11 = new Font(Font.MONOSPACED, Font.PLAIN, 11);
+
+    // Strokes
+    public static final BasicStroke STROKE_1 = new BasicStroke(1);
+    public static final BasicStroke STROKE_2 = new BasicStroke(2);
+    public static final BasicStroke STROKE_3 = new BasicStroke(3);
+    public static final BasicStroke STROKE_4 = new BasicStroke(4);
+    public static final BasicStroke DASHED_3 = new BasicStroke(3, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER,
+                                                               1.0f, new float[]{10, 5}, 0);
+
+    // Neutral colors
+    public static final Color GRAY_40 = new Color(40, 40, 40);
+    public static final Color GRAY_60 = new Color(60, 60, 60);
+    public static final Color GRAY_100 = new Color(100, 100, 100);
+    public static final Color GRAY_200 = new Color(200, 200, 200);
+    public static final Color GRAY_220 = new Color(220, 220, 220);
+    public static final Color WHITE_100 = new Color(255, 255, 255, 100);
+    public static final Color WHITE_15 = new Color(255, 255, 255, 15);
+    public static final Color BLACK_150 = new Color(0, 0, 0, 150);
+
+    // Fades index a 256-entry table by alpha instead of building a new Color
+    public static final Color[] YELLOW_RAMP = alphaRamp(Color.YELLOW);
+    public static final Color[] RED_RAMP = alphaRamp(Color.RED);
+    public static final Color[] TRACER_RAMP = alphaRamp(new Color(255, 240, 150));
+
+    // Variable-width lines snap to half-pixel steps
+    private static final int STROKE_STEPS_PER_PIXEL = 2;
+    private static final int MAX_STROKE_WIDTH = 16;
+    private static final BasicStroke[] STROKE_RAMP = strokeRamp();
+
+    private RenderResources() {
+    }
+
+    public static Color[] alphaRamp(Color base) {
+        Color[] ramp = new Color[256];
+        for (int alpha = 0; alpha < ramp.length; alpha++) {
+            ramp[alpha] = new Color(base.getRed(), base.getGreen(), base.getBlue(), alpha);
+        }
+        return ramp;
+    }
+
+    // alpha in [0, 1], scaled by maxAlpha in [0, 255]
+    public static Color fade(Color[] ramp, float alpha, int maxAlpha) {
+        int index = (int) (alpha * maxAlpha);
+        return ramp[Math.max(0, Math.min(255, index))];
+    }
+
+    public static BasicStroke stroke(float width) {
+        int index = Math.round(width * STROKE_STEPS_PER_PIXEL);
+        return STROKE_RAMP[Math.max(0, Math.min(STROKE_RAMP.length - 1, index))];
+    }
+
+    private static BasicStroke[] strokeRamp() {
+        BasicStroke[] ramp = new BasicStroke[MAX_STROKE_WIDTH * STROKE_STEPS_PER_PIXEL + 1];
+        for (int i = 0; i < ramp.length; i++) {
+            ramp[i] = new BasicStroke((float) i / STROKE_STEPS_PER_PIXEL);
+        }
+        return ramp;
+    }
+}
@@ -0,0 +1,219 @@
+package com.yen.playCS;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Reruns a recording from its seed and inputs, headless and as fast as the simulation allows.
+// Every KEYFRAME_INTERVAL ticks the full engine state is kept in memory, so seeking only ever
+// resimulates from the nearest keyframe at or before the target instead of from the start.
+public class ReplayPlayer {
+    public static final int KEYFRAME_INTERVAL = 512; // Eight seconds at the default tick rate
+
+    private final ByteBuffer in;
+    private final GameEngine engine;
+    private final List<Keyframe> keyframes = new ArrayList<>();
+    private ByteBuffer stateBuffer = ByteBuffer.allocate(64 * 1024);
+    private boolean finished;
+
+    private static final class Keyframe {
+        final long tick;
+        final int position; // Offset of the tick's inputs in the recording
+        final byte[] state;
+
+        Keyframe(long tick, int position, byte[] state) {
+            this.tick = tick;
+            this.position = position;
+            this.state = state;
+        }
+    }
+
+    public ReplayPlayer(byte[] recording) {
+        this.in = ByteBuffer.wrap(recording);
+        if (in.remaining() < 4 || in.getInt() != ReplayRecorder.MAGIC) {
+            throw new IllegalArgumentException("Not a replay recording");
+        }
+        int version = WireFormat.readVarInt(in);
+        if (version != ReplayRecorder.VERSION) {
+            throw new IllegalArgumentException("Unsupported replay version: " + version);
+        }
+        long seed = WireFormat.readVarLong(in);
+        int tickRate = WireFormat.readVarInt(in);
+        int width = WireFormat.readVarInt(in);
+        int height = WireFormat.readVarInt(in);
+        int mapIndex = WireFormat.readVarInt(in);
+        FireMode aiFireMode = FireMode.values()[WireFormat.readVarInt(in)];
+        FireMode playerFireMode = FireMode.values()[WireFormat.readVarInt(in)];
+
+        // Rebuild the match exactly as it stood when recording started
+        engine = new GameEngine(width, height, tickRate, seed);
+        if (mapIndex != engine.getGameWorld().getMapIndex()) {
+            engine.switchMap(GameWorld.MAP_NAMES[mapIndex]);
+        }
+        engine.setAIFireMode(aiFireMode);
+        engine.getPlayer().setFireMode(playerFireMode);
+        engine.setScripted(true);
+        saveKeyframe();
+    }
+
+    public static ReplayPlayer load(String file) throws IOException {
+        return new ReplayPlayer(Files.readAllBytes(Paths.get(file)));
+    }
+
+    // Plays one tick, false once the recording has run out
+    public boolean step() {
+        if (finished) return false;
+        if (!in.hasRemaining()) {
+            finished = true;
+            return false;
+        }
+        if (getTick() % KEYFRAME_INTERVAL == 0) {
+            saveKeyframe();
+        }
+        readTick();
+        engine.update();
+        return true;
+    }
+
+    // Plays up to ticks more ticks and returns how many there were
+    public long fastForward(long ticks) {
+        long played = 0;
+        while (played < ticks && step()) {
+            played++;
+        }
+        return played;
+    }
+
+    // Moves to the given tick, or to the end if the recording is shorter
+    public void seek(long tick) {
+        tick = Math.max(0, tick);
+        long current = getTick();
+        Keyframe nearest = null;
+        for (int i = keyframes.size() - 1; i >= 0; i--) {
+            if (keyframes.get(i).tick <= tick) {
+                nearest = keyframes.get(i);
+                break;
+            }
+        }
+        // Going back needs a keyframe; going forward only uses one if it skips resimulating
+        if (tick < current || (nearest != null && nearest.tick > current)) {
+            engine.readState(ByteBuffer.wrap(nearest.state));
+            in.position(nearest.position);
+            finished = false;
+        }
+        fastForward(tick - getTick());
+    }
+
+    private void saveKeyframe() {
+        long tick = getTick();
+        if (!keyframes.isEmpty() && keyframes.get(keyframes.size() - 1).tick >= tick) return;
+        while (true) {
+            try {
+                stateBuffer.clear();
+                engine.writeState(stateBuffer);
+                break;
+            } catch (BufferOverflowException e) {
+                stateBuffer = ByteBuffer.allocate(stateBuffer.capacity() * 2);
+            }
+        }
+        keyframes.add(new Keyframe(tick, in.position(), Arrays.copyOf(stateBuffer.array(), stateBuffer.position())));
+    }
+
+    // Applies the tick's events, then updates the inputs that changed; the rest carry over
+    private void readTick() {
+        int entries = WireFormat.readVarInt(in);
+        for (int i = 0; i < entries; i++) {
+            int type = WireFormat.readVarInt(in);
+            switch (type) {
+                case ReplayRecorder.INPUT:
+                    readInput();
+                    break;
+                case ReplayRecorder.JOIN: {
+                    int id = WireFormat.readVarInt(in);
+                    Player joined = engine.addPlayer();
+                    if (joined.getId() != id) {
+                        throw new IllegalStateException("Replay diverged: expected player " + id + ", got " + joined.getId());
+                    }
+                    break;
+                }
+                case ReplayRecorder.LEAVE:
+                    engine.removePlayer(player(WireFormat.readVarInt(in)));
+                    break;
+                case ReplayRecorder.ADD_ENEMY: {
+                    double x = in.getDouble();
+                    double y = in.getDouble();
+                    engine.addEnemy(x, y, AIEnemy.AIBehavior.values()[WireFormat.readVarInt(in)]);
+                    break;
+                }
+                case ReplayRecorder.AI_FIRE_MODE:
+                    engine.setAIFireMode(FireMode.values()[WireFormat.readVarInt(in)]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown replay entry type: " + type);
+            }
+        }
+    }
+
+    private void readInput() {
+        Player p = player(WireFormat.readVarInt(in));
+        int mask = WireFormat.readVarInt(in);
+        PlayerInput input = p.getInput();
+        int buttons = input.getButtons();
+        int aim = input.getAim();
+        int viewTick = input.getViewTick();
+        if ((mask & ReplayRecorder.CHANGED_BUTTONS) != 0) {
+            buttons = WireFormat.readVarInt(in);
+        }
+        if ((mask & ReplayRecorder.CHANGED_AIM) != 0) {
+            aim += WireFormat.readSignedVarInt(in);
+        }
+        if ((mask & ReplayRecorder.CHANGED_VIEW_TICK) != 0) {
+            viewTick += WireFormat.readSignedVarInt(in);
+        }
+        input.setRaw(input.getSequence(), buttons, aim, viewTick);
+        p.setNetworked((mask & ReplayRecorder.NETWORKED) != 0);
+    }
+
+    private Player player(int id) {
+        Player p = engine.findPlayer(id);
+        if (p == null) {
+            throw new IllegalStateException("Replay refers to unknown player " + id);
+        }
+        return p;
+    }
+
+    public GameEngine getEngine() { return engine; }
+    public long getTick() { return engine.getClock().getTick(); }
+    public boolean isFinished() { return finished; }
+    public int getKeyframeCount() { return keyframes.size(); }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ReplayPlayer <replay file> [seek tick]");
+            System.exit(1);
+        }
+        System.setProperty("java.awt.headless", "true");
+
+        ReplayPlayer replay = load(args[0]);
+        long start = System.nanoTime();
+        long ticks = replay.fastForward(Long.MAX_VALUE);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Replayed %d ticks in %.3f s (%.0f ticks/s), %d keyframes%n",
+                          ticks, seconds, ticks / seconds, replay.getKeyframeCount());
+
+        if (args.length > 1) {
+            long target = Long.parseLong(args[1]);
+            start = System.nanoTime();
+            replay.seek(target);
+            System.out.printf("Seeked to tick %d in %.1f ms%n", replay.getTick(), (System.nanoTime() - start) / 1e6);
+        }
+        Player player = replay.getEngine().getPlayer();
+        System.out.printf("Tick %d: player at (%.1f, %.1f) with %d health, %d bots%n", replay.getTick(),
+                          player.getX(), player.getY(), player.getHealth(), replay.getEngine().getAIEnemies().size());
+    }
+}
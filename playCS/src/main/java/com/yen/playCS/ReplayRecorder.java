@@ -0,0 +1,306 @@
+package com.yen.playCS;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Records a match as its seed plus each tick's inputs, which is all a replay needs to rerun it.
+// An idle tick costs one byte and a tick where one player changes keys a handful, against the
+// kilobytes a state snapshot takes. Encoding happens on the simulation thread into fixed chunks;
+// a background thread writes full chunks out so the tick never waits on the disk.
+//
+// File layout, all integers varints:
+//   header: magic, version, seed, tick rate, width, height, map index, AI fire mode, player fire mode
+//   per tick: entry count, then entries, each a type followed by its fields
+public class ReplayRecorder implements Closeable {
+    static final int MAGIC = 0x43535250; // "CSRP"
+    static final int VERSION = 1;
+
+    // Entry types. Events happened since the previous tick and are replayed before its inputs.
+    static final int INPUT = 0;
+    static final int JOIN = 1;
+    static final int LEAVE = 2;
+    static final int ADD_ENEMY = 3;
+    static final int AI_FIRE_MODE = 4;
+
+    // Input entry field mask, only changed fields follow
+    static final int CHANGED_BUTTONS = 1;
+    static final int CHANGED_AIM = 1 << 1;
+    static final int CHANGED_VIEW_TICK = 1 << 2;
+    static final int CHANGED_NETWORKED = 1 << 3;
+    static final int NETWORKED = 1 << 4; // The flag's value, sent with every entry
+
+    private static final int MAX_INPUT_ENTRY = 6 * 5; // Six varints at most
+    private static final int CHUNK_SIZE = 8192;
+    private static final int QUEUED_CHUNKS = 64; // The simulation blocks once the writer is this far behind
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final GameEngine engine;
+    private final OutputStream out;
+    private final BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<>(QUEUED_CHUNKS + 1);
+    private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(QUEUED_CHUNKS + 2);
+    private final Thread writer;
+    private volatile IOException failure;
+    private ByteBuffer chunk;
+    private ByteBuffer events = ByteBuffer.allocate(256); // Since the last tick
+    private int eventCount;
+    private ByteBuffer tick = ByteBuffer.allocate(256);
+
+    // Last input written per player, so entries only carry what changed
+    private int[] ids = new int[8];
+    private int[] buttons = new int[8];
+    private int[] aims = new int[8];
+    private int[] viewTicks = new int[8];
+    private boolean[] networked = new boolean[8];
+    private int known;
+    private long ticksRecorded;
+    private long bytesRecorded;
+    private boolean closed;
+
+    // Starts recording a fresh match; the engine reports every tick until this is closed
+    public ReplayRecorder(GameEngine engine, OutputStream out) {
+        this.engine = engine;
+        this.out = out;
+        synchronized (engine) {
+            if (engine.getClock().getTick() != 0 || engine.getPlayers().size() != 1) {
+                throw new IllegalStateException("Replays must start from a fresh match");
+            }
+            chunk = ByteBuffer.allocate(CHUNK_SIZE);
+            chunk.putInt(MAGIC);
+            WireFormat.writeVarInt(chunk, VERSION);
+            WireFormat.writeVarLong(chunk, engine.getSeed());
+            WireFormat.writeVarInt(chunk, engine.getTickRate());
+            WireFormat.writeVarInt(chunk, engine.getWidth());
+            WireFormat.writeVarInt(chunk, engine.getHeight());
+            WireFormat.writeVarInt(chunk, engine.getGameWorld().getMapIndex());
+            WireFormat.writeVarInt(chunk, engine.getAIFireMode().ordinal());
+            WireFormat.writeVarInt(chunk, engine.getPlayer().getFireMode().ordinal());
+            engine.setRecorder(this);
+        }
+        writer = new Thread(this::writeChunks, "replay-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static ReplayRecorder open(GameEngine engine, Path file) throws IOException {
+        return new ReplayRecorder(engine, new BufferedOutputStream(Files.newOutputStream(file), CHUNK_SIZE));
+    }
+
+    // Called by the engine once per tick, after inputs are set and before they are applied
+    void recordTick(GameEngine engine) {
+        List<Player> players = engine.getPlayers();
+        int worstCase = 5 + events.position() + players.size() * MAX_INPUT_ENTRY;
+        if (tick.capacity() < worstCase) {
+            tick = ByteBuffer.allocate(worstCase * 2);
+        }
+        tick.clear();
+        encodeTick(players);
+        tick.flip();
+        append(tick);
+        ticksRecorded++;
+    }
+
+    private void encodeTick(List<Player> players) {
+        // Only write entries for players whose input changed, so count them first
+        int changed = 0;
+        for (int i = 0; i < players.size(); i++) {
+            if (changeMask(players.get(i)) != 0) changed++;
+        }
+        WireFormat.writeVarInt(tick, eventCount + changed);
+        tick.put(events.array(), 0, events.position());
+        events.clear();
+        eventCount = 0;
+
+        for (int i = 0; i < players.size(); i++) {
+            Player p = players.get(i);
+            int mask = changeMask(p);
+            if (mask == 0) continue;
+            int slot = slotFor(p.getId());
+            PlayerInput input = p.getInput();
+            WireFormat.writeVarInt(tick, INPUT);
+            WireFormat.writeVarInt(tick, p.getId());
+            WireFormat.writeVarInt(tick, mask | (p.isNetworked() ? NETWORKED : 0));
+            if ((mask & CHANGED_BUTTONS) != 0) {
+                WireFormat.writeVarInt(tick, input.getButtons());
+            }
+            if ((mask & CHANGED_AIM) != 0) {
+                WireFormat.writeSignedVarInt(tick, (short) (input.getAim() - aims[slot]));
+            }
+            if ((mask & CHANGED_VIEW_TICK) != 0) {
+                WireFormat.writeSignedVarInt(tick, input.getViewTick() - viewTicks[slot]);
+            }
+            buttons[slot] = input.getButtons();
+            aims[slot] = input.getAim();
+            viewTicks[slot] = input.getViewTick();
+            networked[slot] = p.isNetworked();
+        }
+    }
+
+    // Which fields differ from the last entry written for this player
+    private int changeMask(Player p) {
+        int slot = slotFor(p.getId());
+        PlayerInput input = p.getInput();
+        int mask = 0;
+        if (input.getButtons() != buttons[slot]) mask |= CHANGED_BUTTONS;
+        if (input.getAim() != aims[slot]) mask |= CHANGED_AIM;
+        if (input.getViewTick() != viewTicks[slot]) mask |= CHANGED_VIEW_TICK;
+        if (p.isNetworked() != networked[slot]) mask |= CHANGED_NETWORKED;
+        return mask;
+    }
+
+    // Players are few, so a linear scan beats hashing; new players start from an idle input
+    private int slotFor(int id) {
+        for (int i = 0; i < known; i++) {
+            if (ids[i] == id) return i;
+        }
+        if (known == ids.length) {
+            int capacity = known * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            buttons = Arrays.copyOf(buttons, capacity);
+            aims = Arrays.copyOf(aims, capacity);
+            viewTicks = Arrays.copyOf(viewTicks, capacity);
+            networked = Arrays.copyOf(networked, capacity);
+        }
+        ids[known] = id;
+        buttons[known] = 0;
+        aims[known] = 0;
+        viewTicks[known] = -1;
+        networked[known] = false;
+        return known++;
+    }
+
+    void recordJoin(int playerId) {
+        event(JOIN, playerId);
+    }
+
+    void recordLeave(int playerId) {
+        event(LEAVE, playerId);
+        // Ids are never reused, so the slot can go
+        for (int i = 0; i < known; i++) {
+            if (ids[i] != playerId) continue;
+            known--;
+            ids[i] = ids[known];
+            buttons[i] = buttons[known];
+            aims[i] = aims[known];
+            viewTicks[i] = viewTicks[known];
+            networked[i] = networked[known];
+            break;
+        }
+    }
+
+    void recordAIFireMode(FireMode fireMode) {
+        event(AI_FIRE_MODE, fireMode.ordinal());
+    }
+
+    // Positions are written raw, a rounded spawn point would send the match down another path
+    void recordAddEnemy(double x, double y, AIEnemy.AIBehavior behavior) {
+        ensureEventRoom(32);
+        WireFormat.writeVarInt(events, ADD_ENEMY);
+        events.putDouble(x).putDouble(y);
+        WireFormat.writeVarInt(events, behavior.ordinal());
+        eventCount++;
+    }
+
+    private void event(int type, int value) {
+        ensureEventRoom(10);
+        WireFormat.writeVarInt(events, type);
+        WireFormat.writeVarInt(events, value);
+        eventCount++;
+    }
+
+    private void ensureEventRoom(int bytes) {
+        if (events.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(events.capacity() * 2 + bytes);
+            events.flip();
+            grown.put(events);
+            events = grown;
+        }
+    }
+
+    // Copies into the current chunk, handing full chunks to the writer
+    private void append(ByteBuffer bytes) {
+        bytesRecorded += bytes.remaining();
+        while (bytes.hasRemaining()) {
+            if (!chunk.hasRemaining()) {
+                submit(chunk);
+                chunk = nextChunk();
+            }
+            int n = Math.min(bytes.remaining(), chunk.remaining());
+            int limit = bytes.limit();
+            bytes.limit(bytes.position() + n);
+            chunk.put(bytes);
+            bytes.limit(limit);
+        }
+    }
+
+    private ByteBuffer nextChunk() {
+        ByteBuffer recycled = free.poll();
+        if (recycled == null) return ByteBuffer.allocate(CHUNK_SIZE);
+        recycled.clear();
+        return recycled;
+    }
+
+    private void submit(ByteBuffer full) {
+        full.flip();
+        try {
+            filled.put(full);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while recording", e);
+        }
+    }
+
+    private void writeChunks() {
+        try {
+            while (true) {
+                ByteBuffer next = filled.take();
+                if (next == END) break;
+                if (failure == null) {
+                    try {
+                        out.write(next.array(), 0, next.limit());
+                    } catch (IOException e) {
+                        failure = e; // Keep draining so the simulation never blocks on a dead writer
+                    }
+                }
+                free.offer(next);
+            }
+            out.close();
+        } catch (IOException e) {
+            if (failure == null) failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Detaches from the engine, writes out what is left and waits for the writer to finish
+    @Override
+    public void close() throws IOException {
+        synchronized (engine) {
+            if (closed) return;
+            closed = true;
+            engine.setRecorder(null);
+            submit(chunk);
+        }
+        try {
+            filled.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while finishing the replay", e);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public long getTicksRecorded() { return ticksRecorded; }
+    public long getBytesRecorded() { return bytesRecorded; }
+}
@@ -0,0 +1,116 @@
+package com.yen.playCS;
+
+import java.util.Arrays;
+
+// Quantized world state for one tick. Entities and projectiles are each kept sorted by id so
+// snapshots can be delta-encoded against each other with a single merge pass.
+public final class Snapshot {
+    // Per-entity fields
+    public static final int KIND = 0;
+    public static final int X = 1;
+    public static final int Y = 2;
+    public static final int ANGLE = 3;
+    public static final int HEALTH = 4;
+    public static final int EXTRA = 5; // Ammo for players, behavior for enemies
+    public static final int FIELDS = 6;
+
+    public static final int KIND_PLAYER = 0;
+    public static final int KIND_ENEMY = 1;
+
+    // Per-projectile fields
+    public static final int PROJECTILE_FIELDS = 3; // x, y, owner
+
+    public static final int POSITION_SCALE = 8; // Positions are sent in 1/8 px
+
+    private int tick = -1;
+    private int mapIndex;
+    private int count;
+    private int[] ids = new int[16];
+    private int[] fields = new int[16 * FIELDS];
+    private int projectileCount;
+    private int[] projectileIds = new int[64];
+    private int[] projectiles = new int[64 * PROJECTILE_FIELDS];
+
+    public void clear(int tick, int mapIndex) {
+        this.tick = tick;
+        this.mapIndex = mapIndex;
+        this.count = 0;
+        this.projectileCount = 0;
+    }
+
+    // Ids must be added in ascending order
+    public int addEntity(int id) {
+        if (count > 0 && ids[count - 1] >= id) {
+            throw new IllegalArgumentException("Entity ids must ascend: " + id + " after " + ids[count - 1]);
+        }
+        if (count == ids.length) {
+            ids = Arrays.copyOf(ids, count * 2);
+            fields = Arrays.copyOf(fields, count * 2 * FIELDS);
+        }
+        ids[count] = id;
+        Arrays.fill(fields, count * FIELDS, (count + 1) * FIELDS, 0);
+        return count++;
+    }
+
+    // Any order is accepted, since the engine's swap-remove reorders its slots. That only moves a
+    // few projectiles per tick, so the insertion shifts stay short.
+    public int addProjectile(int id, int x, int y, int owner) {
+        if (projectileCount == projectileIds.length) {
+            projectileIds = Arrays.copyOf(projectileIds, projectileCount * 2);
+            projectiles = Arrays.copyOf(projectiles, projectileCount * 2 * PROJECTILE_FIELDS);
+        }
+        int index = projectileCount;
+        while (index > 0 && projectileIds[index - 1] > id) index--;
+        if (index > 0 && projectileIds[index - 1] == id) {
+            throw new IllegalArgumentException("Duplicate projectile id " + id);
+        }
+        System.arraycopy(projectileIds, index, projectileIds, index + 1, projectileCount - index);
+        System.arraycopy(projectiles, index * PROJECTILE_FIELDS, projectiles, (index + 1) * PROJECTILE_FIELDS,
+                         (projectileCount - index) * PROJECTILE_FIELDS);
+        projectileCount++;
+        projectileIds[index] = id;
+        int base = index * PROJECTILE_FIELDS;
+        projectiles[base] = x;
+        projectiles[base + 1] = y;
+        projectiles[base + 2] = owner;
+        return index;
+    }
+
+    public void copyFrom(Snapshot other) {
+        clear(other.tick, other.mapIndex);
+        for (int i = 0; i < other.count; i++) {
+            int index = addEntity(other.ids[i]);
+            System.arraycopy(other.fields, i * FIELDS, fields, index * FIELDS, FIELDS);
+        }
+        for (int i = 0; i < other.projectileCount; i++) {
+            int base = i * PROJECTILE_FIELDS;
+            addProjectile(other.projectileIds[i], other.projectiles[base], other.projectiles[base + 1],
+                          other.projectiles[base + 2]);
+        }
+    }
+
+    // Binary search over the sorted ids, -1 if absent
+    public int indexOf(int id) {
+        int index = Arrays.binarySearch(ids, 0, count, id);
+        return index >= 0 ? index : -1;
+    }
+
+    public static int quantize(double position) {
+        return (int) Math.round(position * POSITION_SCALE);
+    }
+
+    public static double dequantize(int position) {
+        return position / (double) POSITION_SCALE;
+    }
+
+    public int getTick() { return tick; }
+    public int getMapIndex() { return mapIndex; }
+    public int getEntityCount() { return count; }
+    public int getId(int index) { return ids[index]; }
+    public int getField(int index, int field) { return fields[index * FIELDS + field]; }
+    public void setField(int index, int field, int value) { fields[index * FIELDS + field] = value; }
+    public int getProjectileCount() { return projectileCount; }
+    public int getProjectileId(int index) { return projectileIds[index]; }
+    public int getProjectileField(int index, int field) { return projectiles[index * PROJECTILE_FIELDS + field]; }
+    public void setProjectileField(int index, int field, int value) { projectiles[index * PROJECTILE_FIELDS + field] = value; }
+}
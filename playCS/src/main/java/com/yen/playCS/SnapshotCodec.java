@@ -0,0 +1,138 @@
+package com.yen.playCS;
+
+import java.nio.ByteBuffer;
+
+// Encodes a snapshot as the difference from a baseline the receiver already has.
+// Unchanged entities cost nothing, changed ones a field mask plus zigzag varint deltas.
+// Projectiles have ids too and go through the same merge in a second section.
+public final class SnapshotCodec {
+    private static final int END = 0; // Ids strictly ascend from -1, so a zero id delta never occurs otherwise
+    private static final Snapshot EMPTY = new Snapshot();
+
+    private SnapshotCodec() {
+    }
+
+    // A null baseline writes the full state. Throws BufferOverflowException if it doesn't fit.
+    public static void encode(Snapshot current, Snapshot baseline, ByteBuffer out) {
+        if (baseline == null) baseline = EMPTY;
+        WireFormat.writeVarInt(out, current.getTick());
+        WireFormat.writeVarInt(out, current.getMapIndex());
+        encodeSection(current, baseline, false, out);
+        encodeSection(current, baseline, true, out);
+    }
+
+    public static void decode(ByteBuffer in, Snapshot baseline, Snapshot out) {
+        if (baseline == null) baseline = EMPTY;
+        if (baseline == out) throw new IllegalArgumentException("Cannot decode a snapshot onto its own baseline");
+        out.clear(WireFormat.readVarInt(in), WireFormat.readVarInt(in));
+        decodeSection(in, baseline, false, out);
+        decodeSection(in, baseline, true, out);
+    }
+
+    private static void encodeSection(Snapshot current, Snapshot baseline, boolean projectiles, ByteBuffer out) {
+        int fields = fieldCount(projectiles);
+        int removed = 1 << fields; // Mask bit for records gone since the baseline
+        int previousId = -1; // Projectile ids start at 0
+        int b = 0;
+        int baseCount = count(baseline, projectiles);
+        for (int c = 0; c < count(current, projectiles); c++) {
+            int id = idOf(current, c, projectiles);
+
+            // Baseline records with lower ids are gone
+            while (b < baseCount && idOf(baseline, b, projectiles) < id) {
+                WireFormat.writeVarInt(out, idOf(baseline, b, projectiles) - previousId);
+                WireFormat.writeVarInt(out, removed);
+                previousId = idOf(baseline, b++, projectiles);
+            }
+
+            int base = b < baseCount && idOf(baseline, b, projectiles) == id ? b++ : -1;
+            int mask = 0;
+            for (int f = 0; f < fields; f++) {
+                if (fieldOf(current, c, f, projectiles) != fieldOf(baseline, base, f, projectiles)) mask |= 1 << f;
+            }
+            if (mask == 0 && base != -1) continue;
+
+            WireFormat.writeVarInt(out, id - previousId);
+            WireFormat.writeVarInt(out, mask);
+            for (int f = 0; f < fields; f++) {
+                if ((mask & (1 << f)) != 0) {
+                    WireFormat.writeSignedVarInt(out, fieldOf(current, c, f, projectiles) -
+                                                      fieldOf(baseline, base, f, projectiles));
+                }
+            }
+            previousId = id;
+        }
+        while (b < baseCount) {
+            WireFormat.writeVarInt(out, idOf(baseline, b, projectiles) - previousId);
+            WireFormat.writeVarInt(out, removed);
+            previousId = idOf(baseline, b++, projectiles);
+        }
+        WireFormat.writeVarInt(out, END);
+    }
+
+    private static void decodeSection(ByteBuffer in, Snapshot baseline, boolean projectiles, Snapshot out) {
+        int fields = fieldCount(projectiles);
+        int removed = 1 << fields;
+        int b = 0;
+        int baseCount = count(baseline, projectiles);
+        int id = -1;
+        int delta;
+        while ((delta = WireFormat.readVarInt(in)) != END) {
+            id += delta;
+            int mask = WireFormat.readVarInt(in);
+
+            // Records the encoder skipped are unchanged
+            while (b < baseCount && idOf(baseline, b, projectiles) < id) {
+                copyRecord(baseline, b++, projectiles, out);
+            }
+            int base = b < baseCount && idOf(baseline, b, projectiles) == id ? b++ : -1;
+            if ((mask & removed) != 0) continue;
+
+            int index = add(out, id, projectiles);
+            for (int f = 0; f < fields; f++) {
+                int value = fieldOf(baseline, base, f, projectiles);
+                if ((mask & (1 << f)) != 0) value += WireFormat.readSignedVarInt(in);
+                setField(out, index, f, value, projectiles);
+            }
+        }
+        while (b < baseCount) {
+            copyRecord(baseline, b++, projectiles, out);
+        }
+    }
+
+    private static int fieldCount(boolean projectiles) {
+        return projectiles ? Snapshot.PROJECTILE_FIELDS : Snapshot.FIELDS;
+    }
+
+    private static int count(Snapshot snapshot, boolean projectiles) {
+        return projectiles ? snapshot.getProjectileCount() : snapshot.getEntityCount();
+    }
+
+    private static int idOf(Snapshot snapshot, int index, boolean projectiles) {
+        return projectiles ? snapshot.getProjectileId(index) : snapshot.getId(index);
+    }
+
+    private static int fieldOf(Snapshot snapshot, int index, int field, boolean projectiles) {
+        if (index == -1) return 0;
+        return projectiles ? snapshot.getProjectileField(index, field) : snapshot.getField(index, field);
+    }
+
+    private static int add(Snapshot snapshot, int id, boolean projectiles) {
+        return projectiles ? snapshot.addProjectile(id, 0, 0, 0) : snapshot.addEntity(id);
+    }
+
+    private static void setField(Snapshot snapshot, int index, int field, int value, boolean projectiles) {
+        if (projectiles) {
+            snapshot.setProjectileField(index, field, value);
+        } else {
+            snapshot.setField(index, field, value);
+        }
+    }
+
+    private static void copyRecord(Snapshot from, int index, boolean projectiles, Snapshot to) {
+        int copy = add(to, idOf(from, index, projectiles), projectiles);
+        for (int f = 0; f < fieldCount(projectiles); f++) {
+            setField(to, copy, f, fieldOf(from, index, f, projectiles), projectiles);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.yen.playCS;
+
+// Fixed ring of recent snapshots indexed by tick, the baselines deltas can be encoded against
+public final class SnapshotHistory {
+    private final Snapshot[] slots;
+
+    public SnapshotHistory(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        slots = new Snapshot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Snapshot();
+        }
+    }
+
+    // The slot a tick is stored in, reused once the ring wraps
+    public Snapshot slotFor(int tick) {
+        return slots[tick & (slots.length - 1)];
+    }
+
+    // The snapshot for exactly this tick, or null if it was never stored or has been overwritten
+    public Snapshot get(int tick) {
+        if (tick < 0) return null;
+        Snapshot snapshot = slots[tick & (slots.length - 1)];
+        return snapshot.getTick() == tick ? snapshot : null;
+    }
+
+    public int capacity() { return slots.length; }
+}
@@ -0,0 +1,265 @@
+package com.yen.playCS;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SpatialGrid {
+    private static final MapElement[] EMPTY = new MapElement[0];
+    private static final int[] NO_ELEMENTS = new int[0];
+    private static final double RENDER_MARGIN = 4; // Room for strokes drawn over element edges
+
+    private final double cellSize;
+    private final double originX, originY;
+    private final int cols, rows;
+
+    // Separate layers so movement and projectile queries only see relevant elements
+    private final MapElement[][] movementCells;
+    private final MapElement[][] projectileCells;
+
+    // Every element by its index in the build list, so drawing can skip what is out of view
+    private final MapElement[] elements;
+    private final int[][] renderCells;
+    private final int[] visitStamp;
+    private int stamp;
+
+    public SpatialGrid(List<MapElement> elements, double worldWidth, double worldHeight, double cellSize) {
+        this.cellSize = cellSize;
+
+        // Grid covers the world plus anything placed outside of it
+        double minX = 0, minY = 0, maxX = worldWidth, maxY = worldHeight;
+        for (MapElement element : elements) {
+            minX = Math.min(minX, element.getX());
+            minY = Math.min(minY, element.getY());
+            maxX = Math.max(maxX, element.getX() + element.getWidth());
+            maxY = Math.max(maxY, element.getY() + element.getHeight());
+        }
+        this.originX = minX;
+        this.originY = minY;
+        this.cols = (int) Math.floor((maxX - minX) / cellSize) + 1;
+        this.rows = (int) Math.floor((maxY - minY) / cellSize) + 1;
+
+        this.movementCells = buildLayer(elements, true);
+        this.projectileCells = buildLayer(elements, false);
+        this.elements = elements.toArray(new MapElement[0]);
+        this.renderCells = buildRenderLayer();
+        this.visitStamp = new int[this.elements.length];
+    }
+
+    private int[][] buildRenderLayer() {
+        int[] counts = new int[cols * rows];
+        for (MapElement element : elements) {
+            addToRenderCells(element, counts, null, -1);
+        }
+        int[][] cells = new int[cols * rows][];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = counts[i] == 0 ? NO_ELEMENTS : new int[counts[i]];
+            counts[i] = 0;
+        }
+        for (int e = 0; e < elements.length; e++) {
+            addToRenderCells(elements[e], counts, cells, e);
+        }
+        return cells;
+    }
+
+    // Counts the element into each cell its render bounds touch, and stores it when cells are given
+    private void addToRenderCells(MapElement element, int[] fill, int[][] cells, int index) {
+        int minCol = cellX(element.getRenderMinX() - RENDER_MARGIN);
+        int maxCol = cellX(element.getRenderMaxX() + RENDER_MARGIN);
+        int minRow = cellY(element.getRenderMinY() - RENDER_MARGIN);
+        int maxRow = cellY(element.getRenderMaxY() + RENDER_MARGIN);
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                int cell = row * cols + col;
+                if (cells != null) cells[cell][fill[cell]] = index;
+                fill[cell]++;
+            }
+        }
+    }
+
+    // Indices of elements that may draw inside the box, each once and in build order; out must fit every element.
+    // Uses shared scratch state, so only one thread may query at a time.
+    public int queryRenderable(double minX, double minY, double maxX, double maxY, int[] out) {
+        if (++stamp == 0) {
+            Arrays.fill(visitStamp, 0);
+            stamp = 1;
+        }
+        int count = 0;
+        int maxCol = cellX(maxX);
+        int maxRow = cellY(maxY);
+        for (int row = cellY(minY); row <= maxRow; row++) {
+            for (int col = cellX(minX); col <= maxCol; col++) {
+                int[] cell = renderCells[row * cols + col];
+                for (int i = 0; i < cell.length; i++) {
+                    int e = cell[i];
+                    if (visitStamp[e] != stamp) {
+                        visitStamp[e] = stamp;
+                        out[count++] = e;
+                    }
+                }
+            }
+        }
+        Arrays.sort(out, 0, count); // Keep the original overdraw order
+        return count;
+    }
+
+    public MapElement getElement(int index) { return elements[index]; }
+    public int getElementCount() { return elements.length; }
+
+    private MapElement[][] buildLayer(List<MapElement> elements, boolean movementLayer) {
+        List<List<MapElement>> buckets = new ArrayList<>(cols * rows);
+        for (int i = 0; i < cols * rows; i++) {
+            buckets.add(null);
+        }
+
+        for (MapElement element : elements) {
+            boolean blocks = movementLayer ? element.blocksMovement() : element.blocksProjectiles();
+            if (!blocks) continue;
+
+            // contains() is inclusive on both edges, so the far edge is bucketed too
+            int minCol = cellX(element.getX());
+            int maxCol = cellX(element.getX() + element.getWidth());
+            int minRow = cellY(element.getY());
+            int maxRow = cellY(element.getY() + element.getHeight());
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int col = minCol; col <= maxCol; col++) {
+                    int index = row * cols + col;
+                    if (buckets.get(index) == null) {
+                        buckets.set(index, new ArrayList<>(2));
+                    }
+                    buckets.get(index).add(element);
+                }
+            }
+        }
+
+        MapElement[][] cells = new MapElement[cols * rows][];
+        for (int i = 0; i < cells.length; i++) {
+            List<MapElement> bucket = buckets.get(i);
+            cells[i] = bucket == null ? EMPTY : bucket.toArray(new MapElement[0]);
+        }
+        return cells;
+    }
+
+    public boolean blocksMovementAt(double x, double y) {
+        return containsPoint(movementCells, x, y);
+    }
+
+    public boolean blocksProjectilesAt(double x, double y) {
+        return containsPoint(projectileCells, x, y);
+    }
+
+    private boolean containsPoint(MapElement[][] cells, double x, double y) {
+        int col = (int) Math.floor((x - originX) / cellSize);
+        int row = (int) Math.floor((y - originY) / cellSize);
+        if (col < 0 || row < 0 || col >= cols || row >= rows) {
+            return false; // Nothing is stored outside the grid bounds
+        }
+
+        MapElement[] cell = cells[row * cols + col];
+        for (int i = 0; i < cell.length; i++) {
+            if (cell[i].contains(x, y)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Earliest t in [0, 1] where the segment enters a projectile-blocking element
+    public double sweepProjectile(double x0, double y0, double x1, double y1) {
+        return sweep(projectileCells, x0, y0, x1, y1);
+    }
+
+    // Distance along a unit direction to the first projectile blocker, walked cell by cell (DDA)
+    public double raycastProjectile(double ox, double oy, double dirX, double dirY, double maxDistance) {
+        return raycast(projectileCells, ox, oy, dirX, dirY, maxDistance);
+    }
+
+    private double raycast(MapElement[][] cells, double ox, double oy, double dirX, double dirY, double maxDistance) {
+        double endX = ox + dirX * maxDistance;
+        double endY = oy + dirY * maxDistance;
+
+        // Start where the ray enters the grid, rays that never enter cannot hit anything
+        double entry = Sweep.segmentAabb(ox, oy, endX, endY, originX, originY,
+                                         originX + cols * cellSize, originY + rows * cellSize);
+        if (entry == Sweep.NO_HIT) return Sweep.NO_HIT;
+        double travelled = entry * maxDistance;
+
+        int col = cellX(ox + dirX * travelled);
+        int row = cellY(oy + dirY * travelled);
+        int stepX = dirX > 0 ? 1 : -1;
+        int stepY = dirY > 0 ? 1 : -1;
+        double tDeltaX = dirX == 0 ? Double.POSITIVE_INFINITY : cellSize / Math.abs(dirX);
+        double tDeltaY = dirY == 0 ? Double.POSITIVE_INFINITY : cellSize / Math.abs(dirY);
+        double nextBoundaryX = originX + (dirX > 0 ? col + 1 : col) * cellSize;
+        double nextBoundaryY = originY + (dirY > 0 ? row + 1 : row) * cellSize;
+        double tMaxX = dirX == 0 ? Double.POSITIVE_INFINITY : (nextBoundaryX - ox) / dirX;
+        double tMaxY = dirY == 0 ? Double.POSITIVE_INFINITY : (nextBoundaryY - oy) / dirY;
+
+        double best = Sweep.NO_HIT;
+        while (col >= 0 && row >= 0 && col < cols && row < rows) {
+            MapElement[] cell = cells[row * cols + col];
+            for (int i = 0; i < cell.length; i++) {
+                MapElement element = cell[i];
+                double t = Sweep.segmentAabb(ox, oy, endX, endY,
+                                             element.getX(), element.getY(),
+                                             element.getX() + element.getWidth(),
+                                             element.getY() + element.getHeight());
+                if (t != Sweep.NO_HIT) {
+                    double distance = t * maxDistance;
+                    if (best == Sweep.NO_HIT || distance < best) best = distance;
+                }
+            }
+
+            // A hit closer than this cell's exit cannot be beaten by later cells
+            double cellExit = Math.min(tMaxX, tMaxY);
+            if (best != Sweep.NO_HIT && best <= cellExit) return best;
+            if (cellExit > maxDistance) break;
+
+            if (tMaxX < tMaxY) {
+                col += stepX;
+                tMaxX += tDeltaX;
+            } else {
+                row += stepY;
+                tMaxY += tDeltaY;
+            }
+        }
+        return best;
+    }
+
+    private double sweep(MapElement[][] cells, double x0, double y0, double x1, double y1) {
+        int minCol = cellX(Math.min(x0, x1));
+        int maxCol = cellX(Math.max(x0, x1));
+        int minRow = cellY(Math.min(y0, y1));
+        int maxRow = cellY(Math.max(y0, y1));
+        
+        double best = Sweep.NO_HIT;
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                MapElement[] cell = cells[row * cols + col];
+                for (int i = 0; i < cell.length; i++) {
+                    MapElement element = cell[i];
+                    double t = Sweep.segmentAabb(x0, y0, x1, y1,
+                                                 element.getX(), element.getY(),
+                                                 element.getX() + element.getWidth(),
+                                                 element.getY() + element.getHeight());
+                    if (t != Sweep.NO_HIT && (best == Sweep.NO_HIT || t < best)) {
+                        best = t;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private int cellX(double x) {
+        return Math.max(0, Math.min(cols - 1, (int) Math.floor((x - originX) / cellSize)));
+    }
+
+    private int cellY(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor((y - originY) / cellSize)));
+    }
+
+    public double getCellSize() { return cellSize; }
+    public int getCols() { return cols; }
+    public int getRows() { return rows; }
+}
@@ -12,12 +12,15 @@ public class SpawnPoint extends MapElement {
         NEUTRAL(Color.GREEN);
         
         private final Color color;
+        private final Color fillColor;
         
         Team(Color color) {
             this.color = color;
+            this.fillColor = new Color(color.getRed(), color.getGreen(), color.getBlue(), 100);
         }
         
         public Color getColor() { return color; }
+        public Color getFillColor() { return fillColor; }
     }
     
     public SpawnPoint(double x, double y, Team team) {
@@ -30,11 +33,11 @@ public class SpawnPoint extends MapElement {
     public void render(Graphics2D g2d) {
         if (!isActive) return;
         
-        g2d.setColor(new Color(color.getRed(), color.getGreen(), color.getBlue(), 100));
+        g2d.setColor(team.getFillColor());
         g2d.fillOval((int)(x - width/2), (int)(y - height/2), (int)width, (int)height);
         
         g2d.setColor(color);
-        g2d.setStroke(new BasicStroke(2));
+        g2d.setStroke(RenderResources.STROKE_2);
         g2d.drawOval((int)(x - width/2), (int)(y - height/2), (int)width, (int)height);
         
         // Draw team indicator
@@ -62,4 +65,14 @@ public class SpawnPoint extends MapElement {
     
     public double getCenterX() { return x; }
     public double getCenterY() { return y; }
+    
+    // Spawn points are drawn centred on (x, y)
+    @Override
+    public double getRenderMinX() { return x - width / 2; }
+    @Override
+    public double getRenderMinY() { return y - height / 2; }
+    @Override
+    public double getRenderMaxX() { return x + width / 2; }
+    @Override
+    public double getRenderMaxY() { return y + height / 2; }
 }
\ No newline at end of file
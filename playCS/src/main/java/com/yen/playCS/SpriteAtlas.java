@@ -0,0 +1,157 @@
+package com.yen.playCS;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class SpriteAtlas {
+    static final int ROTATIONS = 64; // Power of two so buckets wrap with a mask
+    private static final int ATLAS_WIDTH = 1024;
+    private static final int BODY_CELL = 64;
+    private static final int MAX_HEALTH = 100;
+
+    private interface Painter {
+        void paint(Graphics2D g2d, double centerX, double centerY);
+    }
+
+    // Regions in the atlas; (originX, originY) is where the actor centre sits inside the region
+    private final List<Painter> painters = new ArrayList<>();
+    private int[] regionX = new int[64], regionY = new int[64], regionW = new int[64], regionH = new int[64];
+    private int[] originX = new int[64], originY = new int[64];
+    private int regionCount;
+    private int shelfX, shelfY, shelfHeight;
+
+    private final int[] playerBody = new int[ROTATIONS];
+    private final int[][] enemyBody = new int[AIEnemy.AIBehavior.values().length][ROTATIONS];
+    private final int[] playerHealthBar = new int[MAX_HEALTH + 1];
+    private final int[] enemyHealthBar = new int[MAX_HEALTH + 1];
+    private final int[] behaviorBadge = new int[AIEnemy.AIBehavior.values().length];
+    private final int[] detectionRange = new int[AIEnemy.AIBehavior.values().length];
+
+    private final BufferedImage atlas;
+
+    // Every actor image is rasterized once up front, rendering is then one drawImage per sprite
+    public SpriteAtlas() {
+        int center = BODY_CELL / 2;
+        for (int r = 0; r < ROTATIONS; r++) {
+            double angle = bucketAngle(r);
+            playerBody[r] = add(BODY_CELL, BODY_CELL, center, center,
+                                (g, cx, cy) -> Player.paintBody(g, cx, cy, angle));
+        }
+        for (AIEnemy.AIBehavior behavior : AIEnemy.AIBehavior.values()) {
+            for (int r = 0; r < ROTATIONS; r++) {
+                double angle = bucketAngle(r);
+                enemyBody[behavior.ordinal()][r] = add(BODY_CELL, BODY_CELL, center, center,
+                                                       (g, cx, cy) -> AIEnemy.paintBody(g, cx, cy, angle, behavior));
+            }
+        }
+        for (int h = 0; h <= MAX_HEALTH; h++) {
+            int health = h;
+            playerHealthBar[h] = add(23, 7, 11, 19, (g, cx, cy) -> Player.paintHealthBar(g, cx, cy, health));
+            enemyHealthBar[h] = add(25, 8, 12, 22, (g, cx, cy) -> AIEnemy.paintHealthBar(g, cx, cy, health));
+        }
+        for (AIEnemy.AIBehavior behavior : AIEnemy.AIBehavior.values()) {
+            behaviorBadge[behavior.ordinal()] = add(19, 19, 9, -16,
+                                                    (g, cx, cy) -> AIEnemy.paintBehaviorIndicator(g, cx, cy, behavior));
+            int size = (int) (behavior.getDetectionRange() / 2) + 2;
+            int origin = (int) Math.ceil(behavior.getDetectionRange() / 4) + 1;
+            detectionRange[behavior.ordinal()] = add(size, size, origin, origin,
+                                                     (g, cx, cy) -> AIEnemy.paintDetectionRange(g, cx, cy, behavior));
+        }
+
+        atlas = new BufferedImage(ATLAS_WIDTH, shelfY + shelfHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g2d = atlas.createGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            for (int i = 0; i < regionCount; i++) {
+                Graphics2D region = (Graphics2D) g2d.create(regionX[i], regionY[i], regionW[i], regionH[i]);
+                try {
+                    painters.get(i).paint(region, originX[i], originY[i]);
+                } finally {
+                    region.dispose();
+                }
+            }
+        } finally {
+            g2d.dispose();
+        }
+        painters.clear();
+    }
+
+    // Shelf packing: regions fill rows left to right, a new row starts when one is full
+    private int add(int width, int height, int centerX, int centerY, Painter painter) {
+        if (shelfX + width > ATLAS_WIDTH) {
+            shelfY += shelfHeight;
+            shelfX = 0;
+            shelfHeight = 0;
+        }
+        if (regionCount == regionX.length) {
+            int capacity = regionCount * 2;
+            regionX = Arrays.copyOf(regionX, capacity);
+            regionY = Arrays.copyOf(regionY, capacity);
+            regionW = Arrays.copyOf(regionW, capacity);
+            regionH = Arrays.copyOf(regionH, capacity);
+            originX = Arrays.copyOf(originX, capacity);
+            originY = Arrays.copyOf(originY, capacity);
+        }
+        int i = regionCount++;
+        regionX[i] = shelfX;
+        regionY[i] = shelfY;
+        regionW[i] = width;
+        regionH[i] = height;
+        originX[i] = centerX;
+        originY[i] = centerY;
+        painters.add(painter);
+        shelfX += width;
+        shelfHeight = Math.max(shelfHeight, height);
+        return i;
+    }
+
+    static int rotationBucket(double angle) {
+        return (int) Math.round(angle * ROTATIONS / (2 * Math.PI)) & (ROTATIONS - 1);
+    }
+
+    private static double bucketAngle(int bucket) {
+        return bucket * 2 * Math.PI / ROTATIONS;
+    }
+
+    private void draw(Graphics2D g2d, int region, int x, int y) {
+        int dx = x - originX[region];
+        int dy = y - originY[region];
+        int sx = regionX[region];
+        int sy = regionY[region];
+        int w = regionW[region];
+        int h = regionH[region];
+        g2d.drawImage(atlas, dx, dy, dx + w, dy + h, sx, sy, sx + w, sy + h, null);
+    }
+
+    public void drawPlayer(Graphics2D g2d, int x, int y, double angle) {
+        draw(g2d, playerBody[rotationBucket(angle)], x, y);
+    }
+
+    public void drawPlayerHealthBar(Graphics2D g2d, int x, int y, int health) {
+        draw(g2d, playerHealthBar[Math.max(0, Math.min(MAX_HEALTH, health))], x, y);
+    }
+
+    public void drawEnemy(Graphics2D g2d, int x, int y, double angle, AIEnemy.AIBehavior behavior) {
+        draw(g2d, enemyBody[behavior.ordinal()][rotationBucket(angle)], x, y);
+    }
+
+    public void drawEnemyHealthBar(Graphics2D g2d, int x, int y, int healthPercentage) {
+        draw(g2d, enemyHealthBar[Math.max(0, Math.min(MAX_HEALTH, healthPercentage))], x, y);
+    }
+
+    public void drawBehaviorBadge(Graphics2D g2d, int x, int y, AIEnemy.AIBehavior behavior) {
+        draw(g2d, behaviorBadge[behavior.ordinal()], x, y);
+    }
+
+    public void drawDetectionRange(Graphics2D g2d, int x, int y, AIEnemy.AIBehavior behavior) {
+        draw(g2d, detectionRange[behavior.ordinal()], x, y);
+    }
+
+    public int getWidth() { return atlas.getWidth(); }
+    public int getHeight() { return atlas.getHeight(); }
+    public int getSpriteCount() { return regionCount; }
+}
@@ -0,0 +1,104 @@
+package com.yen.playCS;
+
+import java.awt.*;
+import java.awt.image.VolatileImage;
+import java.util.Arrays;
+
+public class StaticLayerCache {
+    private static final int TILE_SIZE = 256;
+
+    // Tiles live in a ring of slots addressed by tile coordinate modulo the ring size. The ring is one
+    // tile larger than the view in each direction, so tiles visible at the same time never share a slot.
+    private final int slotCols, slotRows;
+    private final VolatileImage[] slots;
+    private final int[] slotTile; // Tile index each slot holds, -1 when empty
+    private GameWorld cachedWorld;
+    private int cachedVersion = -1;
+
+    public StaticLayerCache(int viewWidth, int viewHeight) {
+        this.slotCols = viewWidth / TILE_SIZE + 2;
+        this.slotRows = viewHeight / TILE_SIZE + 2;
+        this.slots = new VolatileImage[slotCols * slotRows];
+        this.slotTile = new int[slots.length];
+        invalidate();
+    }
+
+    // Background and map elements only change on switchMap, so each tile is drawn once and blitted.
+    // Only tiles under the camera are touched, so cost follows the view size rather than the map size.
+    public void render(Graphics2D g2d, GameWorld world, Camera camera) {
+        if (world != cachedWorld || world.getLayoutVersion() != cachedVersion) {
+            invalidate();
+            cachedWorld = world;
+            cachedVersion = world.getLayoutVersion();
+        }
+
+        GraphicsConfiguration config = g2d.getDeviceConfiguration();
+        int worldCols = (world.getWidth() + TILE_SIZE - 1) / TILE_SIZE;
+        int firstCol = camera.getX() / TILE_SIZE;
+        int firstRow = camera.getY() / TILE_SIZE;
+        int lastCol = (camera.getX() + camera.getViewWidth() - 1) / TILE_SIZE;
+        int lastRow = (camera.getY() + camera.getViewHeight() - 1) / TILE_SIZE;
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                int slot = (row % slotRows) * slotCols + col % slotCols;
+                drawTile(g2d, config, world, slot, row * worldCols + col, col, row, camera);
+            }
+        }
+    }
+
+    private void drawTile(Graphics2D g2d, GraphicsConfiguration config, GameWorld world,
+                          int slot, int tile, int col, int row, Camera camera) {
+        do {
+            boolean redraw = slotTile[slot] != tile;
+
+            VolatileImage image = slots[slot];
+            if (image == null) {
+                image = config.createCompatibleVolatileImage(TILE_SIZE, TILE_SIZE);
+                redraw = true;
+            }
+            int status = image.validate(config);
+            if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                image = config.createCompatibleVolatileImage(TILE_SIZE, TILE_SIZE);
+                redraw = true;
+            } else if (status == VolatileImage.IMAGE_RESTORED) {
+                redraw = true; // Accelerated surface was lost and recreated empty
+            }
+            slots[slot] = image;
+
+            if (redraw) {
+                paint(image, world, col * TILE_SIZE, row * TILE_SIZE);
+                slotTile[slot] = tile;
+            }
+
+            g2d.drawImage(image, col * TILE_SIZE - camera.getX(), row * TILE_SIZE - camera.getY(), null);
+        } while (slots[slot].contentsLost());
+    }
+
+    // Runs on the render thread, so it holds the world's monitor against a map switch mid-paint
+    private void paint(VolatileImage image, GameWorld world, int left, int top) {
+        Graphics2D g = image.createGraphics();
+        try {
+            synchronized (world) {
+                paintTile(g, world, left, top);
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private void paintTile(Graphics2D g, GameWorld world, int left, int top) {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.translate(-left, -top);
+        g.clipRect(left, top, TILE_SIZE, TILE_SIZE);
+        g.setColor(Color.DARK_GRAY); // Past the world edge on maps smaller than the window
+        g.fillRect(left, top, TILE_SIZE, TILE_SIZE);
+        ModernUI.drawGameBackground(g, world.getWidth(), world.getHeight(), world.getMapName());
+        world.render(g, left, top, left + TILE_SIZE, top + TILE_SIZE);
+    }
+
+    public void invalidate() {
+        cachedWorld = null;
+        Arrays.fill(slotTile, -1);
+    }
+}
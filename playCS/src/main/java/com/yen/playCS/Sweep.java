@@ -0,0 +1,66 @@
+package com.yen.playCS;
+
+public final class Sweep {
+    // Returned when a segment misses the shape
+    public static final double NO_HIT = -1;
+
+    private Sweep() {}
+
+    // Slab test: earliest t in [0, 1] where segment p0->p1 enters the box
+    public static double segmentAabb(double x0, double y0, double x1, double y1,
+                                     double minX, double minY, double maxX, double maxY) {
+        double tMin = 0;
+        double tMax = 1;
+
+        double dx = x1 - x0;
+        if (dx == 0) {
+            if (x0 < minX || x0 > maxX) return NO_HIT;
+        } else {
+            double inv = 1.0 / dx;
+            double t1 = (minX - x0) * inv;
+            double t2 = (maxX - x0) * inv;
+            if (t1 > t2) { double swap = t1; t1 = t2; t2 = swap; }
+            if (t1 > tMin) tMin = t1;
+            if (t2 < tMax) tMax = t2;
+            if (tMin > tMax) return NO_HIT;
+        }
+
+        double dy = y1 - y0;
+        if (dy == 0) {
+            if (y0 < minY || y0 > maxY) return NO_HIT;
+        } else {
+            double inv = 1.0 / dy;
+            double t1 = (minY - y0) * inv;
+            double t2 = (maxY - y0) * inv;
+            if (t1 > t2) { double swap = t1; t1 = t2; t2 = swap; }
+            if (t1 > tMin) tMin = t1;
+            if (t2 < tMax) tMax = t2;
+            if (tMin > tMax) return NO_HIT;
+        }
+
+        return tMin;
+    }
+
+    // Earliest t in [0, 1] where segment p0->p1 touches the circle, 0 if it starts inside
+    public static double segmentCircle(double x0, double y0, double x1, double y1,
+                                       double cx, double cy, double radius) {
+        double fx = x0 - cx;
+        double fy = y0 - cy;
+        double c = fx * fx + fy * fy - radius * radius;
+        if (c <= 0) return 0;
+
+        double dx = x1 - x0;
+        double dy = y1 - y0;
+        double a = dx * dx + dy * dy;
+        if (a == 0) return NO_HIT;
+
+        double b = fx * dx + fy * dy;
+        if (b >= 0) return NO_HIT; // Moving away from the centre
+
+        double discriminant = b * b - a * c;
+        if (discriminant < 0) return NO_HIT;
+
+        double t = (-b - Math.sqrt(discriminant)) / a;
+        return t <= 1 ? t : NO_HIT;
+    }
+}
@@ -0,0 +1,194 @@
+package com.yen.playCS;
+
+import java.util.Arrays;
+
+// Bots look pairs up from the parallel think phase, so the cache is split into segments that each
+// have their own LRU and lock, picked by the pair's hash. Rays are cast with no lock held.
+public class VisibilityCache {
+    private static final int EMPTY = -1;
+    private static final int MAX_SEGMENTS = 64;
+    private static final int MIN_SEGMENT_CAPACITY = 1024; // Smaller caches stay one exact LRU
+
+    private final NavigationGrid grid;
+    private final SpatialGrid walls;
+    private final int capacity;
+    private final Segment[] segments;
+    private final int segmentShift;
+
+    public VisibilityCache(NavigationGrid grid, SpatialGrid walls, int capacity) {
+        this.grid = grid;
+        this.walls = walls;
+        this.capacity = capacity;
+        int count = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, capacity / MIN_SEGMENT_CAPACITY)));
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(capacity / count + (i < capacity % count ? 1 : 0));
+        }
+        this.segmentShift = 64 - Integer.numberOfTrailingZeros(count);
+    }
+
+    // Cell-to-cell visibility between cell centres, filled lazily
+    public boolean isVisible(int cellA, int cellB) {
+        if (cellA == cellB) return true;
+        long key = cellA < cellB ? ((long) cellA << 32) | cellB : ((long) cellB << 32) | cellA;
+        long h = mix(key);
+        Segment segment = segments[segments.length == 1 ? 0 : (int) (h >>> segmentShift)];
+
+        synchronized (segment) {
+            int bucket = segment.find(key, h);
+            if (segment.table[bucket] != EMPTY) {
+                segment.hits++;
+                int entry = segment.table[bucket];
+                segment.moveToFront(entry);
+                return segment.visible[entry];
+            }
+            segment.misses++;
+        }
+
+        // Another thread may cast the same pair meanwhile; both get the same answer, so only one is kept
+        boolean result = castRay(cellA, cellB);
+        synchronized (segment) {
+            int bucket = segment.find(key, h);
+            if (segment.table[bucket] == EMPTY) {
+                segment.insert(bucket, key, h, result);
+            }
+        }
+        return result;
+    }
+
+    // Package-private so tests can stall a lookup mid-ray
+    boolean castRay(int cellA, int cellB) {
+        double ax = grid.centerX(cellA);
+        double ay = grid.centerY(cellA);
+        double dx = grid.centerX(cellB) - ax;
+        double dy = grid.centerY(cellB) - ay;
+        double distance = Math.sqrt(dx * dx + dy * dy);
+        double hit = walls.raycastProjectile(ax, ay, dx / distance, dy / distance, distance);
+        return hit == Sweep.NO_HIT;
+    }
+
+    private static long mix(long key) {
+        return key * 0x9E3779B97F4A7C15L;
+    }
+
+    private static final class Segment {
+        private final int capacity;
+
+        // Open-addressing index from cell pair to entry slot
+        private final int[] table;
+        private final int tableMask;
+
+        // Entries, linked in recency order from head (newest) to tail (oldest)
+        private final long[] keys;
+        private final boolean[] visible;
+        private final int[] prev;
+        private final int[] next;
+        private int head = EMPTY, tail = EMPTY;
+        private int size;
+        private long hits, misses;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            int tableSize = Integer.highestOneBit(Math.max(4, capacity * 2 - 1)) << 1;
+            this.table = new int[tableSize];
+            this.tableMask = tableSize - 1;
+            Arrays.fill(table, EMPTY);
+            this.keys = new long[capacity];
+            this.visible = new boolean[capacity];
+            this.prev = new int[capacity];
+            this.next = new int[capacity];
+        }
+
+        private int find(long key, long h) {
+            int bucket = bucket(h);
+            while (table[bucket] != EMPTY && keys[table[bucket]] != key) {
+                bucket = (bucket + 1) & tableMask;
+            }
+            return bucket;
+        }
+
+        private void insert(int bucket, long key, long h, boolean result) {
+            int entry;
+            if (size < capacity) {
+                entry = size++;
+            } else {
+                // Reuse the least recently used entry
+                entry = tail;
+                unlink(entry);
+                removeFromTable(keys[entry]);
+                bucket = find(key, h);
+            }
+            keys[entry] = key;
+            visible[entry] = result;
+            table[bucket] = entry;
+            linkFront(entry);
+        }
+
+        // Backward-shift deletion keeps linear probe chains intact without tombstones
+        private void removeFromTable(long key) {
+            int hole = find(key, mix(key));
+            int bucket = (hole + 1) & tableMask;
+            while (table[bucket] != EMPTY) {
+                int home = bucket(mix(keys[table[bucket]]));
+                boolean canMove = hole <= bucket ? (home <= hole || home > bucket) : (home <= hole && home > bucket);
+                if (canMove) {
+                    table[hole] = table[bucket];
+                    hole = bucket;
+                }
+                bucket = (bucket + 1) & tableMask;
+            }
+            table[hole] = EMPTY;
+        }
+
+        private void moveToFront(int entry) {
+            if (entry == head) return;
+            unlink(entry);
+            linkFront(entry);
+        }
+
+        private void linkFront(int entry) {
+            prev[entry] = EMPTY;
+            next[entry] = head;
+            if (head != EMPTY) prev[head] = entry;
+            head = entry;
+            if (tail == EMPTY) tail = entry;
+        }
+
+        private void unlink(int entry) {
+            if (prev[entry] != EMPTY) next[prev[entry]] = next[entry]; else head = next[entry];
+            if (next[entry] != EMPTY) prev[next[entry]] = prev[entry]; else tail = prev[entry];
+        }
+
+        // Low bits pick the bucket, the segment came from the top bits
+        private int bucket(long h) {
+            return (int) (h ^ (h >>> 32)) & tableMask;
+        }
+    }
+
+    public int size() {
+        int total = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) { total += segment.size; }
+        }
+        return total;
+    }
+
+    public long getHits() {
+        long total = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) { total += segment.hits; }
+        }
+        return total;
+    }
+
+    public long getMisses() {
+        long total = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) { total += segment.misses; }
+        }
+        return total;
+    }
+
+    public int getCapacity() { return capacity; }
+    int getSegmentCount() { return segments.length; }
+}
@@ -5,142 +5,179 @@ import java.awt.geom.Ellipse2D;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
 public class VisualEffects {
-    private List<Particle> particles;
+    static final int DEFAULT_PARTICLE_BUDGET = 4096;
+    
+    private ParticleSystem particles;
     private List<MuzzleFlash> muzzleFlashes;
-    private Random random;
+    private List<Tracer> tracers;
+    private GameRandom random; // Cosmetic only, never feeds back into the simulation
+    private long now; // Simulation time of the last update, used for fading
     
     public VisualEffects() {
-        particles = new ArrayList<>();
+        this(DEFAULT_PARTICLE_BUDGET);
+    }
+    
+    public VisualEffects(int maxParticles) {
+        this(maxParticles, new GameRandom(System.nanoTime()));
+    }
+    
+    public VisualEffects(int maxParticles, GameRandom random) {
+        particles = new ParticleSystem(maxParticles);
         muzzleFlashes = new ArrayList<>();
-        random = new Random();
+        tracers = new ArrayList<>();
+        this.random = random;
     }
     
-    public void addMuzzleFlash(double x, double y, double angle) {
-        muzzleFlashes.add(new MuzzleFlash(x, y, angle));
+    public void addMuzzleFlash(double x, double y, double angle, GameClock clock) {
+        muzzleFlashes.add(new MuzzleFlash(x, y, angle, clock.getTimeMillis()));
     }
     
-    public void addBulletImpact(double x, double y) {
+    public void addTracer(double startX, double startY, double endX, double endY, GameClock clock) {
+        tracers.add(new Tracer(startX, startY, endX, endY, clock.getTimeMillis()));
+    }
+    
+    public void addBulletImpact(double x, double y, GameClock clock) {
         // Create spark particles
+        int life = clock.ticksFor(800);
         for (int i = 0; i < 6; i++) {
             double angle = random.nextDouble() * Math.PI * 2;
             double speed = 2 + random.nextDouble() * 3;
-            particles.add(new Particle(x, y, angle, speed, Color.YELLOW, 800));
+            particles.spawn(x, y, angle, speed, randomParticleSize(), life, RenderResources.YELLOW_RAMP, clock);
         }
     }
     
-    public void addBloodEffect(double x, double y) {
+    public void addBloodEffect(double x, double y, GameClock clock) {
         // Create blood particles
+        int life = clock.ticksFor(1000);
         for (int i = 0; i < 4; i++) {
             double angle = random.nextDouble() * Math.PI * 2;
             double speed = 1 + random.nextDouble() * 2;
-            particles.add(new Particle(x, y, angle, speed, Color.RED, 1000));
+            particles.spawn(x, y, angle, speed, randomParticleSize(), life, RenderResources.RED_RAMP, clock);
         }
     }
     
-    public void update() {
+    private int randomParticleSize() {
+        return (int) (2 + random.nextDouble() * 2);
+    }
+    
+    public void update(GameClock clock) {
+        now = clock.getTimeMillis();
+        
         // Update particles
-        particles.removeIf(particle -> {
-            particle.update();
-            return particle.isDead();
-        });
+        particles.update(clock);
         
         // Update muzzle flashes
         muzzleFlashes.removeIf(flash -> {
             flash.update();
-            return flash.isDead();
+            return flash.isDead(now);
         });
+        
+        // Update hitscan tracers
+        tracers.removeIf(tracer -> tracer.isDead(now));
     }
     
     public void render(Graphics2D g2d) {
         // Render particles
-        for (Particle particle : particles) {
-            particle.render(g2d);
+        particles.render(g2d);
+        
+        // Render muzzle flashes. Indexed, a for-each would build an iterator per list every frame.
+        for (int i = 0; i < muzzleFlashes.size(); i++) {
+            muzzleFlashes.get(i).render(g2d, now);
         }
         
-        // Render muzzle flashes
-        for (MuzzleFlash flash : muzzleFlashes) {
-            flash.render(g2d);
+        // Render hitscan tracers
+        for (int i = 0; i < tracers.size(); i++) {
+            tracers.get(i).render(g2d, now);
         }
     }
     
-    private static class Particle {
-        private double x, y, vx, vy;
-        private Color color;
-        private long startTime, duration;
-        private double size;
-        
-        public Particle(double x, double y, double angle, double speed, Color color, long duration) {
-            this.x = x;
-            this.y = y;
-            this.vx = Math.cos(angle) * speed;
-            this.vy = Math.sin(angle) * speed;
-            this.color = color;
-            this.startTime = System.currentTimeMillis();
-            this.duration = duration;
-            this.size = 2 + Math.random() * 2;
-        }
-        
-        public void update() {
-            x += vx;
-            y += vy;
-            vx *= 0.95; // Friction
-            vy *= 0.95;
-        }
-        
-        public void render(Graphics2D g2d) {
-            long elapsed = System.currentTimeMillis() - startTime;
-            float alpha = 1.0f - (float)elapsed / duration;
-            if (alpha <= 0) return;
-            
-            Color fadeColor = new Color(color.getRed(), color.getGreen(), color.getBlue(), (int)(alpha * 255));
-            g2d.setColor(fadeColor);
-            g2d.fillOval((int)(x - size/2), (int)(y - size/2), (int)size, (int)size);
+    // Drops every effect in flight, e.g. after jumping to another point in a replay
+    public void clear() {
+        particles.clear();
+        muzzleFlashes.clear();
+        tracers.clear();
+    }
+
+    // For the render thread's copy of the frame. Flashes and tracers never change once added, so they are shared.
+    void copyFrom(VisualEffects from) {
+        particles.copyFrom(from.particles);
+        muzzleFlashes.clear();
+        for (int i = 0; i < from.muzzleFlashes.size(); i++) {
+            muzzleFlashes.add(from.muzzleFlashes.get(i));
         }
-        
-        public boolean isDead() {
-            return System.currentTimeMillis() - startTime > duration;
+        tracers.clear();
+        for (int i = 0; i < from.tracers.size(); i++) {
+            tracers.add(from.tracers.get(i));
         }
+        now = from.now;
     }
     
+    public ParticleSystem getParticles() { return particles; }
+    
     private static class MuzzleFlash {
-        private double x, y, angle;
-        private long startTime;
+        private final double x, y, angle;
+        private final long startTime;
         private static final long DURATION = 100;
         
-        public MuzzleFlash(double x, double y, double angle) {
+        public MuzzleFlash(double x, double y, double angle, long startTime) {
             this.x = x;
             this.y = y;
             this.angle = angle;
-            this.startTime = System.currentTimeMillis();
+            this.startTime = startTime;
         }
         
         public void update() {
             // Muzzle flash doesn't move, just fades
         }
         
-        public void render(Graphics2D g2d) {
-            long elapsed = System.currentTimeMillis() - startTime;
+        public void render(Graphics2D g2d, long now) {
+            long elapsed = now - startTime;
             float alpha = 1.0f - (float)elapsed / DURATION;
             if (alpha <= 0) return;
             
             // Draw muzzle flash as bright yellow/orange oval
-            Color flashColor = new Color(255, 255, 0, (int)(alpha * 200));
-            g2d.setColor(flashColor);
+            g2d.setColor(RenderResources.fade(RenderResources.YELLOW_RAMP, alpha, 200));
             
             double flashLength = 20;
             double flashWidth = 8;
             double endX = x + Math.cos(angle) * flashLength;
             double endY = y + Math.sin(angle) * flashLength;
             
-            g2d.setStroke(new BasicStroke((float)(flashWidth * alpha)));
+            g2d.setStroke(RenderResources.stroke((float)(flashWidth * alpha)));
             g2d.drawLine((int)x, (int)y, (int)endX, (int)endY);
         }
         
-        public boolean isDead() {
-            return System.currentTimeMillis() - startTime > DURATION;
+        public boolean isDead(long now) {
+            return now - startTime > DURATION;
+        }
+    }
+    
+    private static class Tracer {
+        private final double startX, startY, endX, endY;
+        private final long startTime;
+        private static final long DURATION = 80;
+        
+        public Tracer(double startX, double startY, double endX, double endY, long startTime) {
+            this.startX = startX;
+            this.startY = startY;
+            this.endX = endX;
+            this.endY = endY;
+            this.startTime = startTime;
+        }
+        
+        public void render(Graphics2D g2d, long now) {
+            float alpha = 1.0f - (float)(now - startTime) / DURATION;
+            if (alpha <= 0) return;
+            
+            g2d.setColor(RenderResources.fade(RenderResources.TRACER_RAMP, alpha, 180));
+            g2d.setStroke(RenderResources.STROKE_1);
+            g2d.drawLine((int)startX, (int)startY, (int)endX, (int)endY);
+        }
+        
+        public boolean isDead(long now) {
+            return now - startTime > DURATION;
         }
     }
 }
\ No newline at end of file
@@ -13,16 +13,19 @@ public class Wall extends MapElement {
         COVER(new Color(101, 67, 33), true, false); // Blocks movement but not bullets
         
         private final Color color;
+        private final Color borderColor;
         private final boolean blocksMovement;
         private final boolean blocksProjectiles;
         
         WallType(Color color, boolean blocksMovement, boolean blocksProjectiles) {
             this.color = color;
+            this.borderColor = color.darker();
             this.blocksMovement = blocksMovement;
             this.blocksProjectiles = blocksProjectiles;
         }
         
         public Color getColor() { return color; }
+        public Color getBorderColor() { return borderColor; }
         public boolean blocksMovement() { return blocksMovement; }
         public boolean blocksProjectiles() { return blocksProjectiles; }
     }
@@ -42,8 +45,8 @@ public class Wall extends MapElement {
         g2d.fillRect((int)x, (int)y, (int)width, (int)height);
         
         // Add border for better visibility
-        g2d.setColor(color.darker());
-        g2d.setStroke(new BasicStroke(1));
+        g2d.setColor(type.getBorderColor());
+        g2d.setStroke(RenderResources.STROKE_1);
         g2d.drawRect((int)x, (int)y, (int)width, (int)height);
     }
     
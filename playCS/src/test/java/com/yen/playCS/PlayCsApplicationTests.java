@@ -67,4 +67,1243 @@ public class PlayCsApplicationTests {
         enemy.takeDamage(60);
         assertFalse("Enemy should be dead", enemy.isAlive());
     }
+    
+    @Test
+    public void testSpatialGridLayers() {
+        GameWorld world = new GameWorld(1024, 768, "dust2");
+        // Cover blocks movement but lets bullets through
+        assertTrue("Cover should block movement", world.checkCollision(270, 420));
+        assertFalse("Cover should not block projectiles", world.checkProjectileCollision(270, 420));
+        // Wall edges are inclusive, even when they land on a cell boundary
+        assertTrue("Wall edge should block", world.checkProjectileCollision(400, 220));
+        assertTrue("Wall edge should block", world.checkCollision(500, 200));
+        assertFalse("Outside the map should be empty", world.checkCollision(-500, -500));
+    }
+    
+    @Test
+    public void testHeadlessRunnerMaxSpeed() {
+        GameEngine engine = new GameEngine(1024, 768, 128);
+        HeadlessGameRunner runner = new HeadlessGameRunner(engine);
+        
+        engine.pressKey(java.awt.event.KeyEvent.VK_D);
+        double startX = engine.getPlayer().getX();
+        runner.runTicks(10);
+        
+        assertEquals(10, runner.getTickCount());
+        assertTrue("Player should move while key is held", engine.getPlayer().getX() > startX);
+    }
+    
+    @Test
+    public void testGameClockDrivesCooldowns() {
+        GameClock clock = new GameClock(128);
+        GameWorld world = new GameWorld(1024, 768, "dust2");
+        Player player = new Player(650, 400);
+        AIEnemy enemy = new AIEnemy(600, 400, SpawnPoint.Team.TERRORIST, AIEnemy.AIBehavior.AGGRESSIVE);
+        ProjectileSystem projectiles = new ProjectileSystem();
+        enemy.update(player, world, clock);
+        
+        assertTrue("First shot should be ready immediately", enemy.tryShoot(clock, projectiles, null));
+        assertFalse("Cooldown should block the next shot", enemy.tryShoot(clock, projectiles, null));
+        
+        // 800 ms cooldown at 128 Hz is 103 ticks of simulation time
+        for (int i = 0; i < 103; i++) {
+            clock.advance();
+        }
+        assertEquals(804, clock.getTimeMillis());
+        assertTrue("Shot should be ready after the cooldown", enemy.tryShoot(clock, projectiles, null));
+        assertEquals(2, projectiles.size());
+    }
+    
+    @Test
+    public void testProjectileSystemSwapRemove() {
+        ProjectileSystem projectiles = new ProjectileSystem(2);
+        projectiles.spawn(10, 10, 0, ProjectileSystem.OWNER_PLAYER);
+        projectiles.spawn(20, 20, 0, ProjectileSystem.OWNER_AI);
+        projectiles.spawn(30, 30, 0, ProjectileSystem.OWNER_AI);
+        assertEquals(3, projectiles.size());
+        
+        projectiles.kill(0);
+        projectiles.compact();
+        
+        // The last live slot fills the hole left by the dead one
+        assertEquals(2, projectiles.size());
+        assertEquals(30.0, projectiles.getX(0), 0.001);
+        assertEquals(20.0, projectiles.getX(1), 0.001);
+        assertTrue(projectiles.isAlive(0));
+        assertTrue(projectiles.isAlive(1));
+    }
+    
+    @Test
+    public void testSweptCollisionDoesNotTunnel() {
+        GameWorld world = new GameWorld(1024, 768, "dust2");
+        // Both end points are clear of the 20 px wall at y 200-220, the path is not
+        assertFalse(world.checkProjectileCollision(450, 190));
+        assertFalse(world.checkProjectileCollision(450, 230));
+        double t = world.getSpatialGrid().sweepProjectile(450, 190, 450, 230);
+        assertEquals(0.25, t, 0.0001);
+        
+        // Cover does not stop bullets, so sweeping through it misses
+        assertEquals(Sweep.NO_HIT, world.getSpatialGrid().sweepProjectile(240, 420, 320, 420), 0.0);
+        
+        assertEquals(0.4, Sweep.segmentCircle(0, 0, 10, 0, 6, 0, 2), 0.0001);
+        assertEquals(Sweep.NO_HIT, Sweep.segmentCircle(0, 0, 10, 0, 6, 5, 2), 0.0);
+    }
+    
+    @Test
+    public void testHitscanRaycastMatchesSweep() {
+        GameWorld world = new GameWorld(1024, 768, "dust2");
+        SpatialGrid grid = world.getSpatialGrid();
+        assertEquals(80.0, grid.raycastProjectile(450, 300, 0, -1, 1000), 0.0001);
+        
+        java.util.Random random = new java.util.Random(42);
+        for (int i = 0; i < 500; i++) {
+            double ox = 30 + random.nextDouble() * 960;
+            double oy = 30 + random.nextDouble() * 700;
+            double angle = random.nextDouble() * Math.PI * 2;
+            double dirX = Math.cos(angle);
+            double dirY = Math.sin(angle);
+            
+            double swept = grid.sweepProjectile(ox, oy, ox + dirX * 1500, oy + dirY * 1500);
+            double cast = grid.raycastProjectile(ox, oy, dirX, dirY, 1500);
+            assertEquals("Ray " + i, swept * 1500, cast, 0.0001);
+        }
+    }
+    
+    @Test
+    public void testPathPlannerRoutesAroundWalls() {
+        GameWorld world = new GameWorld(1024, 768, "dust2");
+        NavigationGrid nav = world.getNavigationGrid();
+        int start = nav.cellAt(450, 185);
+        int goal = nav.cellAt(450, 235);
+        assertFalse("Wall between start and goal", nav.isWalkable(nav.cellAt(450, 210)));
+        
+        NavPath path = new NavPath();
+        assertTrue(world.getPathPlanner().findPath(start, goal, path));
+        assertEquals(start, path.get(0));
+        assertEquals(goal, path.get(path.length() - 1));
+        assertTrue("Path must detour around the wall", path.length() > 4);
+        for (int i = 0; i < path.length(); i++) {
+            assertTrue(nav.isWalkable(path.get(i)));
+            if (i > 0) {
+                int cols = nav.getCols();
+                int dx = Math.abs(path.get(i) % cols - path.get(i - 1) % cols);
+                int dy = Math.abs(path.get(i) / cols - path.get(i - 1) / cols);
+                assertTrue("Steps must be to neighbouring cells", dx <= 1 && dy <= 1);
+            }
+        }
+        
+        assertFalse("Blocked goals have no path", world.getPathPlanner().findPath(start, nav.cellAt(450, 210), path));
+    }
+    
+    @Test
+    public void testFlowFieldLeadsToPlayer() {
+        GameWorld world = new GameWorld(1024, 768, "dust2");
+        world.updatePlayerFlowField(450, 185);
+        FlowField field = world.getPlayerFlowField();
+        NavigationGrid nav = world.getNavigationGrid();
+        
+        // Following next steps from below the wall must arrive at the player's cell
+        int cell = nav.cellAt(450, 235);
+        int steps = 0;
+        while (cell != field.getGoalCell()) {
+            int next = field.nextCell(cell);
+            assertTrue("Every reachable cell has a next step", next != -1);
+            assertEquals(field.distance(cell) - 1, field.distance(next));
+            cell = next;
+            assertTrue("Path must terminate", ++steps < 500);
+        }
+        assertTrue("Route must detour around the wall", steps > 4);
+    }
+
+    @Test
+    public void testChasersReachAPlayerStandingAgainstAWall() {
+        GameClock clock = new GameClock(64);
+        GameWorld world = new GameWorld(1024, 768, "dust2");
+        NavigationGrid nav = world.getNavigationGrid();
+
+        // Just right of the cover at x 700-750, y 200-230, in a nav cell the cover overlaps
+        Player player = new Player(755, 215);
+        assertFalse(world.checkCollision(755, 215));
+        assertFalse(nav.isWalkable(nav.cellAt(755, 215)));
+        world.updatePlayerFlowField(player.getX(), player.getY());
+        FlowField field = world.getPlayerFlowField();
+        assertTrue("Goal snaps to walkable ground", nav.isWalkable(field.getGoalCell()));
+        assertTrue(field.leadsTo(755, 215));
+
+        // Straight at the player runs into the cover, the field has to lead around it
+        AIEnemy enemy = new AIEnemy(630, 215, SpawnPoint.Team.TERRORIST, AIEnemy.AIBehavior.AGGRESSIVE);
+        double closest = Double.MAX_VALUE;
+        for (int tick = 0; tick < 400; tick++) {
+            enemy.storePreviousPosition();
+            enemy.update(player, world, clock);
+            clock.advance();
+            closest = Math.min(closest, Math.hypot(enemy.getX() - player.getX(), enemy.getY() - player.getY()));
+        }
+        assertTrue("Chaser got stuck at " + closest + " px", closest <= 60);
+
+        // A bot brushing the cover steers back onto walkable ground
+        int step = field.nextStep(745, 235);
+        assertFalse(nav.isWalkable(nav.cellAt(745, 235)));
+        assertTrue(nav.isWalkable(step));
+    }
+
+    @Test
+    public void testLineOfSightBlocksDetection() {
+        GameClock clock = new GameClock(64);
+        GameWorld world = new GameWorld(1024, 768, "dust2");
+        ProjectileSystem projectiles = new ProjectileSystem();
+        
+        // Concrete wall at y 200-220 sits between them, well within detection range
+        assertFalse(world.hasLineOfSight(450, 180, 450, 250));
+        assertTrue("Cover does not block sight", world.hasLineOfSight(240, 420, 320, 420));
+        
+        Player player = new Player(450, 250);
+        AIEnemy enemy = new AIEnemy(450, 180, SpawnPoint.Team.TERRORIST, AIEnemy.AIBehavior.AGGRESSIVE);
+        enemy.update(player, world, clock);
+        assertFalse("No shots through walls", enemy.tryShoot(clock, projectiles, null));
+        assertEquals(0, projectiles.size());
+    }
+    
+    @Test
+    public void testVisibilityCacheEvictsLeastRecentlyUsed() {
+        GameWorld world = new GameWorld(1024, 768, "dust2");
+        VisibilityCache cache = new VisibilityCache(world.getNavigationGrid(), world.getSpatialGrid(), 2);
+        NavigationGrid nav = world.getNavigationGrid();
+        int a = nav.cellAt(450, 185), b = nav.cellAt(450, 245), c = nav.cellAt(600, 400);
+        
+        assertFalse(cache.isVisible(a, b));
+        assertTrue(cache.isVisible(b, c));
+        assertFalse("Pairs are symmetric", cache.isVisible(b, a));
+        assertEquals(1, cache.getHits());
+        
+        cache.isVisible(a, c); // Evicts (b, c), the least recently used pair
+        assertEquals(2, cache.size());
+        cache.isVisible(a, b);
+        assertEquals(2, cache.getHits());
+        cache.isVisible(c, b);
+        assertEquals(4, cache.getMisses());
+    }
+
+    @Test(timeout = 10000)
+    public void testVisibilityLookupsDoNotWaitOnAnotherThreadsRay() throws Exception {
+        GameWorld world = new GameWorld(1024, 768, "dust2");
+        NavigationGrid nav = world.getNavigationGrid();
+        int a = nav.cellAt(450, 185), b = nav.cellAt(450, 245);
+        java.util.concurrent.CountDownLatch casting = new java.util.concurrent.CountDownLatch(1);
+        java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+
+        // Stalls the other thread's ray, as a long ray across a big map would
+        VisibilityCache cache = new VisibilityCache(nav, world.getSpatialGrid(), 1 << 16) {
+            @Override
+            boolean castRay(int cellA, int cellB) {
+                if (Thread.currentThread().getName().equals("test-stalled-ray")) {
+                    casting.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.castRay(cellA, cellB);
+            }
+        };
+        VisibilityCache reference = new VisibilityCache(nav, world.getSpatialGrid(), 1 << 16);
+        assertTrue(cache.getSegmentCount() > 1);
+
+        java.util.concurrent.atomic.AtomicBoolean stalled = new java.util.concurrent.atomic.AtomicBoolean();
+        Thread other = new Thread(() -> stalled.set(cache.isVisible(a, b)), "test-stalled-ray");
+        other.start();
+        casting.await();
+
+        // Would block behind the stalled ray if lookups shared one lock, same segment or not
+        int cells = nav.getCellCount();
+        for (int i = 0; i < 2000; i++) {
+            int from = (i * 7919) % cells, to = (i * 104729 + 13) % cells;
+            assertEquals(reference.isVisible(from, to), cache.isVisible(from, to));
+        }
+        assertTrue(other.isAlive());
+
+        release.countDown();
+        other.join();
+        assertFalse(stalled.get());
+        assertFalse("Cached once the ray finished", cache.isVisible(b, a));
+    }
+
+    @Test
+    public void testParallelAIMatchesSequential() {
+        // Bots that can see the player make no random movement choices, so positions must agree exactly
+        GameEngine parallel = new GameEngine(1024, 768);
+        GameEngine sequential = new GameEngine(1024, 768);
+        sequential.setParallelAI(false);
+        parallel.getAIEnemies().clear();
+        sequential.getAIEnemies().clear();
+        // Just outside shooting range of the player at (512, 384), so nobody fires during the run
+        for (int i = 0; i < 100; i++) {
+            double x = 645 + (i % 10);
+            double y = 380 + (i / 10);
+            parallel.addEnemy(x, y, AIEnemy.AIBehavior.AGGRESSIVE);
+            sequential.addEnemy(x, y, AIEnemy.AIBehavior.AGGRESSIVE);
+        }
+        
+        for (int tick = 0; tick < 3; tick++) {
+            parallel.update();
+            sequential.update();
+        }
+        
+        for (int i = 0; i < 100; i++) {
+            AIEnemy a = parallel.getAIEnemies().get(i);
+            AIEnemy b = sequential.getAIEnemies().get(i);
+            assertEquals(b.getX(), a.getX(), 0.0);
+            assertEquals(b.getY(), a.getY(), 0.0);
+        }
+        assertEquals(0, parallel.getProjectiles().size());
+        assertTrue("Bots should have chased the player", parallel.getAIEnemies().get(0).getX() < 645);
+    }
+    
+    @Test
+    public void testStaticLayerRedrawsOnMapSwitch() {
+        GameEngine engine = new GameEngine(1024, 768);
+        java.awt.image.BufferedImage frame = new java.awt.image.BufferedImage(1024, 768, java.awt.image.BufferedImage.TYPE_INT_RGB);
+        java.awt.Graphics2D g2d = frame.createGraphics();
+        
+        // Open floor next to the top wall, away from HUD panels and actors
+        engine.render(g2d);
+        int dust2Floor = frame.getRGB(400, 40);
+        engine.render(g2d);
+        assertEquals("Cached layer should be stable between frames", dust2Floor, frame.getRGB(400, 40));
+        
+        engine.getGameWorld().switchMap("office");
+        engine.render(g2d);
+        assertNotEquals("Map switch must invalidate the cached layer", dust2Floor, frame.getRGB(400, 40));
+        g2d.dispose();
+    }
+    
+    @Test
+    public void testRenderInterpolatesBetweenTicks() {
+        ProjectileSystem projectiles = new ProjectileSystem();
+        projectiles.spawn(100, 100, 0, ProjectileSystem.OWNER_PLAYER);
+        GameClock clock = new GameClock(64);
+        clock.advance();
+        projectiles.update(clock);
+        assertEquals(100.0, projectiles.getPrevX(0), 0.0);
+        assertEquals(108.0, projectiles.getX(0), 0.001);
+        
+        java.awt.image.BufferedImage frame = new java.awt.image.BufferedImage(200, 200, java.awt.image.BufferedImage.TYPE_INT_RGB);
+        java.awt.Graphics2D g2d = frame.createGraphics();
+        projectiles.render(g2d, 0.0);
+        assertEquals(java.awt.Color.YELLOW.getRGB(), frame.getRGB(100, 100));
+        assertEquals(0xFF000000, frame.getRGB(108, 100));
+        
+        g2d.setColor(java.awt.Color.BLACK);
+        g2d.fillRect(0, 0, 200, 200);
+        projectiles.render(g2d, 0.5);
+        assertEquals(java.awt.Color.YELLOW.getRGB(), frame.getRGB(104, 100));
+        assertEquals(0xFF000000, frame.getRGB(100, 100));
+        g2d.dispose();
+    }
+    
+    @Test
+    public void testSpriteAtlasRotationBuckets() {
+        assertEquals(0, SpriteAtlas.rotationBucket(0));
+        assertEquals(0, SpriteAtlas.rotationBucket(2 * Math.PI - 0.01));
+        assertEquals(SpriteAtlas.ROTATIONS / 4, SpriteAtlas.rotationBucket(Math.PI / 2));
+        assertEquals(SpriteAtlas.ROTATIONS * 3 / 4, SpriteAtlas.rotationBucket(-Math.PI / 2));
+        
+        SpriteAtlas sprites = new SpriteAtlas();
+        java.awt.image.BufferedImage frame = new java.awt.image.BufferedImage(200, 200, java.awt.image.BufferedImage.TYPE_INT_RGB);
+        java.awt.Graphics2D g2d = frame.createGraphics();
+        
+        // Gun points along the aim angle
+        sprites.drawPlayer(g2d, 100, 100, 0);
+        assertNotEquals(0xFF000000, frame.getRGB(100, 100));
+        assertNotEquals(0xFF000000, frame.getRGB(124, 100));
+        assertEquals(0xFF000000, frame.getRGB(100, 124));
+        
+        g2d.setColor(java.awt.Color.BLACK);
+        g2d.fillRect(0, 0, 200, 200);
+        sprites.drawEnemy(g2d, 100, 100, Math.PI / 2, AIEnemy.AIBehavior.PATROL);
+        assertNotEquals(0xFF000000, frame.getRGB(100, 118));
+        assertEquals(0xFF000000, frame.getRGB(118, 100));
+        g2d.dispose();
+    }
+    
+    @Test(timeout = 10000)
+    public void testSimulationTicksWhileAFrameIsBeingDrawn() throws Exception {
+        GameEngine engine = new GameEngine(1024, 768, GameEngine.DEFAULT_TICK_RATE, 5L);
+        java.awt.image.BufferedImage frame = new java.awt.image.BufferedImage(1024, 768, java.awt.image.BufferedImage.TYPE_INT_ARGB);
+        java.awt.Graphics2D g2d = frame.createGraphics();
+        java.util.concurrent.CountDownLatch drawing = new java.util.concurrent.CountDownLatch(1);
+        java.util.concurrent.CountDownLatch release = new java.util.concurrent.CountDownLatch(1);
+        
+        // Stalls the render thread on its first draw call, as a slow frame would
+        g2d.setComposite((srcColorModel, dstColorModel, hints) -> {
+            drawing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return java.awt.AlphaComposite.SrcOver.createContext(srcColorModel, dstColorModel, hints);
+        });
+        Thread renderer = new Thread(() -> engine.render(g2d, 1.0), "test-render");
+        renderer.start();
+        drawing.await();
+        
+        // Would block for as long as the frame takes if drawing held the engine lock
+        for (int i = 0; i < 10; i++) {
+            engine.update();
+        }
+        assertEquals(10, engine.getClock().getTick());
+        assertTrue(renderer.isAlive());
+        
+        release.countDown();
+        renderer.join();
+        g2d.dispose();
+    }
+    
+    @Test
+    public void testRenderDoesNotAllocatePerActor() {
+        assertSame(RenderResources.fade(RenderResources.RED_RAMP, 0.5f, 255),
+                   RenderResources.fade(RenderResources.RED_RAMP, 0.5f, 255));
+        assertSame(RenderResources.stroke(2.5f), RenderResources.stroke(2.5f));
+        assertEquals(127, RenderResources.fade(RenderResources.RED_RAMP, 0.5f, 255).getAlpha());
+        
+        java.lang.management.ThreadMXBean threads = java.lang.management.ManagementFactory.getThreadMXBean();
+        org.junit.Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+        
+        GameEngine few = new GameEngine(1024, 768);
+        GameEngine crowded = new GameEngine(1024, 768);
+        for (int i = 0; i < 100; i++) {
+            crowded.addEnemy(100 + (i % 20) * 40, 150 + (i / 20) * 60, AIEnemy.AIBehavior.values()[i % 3]);
+        }
+        java.awt.image.BufferedImage frame = new java.awt.image.BufferedImage(1024, 768, java.awt.image.BufferedImage.TYPE_INT_RGB);
+        java.awt.Graphics2D g2d = frame.createGraphics();
+        
+        // Warm up so the JIT has compiled the render path before measuring
+        for (int i = 0; i < 200; i++) {
+            few.render(g2d);
+            crowded.render(g2d);
+        }
+        
+        long thread = Thread.currentThread().getId();
+        int frames = 50;
+        long start = allocation.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < frames; i++) few.render(g2d);
+        long fewBytes = allocation.getThreadAllocatedBytes(thread) - start;
+        
+        start = allocation.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < frames; i++) crowded.render(g2d);
+        long crowdedBytes = allocation.getThreadAllocatedBytes(thread) - start;
+        
+        // Steady state is zero. The slack is less than one small object per frame, so any
+        // per-frame allocation fails this, not just one that grows with the actor count.
+        assertTrue(frames + " frames allocated " + fewBytes + " bytes", fewBytes < 1024);
+        assertTrue(frames + " frames with 100 bots allocated " + crowdedBytes + " bytes", crowdedBytes < 1024);
+        
+        // Translucent effects make Java2D redo the HUD text's font lookup, one FontStrikeDesc per frame
+        // (see ModernUI.drawPosition). The clock never advances here, so these stay on screen throughout.
+        crowded.getVisualEffects().addMuzzleFlash(300, 300, 0, crowded.getClock());
+        crowded.getVisualEffects().addTracer(300, 300, 600, 400, crowded.getClock());
+        for (int i = 0; i < 200; i++) crowded.render(g2d);
+        start = allocation.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < frames; i++) crowded.render(g2d);
+        long effectBytes = allocation.getThreadAllocatedBytes(thread) - start;
+        g2d.dispose();
+        assertTrue(frames + " frames with effects allocated " + effectBytes + " bytes", effectBytes < frames * 40 + 1024);
+    }
+    
+    @Test
+    public void testParticleBudgetRecyclesOldest() {
+        GameClock clock = new GameClock(64);
+        VisualEffects effects = new VisualEffects(16);
+        ParticleSystem particles = effects.getParticles();
+        
+        for (int i = 0; i < 10; i++) {
+            effects.addBulletImpact(100, 100, clock);
+        }
+        assertEquals(16, particles.size());
+        assertEquals(60 - 16, particles.getDroppedCount());
+        
+        // Sparks live 800 ms, which is 52 ticks at 64 Hz
+        for (int i = 0; i < 52; i++) {
+            clock.advance();
+            effects.update(clock);
+        }
+        assertEquals(16, particles.size());
+        clock.advance();
+        effects.update(clock);
+        assertEquals(0, particles.size());
+        assertEquals(16, particles.capacity());
+    }
+    
+    @Test
+    public void testExpiredParticlesFreeBudgetBeforeLiveOnes() {
+        GameClock clock = new GameClock(64);
+        VisualEffects effects = new VisualEffects(10);
+        ParticleSystem particles = effects.getParticles();
+        
+        // Spawned mid-tick, as in the engine: the clock has advanced but effects haven't updated yet
+        clock.advance();
+        effects.addBloodEffect(100, 100, clock); // 4 drops living 64 ticks
+        effects.addBulletImpact(100, 100, clock); // 6 sparks living 52 ticks
+        effects.update(clock);
+        assertEquals(10, particles.size());
+        
+        // Sparks are born on tick 1, so they last through tick 53 and no further
+        for (int i = 0; i < 52; i++) {
+            clock.advance();
+            effects.update(clock);
+        }
+        assertEquals(10, particles.size());
+        clock.advance();
+        effects.update(clock);
+        
+        // The blood at the head of the ring must not keep the expired sparks behind it alive
+        assertEquals(4, particles.size());
+        effects.addBulletImpact(100, 100, clock);
+        assertEquals(10, particles.size());
+        assertEquals(0, particles.getDroppedCount());
+    }
+    
+    @Test
+    public void testParticleBudgetIsConfigurable() {
+        GameEngine engine = new GameEngine(1024, 768, GameEngine.DEFAULT_TICK_RATE, 1L, 16);
+        for (int i = 0; i < 3; i++) {
+            engine.getVisualEffects().addBulletImpact(500, 380, engine.getClock());
+        }
+        assertEquals(16, engine.getVisualEffects().getParticles().capacity());
+        assertEquals(16, engine.getVisualEffects().getParticles().size());
+
+        // The render thread's copy is sized from the same budget
+        java.awt.image.BufferedImage image = new java.awt.image.BufferedImage(1024, 768, java.awt.image.BufferedImage.TYPE_INT_RGB);
+        java.awt.Graphics2D g2d = image.createGraphics();
+        engine.render(g2d, 1.0);
+        g2d.dispose();
+
+        // A smaller pool keeps the newest particles instead of running off its end
+        ParticleSystem small = new ParticleSystem(4);
+        small.copyFrom(engine.getVisualEffects().getParticles());
+        assertEquals(4, small.size());
+    }
+
+    @Test
+    public void testCameraFollowsPlayerOnLargeMap() {
+        Camera camera = new Camera(1024, 768);
+        camera.follow(100, 100, 1024, 768);
+        assertEquals(0, camera.getX());
+        assertEquals(0, camera.getY());
+        
+        camera.follow(3000, 2000, 6144, 4608);
+        assertEquals(3000 - 512, camera.getX());
+        assertEquals(2000 - 384, camera.getY());
+        assertEquals(3100.0, camera.toWorldX(612), 0.0);
+        assertTrue(camera.isVisible(3000, 2000, 0));
+        assertFalse(camera.isVisible(100, 100, 50));
+        
+        // Clamped at the far edge of the world
+        camera.follow(6100, 4600, 6144, 4608);
+        assertEquals(6144 - 1024, camera.getX());
+        assertEquals(4608 - 768, camera.getY());
+    }
+    
+    @Test
+    public void testRenderQueryOnlyTouchesVisibleElements() {
+        GameWorld world = new GameWorld(1024, 768, "sprawl");
+        assertTrue(world.getWidth() >= 1024 * 5);
+        SpatialGrid grid = world.getSpatialGrid();
+        int[] out = new int[grid.getElementCount()];
+        
+        int visible = grid.queryRenderable(2048, 2048, 2048 + 1024, 2048 + 768, out);
+        assertTrue("Expected a small fraction of " + grid.getElementCount() + ", got " + visible,
+                   visible > 0 && visible * 10 < grid.getElementCount());
+        
+        // Each element once, in map order, and every wall overlapping the view is included
+        for (int i = 1; i < visible; i++) {
+            assertTrue(out[i - 1] < out[i]);
+        }
+        int overlapping = 0;
+        for (int e = 0; e < grid.getElementCount(); e++) {
+            MapElement element = grid.getElement(e);
+            if (element.getRenderMaxX() >= 2048 && element.getRenderMinX() <= 3072 &&
+                element.getRenderMaxY() >= 2048 && element.getRenderMinY() <= 2816) {
+                overlapping++;
+                assertTrue(java.util.Arrays.binarySearch(out, 0, visible, e) >= 0);
+            }
+        }
+        assertTrue(overlapping > 0);
+        
+        // The whole map still comes back when asked for
+        assertEquals(grid.getElementCount(), grid.queryRenderable(0, 0, world.getWidth(), world.getHeight(), out));
+    }
+    
+    @Test
+    public void testHudRepaintsOnlyOnChange() {
+        GameEngine engine = new GameEngine(1024, 768);
+        java.awt.image.BufferedImage frame = new java.awt.image.BufferedImage(1024, 768, java.awt.image.BufferedImage.TYPE_INT_RGB);
+        java.awt.Graphics2D g2d = frame.createGraphics();
+        
+        engine.render(g2d);
+        int repaints = engine.getHud().getRepaintCount();
+        int healthBar = frame.getRGB(150, 30);
+        engine.render(g2d);
+        engine.render(g2d);
+        assertEquals("Unchanged HUD must be blitted, not repainted", repaints, engine.getHud().getRepaintCount());
+        
+        engine.getPlayer().takeDamage(60);
+        engine.render(g2d);
+        assertEquals(repaints + 1, engine.getHud().getRepaintCount());
+        assertNotEquals("Health bar should shrink", healthBar, frame.getRGB(150, 30));
+        
+        engine.getGameWorld().switchMap("office");
+        engine.render(g2d);
+        assertEquals(repaints + 2, engine.getHud().getRepaintCount());
+        g2d.dispose();
+    }
+    
+    @Test
+    public void testProfilerRecordsPhasePercentiles() {
+        GameEngine engine = new GameEngine(1024, 768);
+        java.awt.image.BufferedImage frame = new java.awt.image.BufferedImage(1024, 768, java.awt.image.BufferedImage.TYPE_INT_RGB);
+        java.awt.Graphics2D g2d = frame.createGraphics();
+        for (int i = 0; i < 100; i++) {
+            engine.update();
+        }
+        engine.render(g2d);
+        g2d.dispose();
+        
+        FrameProfiler profiler = engine.getProfiler();
+        for (FrameProfiler.Phase phase : FrameProfiler.Phase.values()) {
+            FrameProfiler.Summary s = profiler.summarize(phase);
+            assertTrue(phase.getLabel(), s.getSamples() > 0);
+            assertTrue(s.getP50Nanos() <= s.getP95Nanos());
+            assertTrue(s.getP95Nanos() <= s.getP99Nanos());
+            assertTrue(s.getP99Nanos() <= s.getMaxNanos());
+        }
+        assertEquals(100, profiler.summarize(FrameProfiler.Phase.UPDATE).getSamples());
+        assertTrue(profiler.toCsv().contains("update.collisions,100,"));
+        assertTrue(profiler.toJson().contains("\"phase\": \"render.hud\""));
+        
+        profiler.reset();
+        assertEquals(0, profiler.summarize(FrameProfiler.Phase.UPDATE).getSamples());
+    }
+    
+    @Test
+    public void testSnapshotDeltaRoundTrip() {
+        Snapshot baseline = new Snapshot();
+        baseline.clear(10, 0);
+        for (int id = 1; id <= 3; id++) {
+            int index = baseline.addEntity(id);
+            baseline.setField(index, Snapshot.X, id * 100);
+            baseline.setField(index, Snapshot.HEALTH, 100);
+        }
+        
+        // Entity 2 leaves, 3 moves, 4 joins, 1 is untouched
+        Snapshot current = new Snapshot();
+        current.clear(11, 2);
+        current.setField(current.addEntity(1), Snapshot.X, 100);
+        current.setField(current.getEntityCount() - 1, Snapshot.HEALTH, 100);
+        int moved = current.addEntity(3);
+        current.setField(moved, Snapshot.X, 296);
+        current.setField(moved, Snapshot.HEALTH, 75);
+        int joined = current.addEntity(4);
+        current.setField(joined, Snapshot.KIND, Snapshot.KIND_ENEMY);
+        current.setField(joined, Snapshot.Y, -40);
+        current.addProjectile(0, 500, 600, ProjectileSystem.OWNER_AI);
+        
+        java.nio.ByteBuffer delta = java.nio.ByteBuffer.allocate(1024);
+        SnapshotCodec.encode(current, baseline, delta);
+        java.nio.ByteBuffer full = java.nio.ByteBuffer.allocate(1024);
+        SnapshotCodec.encode(current, null, full);
+        assertTrue("Delta should be smaller than the full state", delta.position() < full.position());
+        
+        delta.flip();
+        Snapshot decoded = new Snapshot();
+        SnapshotCodec.decode(delta, baseline, decoded);
+        assertEquals(11, decoded.getTick());
+        assertEquals(2, decoded.getMapIndex());
+        assertEquals(3, decoded.getEntityCount());
+        assertEquals(-1, decoded.indexOf(2));
+        for (int i = 0; i < current.getEntityCount(); i++) {
+            assertEquals(current.getId(i), decoded.getId(i));
+            for (int f = 0; f < Snapshot.FIELDS; f++) {
+                assertEquals(current.getField(i, f), decoded.getField(i, f));
+            }
+        }
+        assertEquals(1, decoded.getProjectileCount());
+        assertEquals(600, decoded.getProjectileField(0, 1));
+        assertFalse(delta.hasRemaining());
+    }
+    
+    @Test
+    public void testServerSendsDeltaSnapshotsToClients() throws Exception {
+        GameEngine serverEngine = new GameEngine(1024, 768);
+        GameServer server = new GameServer(serverEngine, 0);
+        java.net.InetSocketAddress address = new java.net.InetSocketAddress("127.0.0.1", server.getPort());
+        GameEngine mirrorA = new GameEngine(1024, 768);
+        GameEngine mirrorB = new GameEngine(1024, 768);
+        GameClient clientA = new GameClient(mirrorA, address);
+        GameClient clientB = new GameClient(mirrorB, address);
+        try {
+            // Loopback delivery is asynchronous, so give each round a moment
+            for (int i = 0; i < 500 && !(clientA.isConnected() && clientB.isConnected()); i++) {
+                clientA.tick();
+                clientB.tick();
+                server.tick();
+                Thread.sleep(1);
+            }
+            assertTrue(clientA.isConnected() && clientB.isConnected());
+            assertEquals(2, server.getClientCount());
+            
+            Player moving = serverEngine.findPlayer(clientA.getPlayerId());
+            double startX = moving.getX();
+            mirrorA.pressKey(java.awt.event.KeyEvent.VK_D);
+            long bytesBefore = server.getBytesSent();
+            long packetsBefore = server.getPacketsSent();
+            for (int i = 0; i < 60; i++) {
+                clientA.tick();
+                clientB.tick();
+                server.tick();
+                Thread.sleep(1);
+            }
+            clientA.tick();
+            clientB.tick();
+            
+            assertTrue("Input sent over UDP should move the player on the server", moving.getX() > startX);
+            assertTrue(clientA.getLastProcessedInput() > 0);
+            
+            // Both mirrors show both players and the server's bots, each following its own player
+            for (GameClient client : new GameClient[]{clientA, clientB}) {
+                GameEngine mirror = client.getEngine();
+                assertEquals(2, mirror.getPlayers().size());
+                assertEquals(client.getPlayerId(), mirror.getPlayer().getId());
+                assertEquals(serverEngine.getAIEnemies().size(), mirror.getAIEnemies().size());
+                assertTrue(mirror.isReplica());
+            }
+            Player mirrored = mirrorB.findPlayer(clientA.getPlayerId());
+            assertEquals("Within a few ticks of movement", moving.getX(), mirrored.getX(), 10);
+            
+            // Steady-state snapshots are deltas, well under what the full state costs
+            Snapshot state = new Snapshot();
+            serverEngine.captureSnapshot(state);
+            java.nio.ByteBuffer full = java.nio.ByteBuffer.allocate(GameServer.MAX_PACKET);
+            SnapshotCodec.encode(state, null, full);
+            double perPacket = (server.getBytesSent() - bytesBefore) / (double) (server.getPacketsSent() - packetsBefore);
+            assertTrue("Average snapshot " + perPacket + " bytes vs full " + full.position(), perPacket < full.position());
+        } finally {
+            clientA.close();
+            clientB.close();
+            server.close();
+        }
+    }
+    
+    @Test
+    public void testServerRejectsConnectsBeyondMaxClients() throws Exception {
+        GameEngine serverEngine = new GameEngine(1024, 768);
+        GameServer server = new GameServer(serverEngine, 0, 2);
+        java.net.InetSocketAddress address = new java.net.InetSocketAddress("127.0.0.1", server.getPort());
+        java.nio.channels.DatagramChannel[] clients = new java.nio.channels.DatagramChannel[3];
+        try {
+            for (int i = 0; i < clients.length; i++) {
+                clients[i] = java.nio.channels.DatagramChannel.open();
+                clients[i].send(java.nio.ByteBuffer.wrap(new byte[]{GameServer.CONNECT}), address);
+            }
+            for (int i = 0; i < 500 && server.getRejectedConnects() == 0; i++) {
+                server.tick();
+                Thread.sleep(1);
+            }
+            assertEquals(2, server.getClientCount());
+            assertEquals(1, server.getRejectedConnects());
+            assertEquals("Only the host and one added player", 2, serverEngine.getPlayers().size());
+        } finally {
+            for (java.nio.channels.DatagramChannel client : clients) {
+                if (client != null) client.close();
+            }
+            server.close();
+        }
+    }
+
+    @Test
+    public void testProjectilesAreDeltaEncodedById() {
+        Snapshot baseline = new Snapshot();
+        baseline.clear(7, 0);
+        for (int id = 0; id < 100; id++) {
+            baseline.addProjectile(id, id * 40, 1000 - id * 40, ProjectileSystem.OWNER_AI);
+        }
+
+        // One tick later: all move a little, 0 has hit a wall, 100 was just fired. Swap-remove
+        // leaves the engine's slots out of id order, the snapshot sorts them back.
+        Snapshot current = new Snapshot();
+        current.clear(8, 0);
+        current.addProjectile(99, 99 * 40 + 64, 1000 - 99 * 40, ProjectileSystem.OWNER_AI);
+        for (int id = 1; id < 99; id++) {
+            current.addProjectile(id, id * 40 + 64, 1000 - id * 40, ProjectileSystem.OWNER_AI);
+        }
+        current.addProjectile(100, 2000, 2000, ProjectileSystem.OWNER_PLAYER);
+        assertEquals(1, current.getProjectileId(0));
+        assertEquals(99, current.getProjectileId(98));
+
+        java.nio.ByteBuffer delta = java.nio.ByteBuffer.allocate(4096);
+        SnapshotCodec.encode(current, baseline, delta);
+        java.nio.ByteBuffer full = java.nio.ByteBuffer.allocate(4096);
+        SnapshotCodec.encode(current, null, full);
+        assertTrue("Delta " + delta.position() + " vs full " + full.position(), delta.position() < full.position());
+
+        delta.flip();
+        Snapshot decoded = new Snapshot();
+        SnapshotCodec.decode(delta, baseline, decoded);
+        assertEquals(current.getProjectileCount(), decoded.getProjectileCount());
+        for (int p = 0; p < current.getProjectileCount(); p++) {
+            assertEquals(current.getProjectileId(p), decoded.getProjectileId(p));
+            for (int f = 0; f < Snapshot.PROJECTILE_FIELDS; f++) {
+                assertEquals(current.getProjectileField(p, f), decoded.getProjectileField(p, f));
+            }
+        }
+    }
+
+    @Test
+    public void testProjectileIdsSurviveCompaction() {
+        GameEngine engine = new GameEngine(1024, 768);
+        ProjectileSystem projectiles = engine.getProjectiles();
+        for (int i = 0; i < 3; i++) {
+            projectiles.spawn(100 + i * 10, 100, 0, ProjectileSystem.OWNER_PLAYER);
+        }
+        projectiles.kill(0);
+        projectiles.compact();
+        int fourth = projectiles.spawn(200, 100, 0, ProjectileSystem.OWNER_PLAYER);
+        assertEquals(3, projectiles.getId(fourth));
+
+        Snapshot state = new Snapshot();
+        engine.captureSnapshot(state);
+        assertEquals(3, state.getProjectileCount());
+        assertEquals(1, state.getProjectileId(0));
+        assertEquals(2, state.getProjectileId(1));
+        assertEquals(3, state.getProjectileId(2));
+        assertEquals(Snapshot.quantize(110), state.getProjectileField(0, 0));
+    }
+
+    @Test
+    public void testClientWithoutBaselineGetsFragmentedFullState() throws Exception {
+        GameEngine serverEngine = new GameEngine(1024, 768);
+        for (int i = 0; i < 30; i++) {
+            serverEngine.addEnemy(100 + i * 25, 300, AIEnemy.AIBehavior.PATROL);
+        }
+        // Packets far too small for the full state, so it can only arrive in fragments
+        GameServer server = new GameServer(serverEngine, 0, GameServer.MAX_CLIENTS, 100);
+        GameEngine mirror = new GameEngine(1024, 768);
+        GameClient client = new GameClient(mirror, new java.net.InetSocketAddress("127.0.0.1", server.getPort()));
+        try {
+            for (int i = 0; i < 500 && client.getLatestTick() < 0; i++) {
+                client.tick();
+                server.tick();
+                Thread.sleep(1);
+            }
+            assertTrue("Client should assemble a full state", client.getLatestTick() >= 0);
+            assertTrue(server.getFragmentedSnapshots() > 0);
+            assertEquals(0, server.getOversizedSnapshots());
+            assertEquals(serverEngine.getAIEnemies().size(), mirror.getAIEnemies().size());
+
+            // Once acknowledged, the reassembled state works as a baseline and the mirror keeps up
+            int firstTick = client.getLatestTick();
+            for (int i = 0; i < 30; i++) {
+                client.tick();
+                server.tick();
+                Thread.sleep(1);
+            }
+            client.tick();
+            assertTrue(client.getLatestTick() > firstTick);
+            AIEnemy source = serverEngine.getAIEnemies().get(0);
+            AIEnemy mirrored = mirror.getAIEnemies().get(0);
+            assertEquals(source.getId(), mirrored.getId());
+            assertEquals(source.getX(), mirrored.getX(), 10);
+        } finally {
+            client.close();
+            server.close();
+        }
+    }
+
+    @Test
+    public void testClientPredictsAndConvergesWithServer() throws Exception {
+        GameEngine serverEngine = new GameEngine(1024, 768);
+        GameServer server = new GameServer(serverEngine, 0);
+        GameEngine mirror = new GameEngine(1024, 768);
+        GameClient client = new GameClient(mirror, new java.net.InetSocketAddress("127.0.0.1", server.getPort()));
+        try {
+            for (int i = 0; i < 500 && client.getLatestTick() < 0; i++) {
+                client.tick();
+                server.tick();
+                Thread.sleep(1);
+            }
+            assertTrue(client.isConnected());
+            
+            // The local player moves on the very tick the key is sampled, before the server has seen it
+            double startX = mirror.getPlayer().getX();
+            mirror.pressKey(java.awt.event.KeyEvent.VK_D);
+            client.tick();
+            assertTrue(mirror.getPlayer().getX() > startX);
+            
+            for (int i = 0; i < 60; i++) {
+                server.tick();
+                Thread.sleep(1);
+                client.tick();
+            }
+            mirror.releaseKey(java.awt.event.KeyEvent.VK_D);
+            for (int i = 0; i < 30; i++) {
+                server.tick();
+                Thread.sleep(1);
+                client.tick();
+            }
+            
+            // Once the server has caught up with every input, both agree on where the player is
+            Player authoritative = serverEngine.findPlayer(client.getPlayerId());
+            assertTrue(authoritative.getX() > startX);
+            assertEquals(authoritative.getX(), mirror.getPlayer().getX(), 1.0 / Snapshot.POSITION_SCALE);
+            assertEquals(authoritative.getY(), mirror.getPlayer().getY(), 1.0 / Snapshot.POSITION_SCALE);
+        } finally {
+            client.close();
+            server.close();
+        }
+    }
+    
+    @Test
+    public void testPredictionReplayDoesNotAllocate() {
+        java.lang.management.ThreadMXBean threads = java.lang.management.ManagementFactory.getThreadMXBean();
+        org.junit.Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) threads;
+        
+        GameEngine engine = new GameEngine(1024, 768);
+        ClientPrediction prediction = new ClientPrediction(128, engine.getTickRate());
+        Player player = engine.getPlayer();
+        int inputs = 64;
+        for (int s = 0; s < inputs; s++) {
+            prediction.slot(s).set(s, s % 2 == 0 ? PlayerInput.RIGHT : PlayerInput.DOWN | PlayerInput.LEFT, 0.5);
+            prediction.predict(engine, s);
+        }
+        double predictedX = player.getX();
+        double predictedY = player.getY();
+        
+        // Server agrees with input 0: the latest prediction is kept without replaying
+        prediction.slot(0).set(0, PlayerInput.RIGHT, 0.5);
+        GameEngine fresh = new GameEngine(1024, 768);
+        fresh.getPlayer().move(1, 0, fresh.getGameWorld(), new GameClock(engine.getTickRate()));
+        player.setPosition(fresh.getPlayer().getX(), fresh.getPlayer().getY());
+        prediction.reconcile(engine, 0, inputs);
+        assertEquals(0, prediction.getCorrections());
+        assertEquals(predictedX, player.getX(), 1e-9);
+        
+        // Server disagrees: rewind and replay the 63 inputs after it, without allocating
+        for (int i = 0; i < 200; i++) {
+            player.setPosition(300, 300);
+            prediction.reconcile(engine, 0, inputs);
+        }
+        long thread = Thread.currentThread().getId();
+        long start = allocation.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 100; i++) {
+            player.setPosition(300, 300);
+            prediction.reconcile(engine, 0, inputs);
+        }
+        long bytes = allocation.getThreadAllocatedBytes(thread) - start;
+        assertTrue("Replay allocated " + bytes + " bytes", bytes < 1024);
+        assertEquals(300, prediction.getCorrections());
+        assertEquals(300L * (inputs - 1), prediction.getReplayedInputs());
+    }
+    
+    @Test
+    public void testPositionHistoryRing() {
+        PositionHistory history = new PositionHistory();
+        assertFalse(history.has(0));
+        for (int tick = 0; tick < PositionHistory.CAPACITY + 10; tick++) {
+            history.record(tick, tick * 2, tick * 3);
+        }
+        assertTrue(history.has(PositionHistory.CAPACITY + 9));
+        assertEquals(2.0 * PositionHistory.CAPACITY, history.getX(PositionHistory.CAPACITY), 1e-9);
+        assertFalse("Overwritten once the ring wraps", history.has(5));
+        assertTrue(history.has(10));
+        assertEquals(30.0, history.getY(10), 1e-9);
+        assertFalse(history.has(-1));
+    }
+    
+    @Test
+    public void testRemoteShotsAreJudgedAtTheShootersViewTick() {
+        GameEngine engine = new GameEngine(1024, 768);
+        Player shooter = engine.getPlayer();
+        shooter.setNetworked(true);
+        shooter.setFireMode(FireMode.HITSCAN);
+        AIEnemy target = engine.addEnemy(shooter.getX() + 80, shooter.getY(), AIEnemy.AIBehavior.DEFENSIVE);
+        for (int i = 0; i < 10; i++) {
+            engine.update();
+        }
+        
+        // The client was looking at tick 8; the bot has since moved well off that line
+        int viewTick = 8;
+        double seenX = target.getHistory().getX(viewTick);
+        double seenY = target.getHistory().getY(viewTick);
+        assertTrue(engine.getGameWorld().hasLineOfSight(shooter.getX(), shooter.getY(), seenX, seenY));
+        target.setState(seenX, seenY - 120, 0, 100);
+        double aim = Math.atan2(seenY - shooter.getY(), seenX - shooter.getX());
+        
+        // Judged against current positions the shot misses
+        shooter.getInput().set(1, PlayerInput.FIRE, aim);
+        shooter.getInput().setViewTick(-1);
+        engine.update();
+        assertEquals(100, target.getHealth());
+        
+        // Judged where the shooter saw the bot, it hits
+        aim = Math.atan2(seenY - shooter.getY(), seenX - shooter.getX());
+        shooter.getInput().set(2, PlayerInput.FIRE, aim);
+        shooter.getInput().setViewTick(viewTick);
+        engine.update();
+        assertTrue(target.getHealth() < 100);
+        
+        // Too far in the past to be trusted: clamped to the rewind limit and misses again
+        int healthAfterHit = target.getHealth();
+        for (int i = 0; i < 60; i++) {
+            shooter.getInput().set(3 + i, 0, aim);
+            engine.update();
+        }
+        target.setState(seenX, seenY - 120, 0, target.getHealth());
+        shooter.getInput().set(100, PlayerInput.FIRE, aim);
+        shooter.getInput().setViewTick(viewTick);
+        engine.update();
+        assertEquals(healthAfterHit, target.getHealth());
+    }
+    
+    @Test
+    public void testServerJudgesClientShotsWhereTheClientSawTheBot() throws Exception {
+        assertEquals("Remote players fire hitscan by default", 66, damageFromRemoteShot(null));
+        assertEquals("Projectiles are judged against current positions", 100, damageFromRemoteShot(FireMode.PROJECTILE));
+    }
+
+    // Fires one shot from a real client at where its mirror shows a bot, after the server has moved the bot
+    // away, and returns the bot's health once the shot has been resolved
+    private int damageFromRemoteShot(FireMode remoteFireMode) throws Exception {
+        GameEngine serverEngine = new GameEngine(1024, 768, GameEngine.DEFAULT_TICK_RATE, 11L);
+        serverEngine.getAIEnemies().clear();
+        Player host = serverEngine.getPlayer();
+        AIEnemy target = serverEngine.addEnemy(host.getX() + 80, host.getY(), AIEnemy.AIBehavior.DEFENSIVE);
+        GameServer server = new GameServer(serverEngine, 0);
+        if (remoteFireMode != null) server.setRemoteFireMode(remoteFireMode);
+        GameEngine mirror = new GameEngine(1024, 768);
+        GameClient client = new GameClient(mirror, new java.net.InetSocketAddress("127.0.0.1", server.getPort()));
+        try {
+            for (int i = 0; i < 500 && mirror.getAIEnemies().size() != 1; i++) {
+                client.tick();
+                server.tick();
+                Thread.sleep(1);
+            }
+            assertEquals(server.getRemoteFireMode(), mirror.getPlayer().getFireMode());
+            Thread.sleep(20);
+            client.tick(); // Takes in the last snapshot, so the mirror shows the newest state
+
+            AIEnemy seen = mirror.getAIEnemies().get(0);
+            Player self = mirror.getPlayer();
+            assertTrue(serverEngine.getGameWorld().hasLineOfSight(self.getX(), self.getY(), seen.getX(), seen.getY()));
+            self.setAngle(Math.atan2(seen.getY() - self.getY(), seen.getX() - self.getX()));
+            mirror.handleMousePress(new java.awt.event.MouseEvent(new java.awt.Canvas(), java.awt.event.MouseEvent.MOUSE_PRESSED,
+                                                                  0, 0, 0, 0, 1, false, java.awt.event.MouseEvent.BUTTON1));
+            client.tick();
+
+            // By the time the shot arrives the bot is well off the line the client aimed along
+            target.setState(target.getX(), target.getY() - 120, 0, target.getHealth());
+            for (int i = 0; i < 500 && host.getAmmo() == 30; i++) {
+                server.tick();
+                Thread.sleep(1);
+            }
+            assertEquals("The shot reached the server", 29, host.getAmmo());
+            for (int i = 0; i < 30; i++) {
+                server.tick(); // Lets a projectile finish its flight
+            }
+            return target.getHealth();
+        } finally {
+            client.close();
+            server.close();
+        }
+    }
+
+    @Test
+    public void testSwitchingToASmallerMapMovesActorsIntoIt() {
+        GameEngine engine = new GameEngine(1024, 768, GameEngine.DEFAULT_TICK_RATE, 3L);
+        engine.switchMap("sprawl");
+        GameWorld world = engine.getGameWorld();
+        double farX = 5000, farY = 4000;
+        while (world.checkCollision(farX, farY) || world.checkCollision(farX + 1, farY + 2)) {
+            farX += 7;
+        }
+        engine.getPlayer().relocate(farX, farY);
+        AIEnemy follower = engine.addEnemy(farX + 1, farY + 2, AIEnemy.AIBehavior.PATROL);
+        engine.update();
+
+        engine.switchMap("dust2");
+        assertEquals(1024, world.getWidth());
+        Player player = engine.getPlayer();
+        assertFalse(world.checkCollision(player.getX(), player.getY()));
+        assertTrue(player.getX() > 0 && player.getX() < 1024 && player.getY() > 0 && player.getY() < 768);
+        for (AIEnemy enemy : engine.getAIEnemies()) {
+            assertFalse("Bot inside a wall at " + enemy.getX() + ", " + enemy.getY(),
+                        world.checkCollision(enemy.getX(), enemy.getY()));
+            assertTrue(world.getNavigationGrid().isWalkable(world.getNavigationGrid().cellAt(enemy.getX(), enemy.getY())));
+        }
+        assertTrue(follower.isAlive());
+        assertTrue("Camera shows the player", engine.getCamera().isVisible(player.getX(), player.getY(), 0));
+
+        // Still free to walk around the new map
+        double startX = player.getX();
+        engine.pressKey(java.awt.event.KeyEvent.VK_D);
+        for (int i = 0; i < 20; i++) {
+            engine.update();
+        }
+        assertTrue(player.getX() > startX);
+    }
+
+    @Test
+    public void testSeededMatchesAreReproducible() {
+        GameRandom a = new GameRandom(7);
+        GameRandom b = new GameRandom(7);
+        GameRandom child = a.split();
+        b.split();
+        assertEquals(a.nextLong(), b.nextLong());
+        assertNotEquals(a.nextLong(), child.nextLong());
+        for (int i = 0; i < 1000; i++) {
+            double d = a.nextDouble();
+            assertTrue(d >= 0 && d < 1);
+            int n = a.nextInt(3);
+            assertTrue(n >= 0 && n < 3);
+        }
+        
+        // Same seed and inputs give identical matches, even with bots thinking in parallel in one of them
+        java.nio.ByteBuffer first = runScriptedMatch(1234L, true);
+        java.nio.ByteBuffer second = runScriptedMatch(1234L, false);
+        assertEquals(first, second);
+        assertNotEquals(first, runScriptedMatch(99L, true));
+    }
+    
+    private java.nio.ByteBuffer runScriptedMatch(long seed, boolean parallelAI) {
+        GameEngine engine = new GameEngine(1024, 768, GameEngine.DEFAULT_TICK_RATE, seed);
+        engine.setParallelAI(parallelAI);
+        for (int i = 0; i < 60; i++) {
+            engine.addEnemy(100 + (i % 10) * 80, 120 + (i / 10) * 90, AIEnemy.AIBehavior.values()[i % 3]);
+        }
+        int[] keys = {java.awt.event.KeyEvent.VK_W, java.awt.event.KeyEvent.VK_D,
+                      java.awt.event.KeyEvent.VK_S, java.awt.event.KeyEvent.VK_A};
+        for (int tick = 0; tick < 600; tick++) {
+            if (tick % 50 == 0) {
+                engine.releaseKey(keys[(tick / 50 + 3) % 4]);
+                engine.pressKey(keys[(tick / 50) % 4]);
+            }
+            engine.update();
+        }
+        Snapshot state = new Snapshot();
+        engine.captureSnapshot(state);
+        java.nio.ByteBuffer encoded = java.nio.ByteBuffer.allocate(GameServer.MAX_PACKET);
+        SnapshotCodec.encode(state, null, encoded);
+        encoded.flip();
+        return encoded;
+    }
+    
+    @Test
+    public void testReplayReproducesRecordedMatch() throws Exception {
+        java.io.ByteArrayOutputStream file = new java.io.ByteArrayOutputStream();
+        GameEngine live = recordScriptedMatch(file, 1500);
+        
+        ReplayPlayer replay = new ReplayPlayer(file.toByteArray());
+        assertEquals(1500, replay.fastForward(Long.MAX_VALUE));
+        assertTrue(replay.isFinished());
+        
+        GameEngine replayed = replay.getEngine();
+        assertEquals(live.getGameWorld().getMapName(), replayed.getGameWorld().getMapName());
+        assertEquals(live.getPlayer().getX(), replayed.getPlayer().getX(), 0);
+        assertEquals(live.getPlayer().getY(), replayed.getPlayer().getY(), 0);
+        assertEquals(live.getPlayer().getFireMode(), replayed.getPlayer().getFireMode());
+        assertEquals(encodedState(live), encodedState(replayed));
+        
+        // Inputs only: a couple of bytes a tick rather than a state dump
+        assertTrue("recording is " + file.size() + " bytes", file.size() < 1500 * 2);
+    }
+    
+    @Test
+    public void testReplaySeeksThroughKeyframes() throws Exception {
+        java.io.ByteArrayOutputStream file = new java.io.ByteArrayOutputStream();
+        recordScriptedMatch(file, 1500);
+        byte[] recording = file.toByteArray();
+        
+        ReplayPlayer straight = new ReplayPlayer(recording);
+        straight.fastForward(700);
+        byte[] at700 = engineState(straight.getEngine());
+        straight.fastForward(600);
+        byte[] at1300 = engineState(straight.getEngine());
+        
+        ReplayPlayer seeking = new ReplayPlayer(recording);
+        seeking.fastForward(Long.MAX_VALUE);
+        assertEquals(3, seeking.getKeyframeCount()); // Ticks 0, 512 and 1024
+        
+        seeking.seek(700);
+        assertEquals(700, seeking.getTick());
+        assertArrayEquals(at700, engineState(seeking.getEngine()));
+        
+        seeking.seek(100);
+        seeking.seek(1300);
+        assertEquals(1300, seeking.getTick());
+        assertArrayEquals(at1300, engineState(seeking.getEngine()));
+        
+        seeking.seek(Long.MAX_VALUE);
+        assertEquals(1500, seeking.getTick());
+        assertTrue(seeking.isFinished());
+    }
+    
+    // A match exercising every recorded event: spawns, a remote player joining and leaving,
+    // fire mode and map switches from the keyboard, and an AI fire mode change
+    private GameEngine recordScriptedMatch(java.io.OutputStream out, int ticks) throws java.io.IOException {
+        GameEngine engine = new GameEngine(1024, 768, GameEngine.DEFAULT_TICK_RATE, 4321L);
+        engine.switchMap("office");
+        ReplayRecorder recorder = new ReplayRecorder(engine, out);
+        int[] keys = {java.awt.event.KeyEvent.VK_W, java.awt.event.KeyEvent.VK_D,
+                      java.awt.event.KeyEvent.VK_S, java.awt.event.KeyEvent.VK_A};
+        Player remote = null;
+        for (int tick = 0; tick < ticks; tick++) {
+            if (tick == 10) {
+                for (int i = 0; i < 8; i++) {
+                    engine.addEnemy(150 + i * 90, 200 + (i % 2) * 300, AIEnemy.AIBehavior.values()[i % 3]);
+                }
+            }
+            if (tick % 50 == 0) {
+                engine.releaseKey(keys[(tick / 50 + 3) % 4]);
+                engine.pressKey(keys[(tick / 50) % 4]);
+            }
+            if (tick == 100) engine.pressKey(java.awt.event.KeyEvent.VK_F);
+            if (tick == 200) {
+                remote = engine.addPlayer();
+                remote.setNetworked(true);
+            }
+            if (remote != null && tick % 7 == 0) {
+                int buttons = PlayerInput.FIRE | (tick % 2 == 0 ? PlayerInput.RIGHT : PlayerInput.UP);
+                remote.getInput().set(tick, buttons, tick * 0.05);
+                remote.getInput().setViewTick(tick - 3);
+            }
+            if (tick == 400) engine.setAIFireMode(FireMode.HITSCAN);
+            if (tick == 900) engine.pressKey(java.awt.event.KeyEvent.VK_3);
+            if (tick == 1200) {
+                engine.removePlayer(remote);
+                remote = null;
+            }
+            engine.update();
+        }
+        recorder.close();
+        assertEquals(ticks, recorder.getTicksRecorded());
+        return engine;
+    }
+    
+    private java.nio.ByteBuffer encodedState(GameEngine engine) {
+        Snapshot state = new Snapshot();
+        engine.captureSnapshot(state);
+        java.nio.ByteBuffer encoded = java.nio.ByteBuffer.allocate(GameServer.MAX_PACKET);
+        SnapshotCodec.encode(state, null, encoded);
+        encoded.flip();
+        return encoded;
+    }
+    
+    private byte[] engineState(GameEngine engine) {
+        java.nio.ByteBuffer state = java.nio.ByteBuffer.allocate(1 << 20);
+        engine.writeState(state);
+        return java.util.Arrays.copyOf(state.array(), state.position());
+    }
 }